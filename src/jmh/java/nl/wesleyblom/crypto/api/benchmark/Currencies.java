@@ -0,0 +1,38 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Generates benchmark data
+ *
+ * @author Wesley
+ * @date 2019-03-20
+ */
+
+final class Currencies {
+
+    private Currencies() {
+    }
+
+    /**
+     * @param index The index of the {@link Currency}, below 36^5
+     * @return Returns a unique ticker of five characters, which never collides with the tickers in data.sql
+     */
+    static String ticker(int index) {
+        String ticker = Integer.toString(index, Character.MAX_RADIX).toUpperCase();
+        return "00000".substring(ticker.length()) + ticker;
+    }
+
+    /**
+     * @param index The index of the {@link Currency}, below 36^5
+     * @return Returns a valid {@link Currency} with the ticker of the given index
+     */
+    static Currency currency(int index) {
+        return new Currency.CurrencyBuilder()
+            .withTicker(ticker(index))
+            .withName("Coin " + index)
+            .withNumberOfCoins(1000000L + index)
+            .withMarketCap(1000000000L - index)
+            .build();
+    }
+}
@@ -0,0 +1,52 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link Currency.CurrencyBuilder#build()}, including its validation
+ *
+ * @author Wesley
+ * @date 2019-03-20
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyBuilderBenchmark {
+
+    private String ticker = "XRP";
+    private String name = "Ripple";
+    private String invalidName = "A name that is longer than allowed";
+
+    @Benchmark
+    public Currency buildValid() {
+        return new Currency.CurrencyBuilder()
+            .withTicker(ticker)
+            .withName(name)
+            .withNumberOfCoins(38590000000L)
+            .withMarketCap(64750000000L)
+            .build();
+    }
+
+    @Benchmark
+    public Object buildInvalid() {
+        try {
+            return new Currency.CurrencyBuilder().withTicker(ticker).withName(invalidName).build();
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
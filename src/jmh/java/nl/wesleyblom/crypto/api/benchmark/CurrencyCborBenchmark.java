@@ -0,0 +1,97 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.cache.CurrencyCborCache;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of CBOR against JSON for lists of {@link Currency} objects. The encoded size of both formats is printed
+ * during setup, {@link CurrencyJsonBenchmark} has the JSON side through the cache.
+ *
+ * @author Wesley
+ * @date 2019-04-02
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyCborBenchmark {
+
+    @Param({"10", "1000"})
+    private int listSize;
+
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private ObjectWriter cborWriter;
+    private ObjectReader cborReader;
+    private CurrencyCborCache currencyCborCache;
+
+    private List<Currency> list;
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        jsonWriter = jsonMapper.writerFor(jsonMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        jsonReader = jsonMapper.readerFor(jsonMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        cborWriter = cborMapper.writerFor(cborMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        cborReader = cborMapper.readerFor(cborMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        currencyCborCache = new CurrencyCborCache(listSize + 1);
+
+        list = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            list.add(Currencies.currency(i));
+        }
+        json = jsonWriter.writeValueAsBytes(list);
+        cbor = cborWriter.writeValueAsBytes(list);
+        System.out.printf("%n%d currencies: JSON %d bytes, CBOR %d bytes%n", listSize, json.length, cbor.length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws IOException {
+        return jsonWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] serializeCbor() throws IOException {
+        return cborWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] serializeCborCached() {
+        return currencyCborCache.encode(list);
+    }
+
+    @Benchmark
+    public List<Currency> deserializeJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public List<Currency> deserializeCbor() throws IOException {
+        return cborReader.readValue(cbor);
+    }
+}
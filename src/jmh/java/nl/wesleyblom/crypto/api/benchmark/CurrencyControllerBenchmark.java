@@ -0,0 +1,127 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.Application;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Benchmarks of the {@link nl.wesleyblom.crypto.api.CurrencyRestController} handlers, dispatched through
+ * {@link MockMvc} against the application with an in-memory H2 database of the given number of rows
+ *
+ * Tickers are picked at random from the whole table, so with more rows than the cache holds most single
+ * lookups go to the database.
+ *
+ * @author Wesley
+ * @date 2019-03-20
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CurrencyControllerBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10000;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mvc;
+    private String etag;
+
+    @Setup
+    public void setup() throws Exception {
+        // Arguments, since default properties would lose against application.properties
+        context = new SpringApplicationBuilder(Application.class).run(
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark" + rows + ";DB_CLOSE_DELAY=-1",
+            "--logging.level.nl.wesleyblom.crypto.api=WARN",
+            "--access-log.enabled=false");
+        seed(context.getBean(JdbcTemplate.class));
+
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        MvcResult result = mvc.perform(get("/api/currencies/" + Currencies.ticker(0))).andReturn();
+        etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    @Benchmark
+    public int getCurrency() throws Exception {
+        return status(mvc.perform(get("/api/currencies/" + randomTicker())).andReturn());
+    }
+
+    @Benchmark
+    public int getCurrencyNotModified() throws Exception {
+        return status(mvc.perform(get("/api/currencies/" + Currencies.ticker(0)).header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn());
+    }
+
+    @Benchmark
+    public int getFirstPage() throws Exception {
+        return status(mvc.perform(get("/api/currencies")).andReturn());
+    }
+
+    @Benchmark
+    public int getRandomOffsetPage() throws Exception {
+        int page = ThreadLocalRandom.current().nextInt(Math.max(1, rows / 10));
+        return status(mvc.perform(get("/api/currencies").param("page", Integer.toString(page))).andReturn());
+    }
+
+    @Benchmark
+    public int getRandomKeysetPage() throws Exception {
+        return status(mvc.perform(get("/api/currencies").param("after", randomTicker())).andReturn());
+    }
+
+    private String randomTicker() {
+        return Currencies.ticker(ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    private static int status(MvcResult result) {
+        return result.getResponse().getStatus();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            Currency currency = Currencies.currency(i);
+            batch.add(new Object[] {currency.getTicker(), currency.getName(), currency.getNumberOfCoins(), currency.getMarketCap()});
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                jdbcTemplate.batchUpdate(
+                    "insert into currency (ticker, name, number_of_coins, market_cap, version) values (?, ?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
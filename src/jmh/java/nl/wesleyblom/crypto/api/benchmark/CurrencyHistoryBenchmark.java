@@ -0,0 +1,83 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import nl.wesleyblom.crypto.api.history.CurrencyHistoryStore;
+import nl.wesleyblom.crypto.api.history.HistoryBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of history queries of a single ticker with a point every second, downsampled to minutes and days
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyHistoryBenchmark {
+
+    private static final String TICKER = "BTC";
+    private static final long SECOND = 1_000;
+
+    @Param({"100000", "1000000"})
+    private int points;
+
+    private Path directory;
+    private CurrencyHistoryStore store;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("history-benchmark");
+        store = new CurrencyHistoryStore(directory.toString(), points, 1);
+        for (int i = 0; i < points; i++) {
+            store.append(TICKER, i * SECOND, 1_000_000 + (i * 7919L) % 10_000, 21_000_000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public List<HistoryBucket> lastHourPerMinute() throws IOException {
+        long to = points * SECOND;
+        return store.query(TICKER, to - 3_600 * SECOND, to, 60 * SECOND).get();
+    }
+
+    @Benchmark
+    public List<HistoryBucket> allPerMinute() throws IOException {
+        return store.query(TICKER, 0, points * SECOND, 60 * SECOND).get();
+    }
+
+    @Benchmark
+    public List<HistoryBucket> allPerDay() throws IOException {
+        return store.query(TICKER, 0, points * SECOND, 86_400 * SECOND).get();
+    }
+}
@@ -0,0 +1,113 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the JSON serialization and deserialization of a {@link Currency} and of lists of them,
+ * both with Jackson directly and through the {@link CurrencyJsonCache}
+ *
+ * Run with {@code -prof gc} to compare the bytes allocated per call, {@code gc.alloc.rate.norm}, of the cached
+ * encodings with those of Jackson.
+ *
+ * @author Wesley
+ * @date 2019-03-20
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int listSize;
+
+    private ObjectWriter writer;
+    private ObjectWriter listWriter;
+    private ObjectReader reader;
+    private ObjectReader listReader;
+    private CurrencyJsonCache currencyJsonCache;
+
+    private Currency currency;
+    private List<Currency> list;
+    private byte[] json;
+    private byte[] listJson;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(Currency.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        reader = objectMapper.readerFor(Currency.class);
+        listReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Currency.class));
+        currencyJsonCache = new CurrencyJsonCache(objectMapper, listSize + 1, 1);
+
+        currency = Currencies.currency(0);
+        list = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            list.add(Currencies.currency(i));
+        }
+        json = writer.writeValueAsBytes(currency);
+        listJson = listWriter.writeValueAsBytes(list);
+        currencyJsonCache.putPage("page", 1, currencyJsonCache.encode(list));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(currency);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Currency deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serializeCached() {
+        return currencyJsonCache.encode(currency);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<Currency> deserializeList() throws IOException {
+        return listReader.readValue(listJson);
+    }
+
+    @Benchmark
+    public byte[] serializeListCached() {
+        return currencyJsonCache.encode(list);
+    }
+
+    @Benchmark
+    public byte[] listPageCached() {
+        return currencyJsonCache.getPage("page", 1);
+    }
+}
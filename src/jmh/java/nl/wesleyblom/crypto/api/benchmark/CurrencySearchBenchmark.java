@@ -0,0 +1,83 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.search.CurrencySearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of typeahead searches from four threads over currencies with generated names
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CurrencySearchBenchmark {
+
+    private static final String[] SYLLABLES = {"bit", "co", "in", "eth", "er", "eum", "rip", "ple", "lite", "do",
+        "ge", "ster", "ca", "rda", "no", "mon", "ero", "chain", "link", "sol", "ana", "tron", "pol", "ka"};
+
+    @Param({"1000", "10000"})
+    private int currencies;
+
+    private CurrencySearchIndex index;
+
+    @Setup
+    public void setup() {
+        index = new CurrencySearchIndex(null);
+        for (int i = 0; i < currencies; i++) {
+            Currency currency = new Currency.CurrencyBuilder()
+                .withTicker(Currencies.ticker(i))
+                .withName(name(i))
+                .withMarketCap(1_000_000_000L - i)
+                .build();
+            currency.setVersion(i + 1);
+            index.onCurrencyChanged(CurrencyChangedEvent.created(currency));
+        }
+    }
+
+    @Benchmark
+    public List<Currency> shortPrefix() {
+        return index.search("bi", 10);
+    }
+
+    @Benchmark
+    public List<Currency> prefixWithTypo() {
+        return index.search("etherum", 10);
+    }
+
+    @Benchmark
+    public List<Currency> fullName() {
+        return index.search(name(4242 % currencies), 10);
+    }
+
+    /**
+     * @return Returns a name of two words of syllables, at most 25 characters
+     */
+    private static String name(int index) {
+        int first = index % SYLLABLES.length;
+        int second = (index / SYLLABLES.length) % SYLLABLES.length;
+        int third = (index / SYLLABLES.length / SYLLABLES.length) % SYLLABLES.length;
+        return SYLLABLES[first] + SYLLABLES[second] + " " + SYLLABLES[third] + SYLLABLES[(first + third) % SYLLABLES.length];
+    }
+}
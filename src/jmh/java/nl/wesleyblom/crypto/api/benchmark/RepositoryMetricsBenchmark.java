@@ -0,0 +1,107 @@
+package nl.wesleyblom.crypto.api.benchmark;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.metrics.RepositoryMetrics;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Benchmarks of the timing advice {@link RepositoryMetrics} adds to repositories
+ *
+ * Both benchmarks call the same JDK proxy around an in-memory repository, so the difference between them is the
+ * overhead of the advice: looking up the timers of the method and recording the duration. The registry 'prometheus'
+ * records a percentiles histogram like the application does.
+ *
+ * @author Wesley
+ * @date 2019-04-09
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryMetricsBenchmark {
+
+    @Param({"simple", "prometheus"})
+    private String registry;
+
+    private TickerRepository plain;
+    private TickerRepository timed;
+    private String ticker = "XRP";
+
+    @Setup
+    public void setup() {
+        plain = proxy();
+
+        MeterRegistry meterRegistry = registry.equals("prometheus")
+            ? histograms(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT))
+            : new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(
+            Collections.singletonMap("meterRegistry", meterRegistry));
+        timed = (TickerRepository) new RepositoryMetrics(beanFactory.getBeanProvider(MeterRegistry.class))
+            .postProcessAfterInitialization(proxy(), "tickerRepository");
+    }
+
+    @Benchmark
+    public Optional<Currency> findWithoutTiming() {
+        return plain.findByTicker(ticker);
+    }
+
+    @Benchmark
+    public Optional<Currency> findWithTiming() {
+        return timed.findByTicker(ticker);
+    }
+
+    private static TickerRepository proxy() {
+        Currency currency = Currencies.currency(0);
+        MethodInterceptor repository = invocation -> Optional.of(currency);
+        ProxyFactory proxyFactory = new ProxyFactory(TickerRepository.class, repository);
+        return (TickerRepository) proxyFactory.getProxy();
+    }
+
+    /**
+     * Publishes a percentiles histogram for every timer, like management.metrics.distribution.percentiles-histogram
+     */
+    private static MeterRegistry histograms(MeterRegistry meterRegistry) {
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        return meterRegistry;
+    }
+
+    /**
+     * Repository with a single lookup, implemented by the proxy
+     */
+    public interface TickerRepository extends Repository<Currency, String> {
+
+        Optional<Currency> findByTicker(String ticker);
+    }
+}
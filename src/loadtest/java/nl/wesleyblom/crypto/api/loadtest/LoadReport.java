@@ -0,0 +1,110 @@
+package nl.wesleyblom.crypto.api.loadtest;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency and error counts of one load test run, per {@link Operation} and in total
+ *
+ * Latencies are in microseconds and measured from the moment a request was scheduled to be sent, not from the
+ * moment it was sent, so time spent waiting behind slow requests is part of the latency.
+ *
+ * @author Wesley
+ * @date 2019-03-22
+ */
+
+final class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+    private final Histogram total = new Histogram(3);
+    private final long elapsedNanos;
+    private final int targetRate;
+
+    /**
+     * Constructor for the report
+     *
+     * @param elapsedNanos The time from the first scheduled request until the last response
+     * @param targetRate The number of requests per second that were scheduled
+     */
+    LoadReport(long elapsedNanos, int targetRate) {
+        this.elapsedNanos = elapsedNanos;
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * Adds the results of an {@link Operation}
+     *
+     * @param operation The {@link Operation} the results are of
+     * @param histogram The latencies of all requests, including failed ones
+     * @param errorCount The number of requests that failed or returned an error status
+     */
+    void add(Operation operation, Histogram histogram, long errorCount) {
+        latencies.put(operation, histogram);
+        errors.put(operation, errorCount);
+        total.add(histogram);
+    }
+
+    /**
+     * @return Returns the number of requests that failed or returned an error status
+     */
+    long errorCount() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Prints the summary table
+     *
+     * @param out The stream to print to
+     */
+    void print(PrintStream out) {
+        out.printf("Target rate %d req/s, ran %.1f s%n", targetRate, elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        out.printf("%-8s %10s %10s %10s %10s %10s %10s %10s%n",
+            "op", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            printRow(out, entry.getKey().name().toLowerCase(), entry.getValue(), errors.get(entry.getKey()));
+        }
+        printRow(out, "total", total, errorCount());
+    }
+
+    /**
+     * Writes the summary table and the full percentile distribution of every {@link Operation} in milliseconds
+     *
+     * @param directory The directory to write report.txt and the .hgrm files to
+     * @throws FileNotFoundException when a file can not be created
+     */
+    void write(File directory) throws FileNotFoundException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Can not create report directory " + directory);
+        }
+        try (PrintStream out = new PrintStream(new File(directory, "report.txt"))) {
+            print(out);
+        }
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            try (PrintStream out = new PrintStream(new File(directory, entry.getKey().name().toLowerCase() + ".hgrm"))) {
+                entry.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        try (PrintStream out = new PrintStream(new File(directory, "total.hgrm"))) {
+            total.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private void printRow(PrintStream out, String name, Histogram histogram, long errorCount) {
+        long count = histogram.getTotalCount();
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.printf("%-8s %10d %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+            name, count, errorCount, count / seconds,
+            histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+            histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+            histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+            histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+}
@@ -0,0 +1,268 @@
+package nl.wesleyblom.crypto.api.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import nl.wesleyblom.crypto.api.Application;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StringUtils;
+
+/**
+ * Open-loop load test of the currency API
+ *
+ * Boots {@link Application} on a random port with an in-memory H2 database and sends requests at a fixed arrival rate,
+ * regardless of how fast responses come back. Currencies are seeded through the API, so the in-memory aggregates,
+ * search index and versions of the application know them like any other written currency. Every latency is measured from the moment the request
+ * was scheduled, so a stalled server shows up in the percentiles instead of silently lowering the request rate.
+ *
+ * Configured through system properties:
+ * loadtest.rate (requests per second), loadtest.duration and loadtest.warmup (seconds), loadtest.mix (weights per
+ * {@link Operation}), loadtest.rows (seeded currencies), loadtest.threads (concurrent connections),
+ * loadtest.profiles (Spring profiles of the application) and loadtest.report (directory for the report).
+ *
+ * @author Wesley
+ * @date 2019-03-22
+ */
+
+public class LoadTest {
+
+    private static final int SEED_BATCH_SIZE = 10000;
+
+    private final String baseUrl;
+    private final Mix mix;
+    private final int rows;
+    private final int rate;
+    private final int threads;
+
+    /**
+     * Constructor for the load test
+     *
+     * @param baseUrl The URL of the running application
+     * @param mix The {@link Operation} objects to send
+     * @param rows The number of seeded currencies
+     * @param rate The number of requests per second
+     * @param threads The maximum number of requests in flight
+     */
+    LoadTest(String baseUrl, Mix mix, int rows, int rate, int threads) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.rows = rows;
+        this.rate = rate;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 500);
+        int duration = Integer.getInteger("loadtest.duration", 30);
+        int warmup = Integer.getInteger("loadtest.warmup", 15);
+        int rows = Integer.getInteger("loadtest.rows", 10000);
+        int threads = Integer.getInteger("loadtest.threads", 64);
+        Mix mix = Mix.parse(System.getProperty("loadtest.mix", "get:90,list:8,put:2"));
+        String profiles = System.getProperty("loadtest.profiles", "");
+        File reportDirectory = new File(System.getProperty("loadtest.report", "target/loadtest"));
+
+        System.setProperty("http.maxConnections", Integer.toString(threads));
+
+        // Arguments, since default properties would lose against application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+            .profiles(StringUtils.commaDelimitedListToStringArray(profiles))
+            .run(
+                "--server.port=0",
+                "--server.tomcat.max-threads=" + Math.max(threads, 200),
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--logging.level.nl.wesleyblom.crypto.api=WARN");
+
+        long errors;
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTest loadTest = new LoadTest("http://localhost:" + port, mix, rows, rate, threads);
+            loadTest.seed();
+
+            System.out.printf("Seeded %d currencies, warming up for %d s with mix %s and profiles [%s]%n", rows, warmup, mix, profiles);
+            loadTest.run(warmup);
+            System.out.printf("Running for %d s at %d req/s%n", duration, rate);
+            LoadReport report = loadTest.run(duration);
+
+            report.print(System.out);
+            report.write(reportDirectory);
+            System.out.println("Report written to " + reportDirectory.getAbsolutePath());
+            errors = report.errorCount();
+        } finally {
+            context.close();
+        }
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    /**
+     * @param index The index of the currency, below 36^5
+     * @return Returns the unique five character ticker of the seeded currency with the given index
+     */
+    static String ticker(int index) {
+        String ticker = Integer.toString(index, Character.MAX_RADIX).toUpperCase();
+        return "00000".substring(ticker.length()) + ticker;
+    }
+
+    /**
+     * Sends requests at the configured rate for the given time and waits for all of them to complete
+     *
+     * @param seconds The number of seconds to schedule requests for
+     * @return Returns the {@link LoadReport} of the run
+     * @throws InterruptedException when interrupted while scheduling or waiting
+     */
+    LoadReport run(int seconds) throws InterruptedException {
+        Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new AtomicLong());
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long count = (long) rate * seconds;
+        Random random = new Random();
+        AtomicLong lastCompletion = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            long intended = start + i * interval;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = mix.pick(random);
+            workers.execute(() -> {
+                boolean success = send(operation);
+                long now = System.nanoTime();
+                latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(now - intended));
+                if (!success) {
+                    errors.get(operation).incrementAndGet();
+                }
+                lastCompletion.accumulateAndGet(now, Math::max);
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+
+        LoadReport report = new LoadReport(Math.max(1, lastCompletion.get() - start), rate);
+        for (Operation operation : mix.operations()) {
+            report.add(operation, latencies.get(operation).getIntervalHistogram(), errors.get(operation).get());
+        }
+        return report;
+    }
+
+    /**
+     * Sends one request and reads the complete response, so the connection can be reused
+     *
+     * @return Returns true when the response status is below 400
+     */
+    private boolean send(Operation operation) {
+        Random random = ThreadLocalRandom.current();
+        String path = operation.path(random, rows);
+        String body = operation.body(random, path);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(operation.method());
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = connection.getResponseCode();
+            drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            return status < 400;
+        } catch (IOException e) {
+            if (connection != null) {
+                try {
+                    drain(connection.getErrorStream());
+                } catch (IOException ignored) {
+                    connection.disconnect();
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[8192];
+            while (stream.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    /**
+     * Creates the currencies through the batch endpoint, or one by one when the batch endpoint is not served,
+     * like on the reactive stack
+     *
+     * @throws IOException when the application does not create a currency
+     */
+    private void seed() throws IOException {
+        for (int from = 0; from < rows; from += SEED_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder();
+            for (int i = from; i < Math.min(rows, from + SEED_BATCH_SIZE); i++) {
+                body.append(seedJson(i)).append('\n');
+            }
+            int status = post("/api/currencies/batch", "application/x-ndjson", body.toString());
+            if (status == 404 || status == 405) {
+                for (int i = from; i < rows; i++) {
+                    expectCreated(post("/api/currencies", "application/json", seedJson(i)), i);
+                }
+                return;
+            }
+            if (status != 200) {
+                throw new IOException("Seeding currencies from " + ticker(from) + " failed with status " + status);
+            }
+        }
+    }
+
+    private static String seedJson(int index) {
+        return "{\"ticker\":\"" + ticker(index) + "\",\"name\":\"Coin " + ticker(index) + "\",\"numberOfCoins\":"
+            + (1000000L + index) + ",\"marketCap\":" + (1000000000L - index) + "}";
+    }
+
+    private static void expectCreated(int status, int index) throws IOException {
+        if (status != 201) {
+            throw new IOException("Seeding currency " + ticker(index) + " failed with status " + status);
+        }
+    }
+
+    private int post(String path, String contentType, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", contentType);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        return status;
+    }
+}
@@ -0,0 +1,93 @@
+package nl.wesleyblom.crypto.api.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted mix of {@link Operation} objects, parsed from a list like {@code get:90,list:8,put:2}
+ *
+ * @author Wesley
+ * @date 2019-03-22
+ */
+
+final class Mix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    private Mix(Map<Operation, Integer> weights) {
+        operations = weights.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        totalWeight = total;
+    }
+
+    /**
+     * @param mix The operations and their weights, for example {@code get:90,list:8,put:2}
+     * @return Returns the parsed {@link Mix}
+     * @throws IllegalArgumentException when an operation is unknown or no weight is positive
+     */
+    static Mix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] operationAndWeight = part.split(":");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry [" + part + "], expected operation:weight");
+            }
+            int weight = Integer.parseInt(operationAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of [" + operationAndWeight[0] + "] can not be negative");
+            }
+            if (weight > 0) {
+                weights.merge(Operation.fromName(operationAndWeight[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix [" + mix + "] has no operation with a positive weight");
+        }
+        return new Mix(weights);
+    }
+
+    /**
+     * @param random The random to pick with
+     * @return Returns an {@link Operation} with a probability proportional to its weight
+     */
+    Operation pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * @return Returns the {@link Operation} objects with a positive weight
+     */
+    List<Operation> operations() {
+        return Arrays.asList(operations);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(operations[i].name().toLowerCase()).append(':').append(cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return builder.toString();
+    }
+}
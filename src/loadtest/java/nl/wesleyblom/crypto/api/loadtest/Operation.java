@@ -0,0 +1,91 @@
+package nl.wesleyblom.crypto.api.loadtest;
+
+import java.util.Random;
+
+/**
+ * The requests the load test sends, each against a random {@link nl.wesleyblom.crypto.api.model.Currency} of the
+ * seeded table
+ *
+ * @author Wesley
+ * @date 2019-03-22
+ */
+
+enum Operation {
+
+    /**
+     * GET of a single ticker
+     */
+    GET("GET") {
+        @Override
+        String path(Random random, int rows) {
+            return "/api/currencies/" + LoadTest.ticker(random.nextInt(rows));
+        }
+    },
+
+    /**
+     * GET of one of the first list pages
+     */
+    LIST("GET") {
+        @Override
+        String path(Random random, int rows) {
+            return "/api/currencies?page=" + random.nextInt(Math.max(1, Math.min(rows / 10, MAX_LIST_PAGES)));
+        }
+    },
+
+    /**
+     * PUT with a new market cap for a ticker
+     */
+    PUT("PUT") {
+        @Override
+        String path(Random random, int rows) {
+            return "/api/currencies/" + LoadTest.ticker(random.nextInt(rows));
+        }
+
+        @Override
+        String body(Random random, String path) {
+            String ticker = path.substring(path.lastIndexOf('/') + 1);
+            return "{\"ticker\":\"" + ticker + "\",\"name\":\"Coin " + ticker + "\",\"numberOfCoins\":1000000,\"marketCap\":"
+                + random.nextInt(Integer.MAX_VALUE) + "}";
+        }
+    };
+
+    private static final int MAX_LIST_PAGES = 100;
+
+    private final String method;
+
+    Operation(String method) {
+        this.method = method;
+    }
+
+    /**
+     * @return Returns the HTTP method of the request
+     */
+    String method() {
+        return method;
+    }
+
+    /**
+     * @param random The random to pick the {@link nl.wesleyblom.crypto.api.model.Currency} with
+     * @param rows The number of seeded rows
+     * @return Returns the path and query of the request
+     */
+    abstract String path(Random random, int rows);
+
+    /**
+     * @param random The random to pick values with
+     * @param path The path of the request
+     * @return Returns the JSON body of the request, null when the request has no body
+     */
+    String body(Random random, String path) {
+        return null;
+    }
+
+    /**
+     * @param name The name of the operation, case insensitive
+     * @return Returns the matching {@link Operation}
+     * @throws IllegalArgumentException when no {@link Operation} has the given name
+     */
+    static Operation fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
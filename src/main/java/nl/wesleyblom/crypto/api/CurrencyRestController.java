@@ -1,18 +1,40 @@
 package nl.wesleyblom.crypto.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
-import javax.transaction.Transactional;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import nl.wesleyblom.crypto.api.batch.BatchItemResult;
+import nl.wesleyblom.crypto.api.batch.CurrencyBatchService;
+import nl.wesleyblom.crypto.api.batch.MalformedBatchException;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CompressedPageCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCborCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.export.CurrencyExporter;
 import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.paging.SeekCursor;
+import nl.wesleyblom.crypto.api.stats.CurrencyAggregates;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
 import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -22,60 +44,211 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST endpoint with CRUD operations for {@link Currency}
+ * With the profile 'reactive' the API is served by {@code nl.wesleyblom.crypto.api.reactive.CurrencyHandler} instead.
  *
  * @author Wesley
  * @date 2019-02-12
  */
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/currencies")
 public class CurrencyRestController {
 
     private static final Logger logger = LoggerFactory.getLogger(CurrencyRestController.class);
 
+    /**
+     * Response header containing the cursor of the next keyset page
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Media type for newline delimited JSON
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Media type for CBOR (RFC 7049), served instead of JSON when preferred in the Accept header
+     */
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    private static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
     @Autowired
     CurrencyRepository currencyRepository;
 
+    @Autowired
+    CurrencyCache currencyCache;
+
+    @Autowired
+    CurrencyBatchService currencyBatchService;
+
+    @Autowired
+    CurrencyExporter currencyExporter;
+
+    @Autowired
+    CurrencyVersions currencyVersions;
+
+    @Autowired
+    CurrencyJsonCache currencyJsonCache;
+
+    @Autowired
+    CurrencyCborCache currencyCborCache;
+
+    @Autowired
+    CompressedPageCache compressedPageCache;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    CurrencyAggregates currencyAggregates;
+
     /**
      * Endpoint to retrieve all {@link Currency} objects
      * Paging and sorting are possible due to the {@param Pageable}
      *
+     * Keyset paging is used instead when one of the parameters seek, cursor or after is given. Keyset pages never
+     * execute a count query and cost the same for every page, the cursor for the next page is returned in the
+     * {@link #NEXT_CURSOR_HEADER} header.
+     *
+     * Offset pages are served from the {@link CurrencyJsonCache} until any {@link Currency} is written, gzip compressed
+     * from the {@link CompressedPageCache} when the Accept-Encoding header allows it. Concurrent requests for a page
+     * that is not cached share a single query.
+     *
+     * Responses are CBOR instead of JSON when the Accept header prefers {@link #APPLICATION_CBOR_VALUE}.
+     *
+     * With minCap or maxCap the offset page is taken from the {@link Currency} objects within the market cap range,
+     * ordered by market cap highest first, and served from the in-memory index of {@link CurrencyAggregates}.
+     *
+     * @param seek Starts keyset paging with the given order, either 'ticker' or 'marketCap'
+     * @param cursor Continues keyset paging from the opaque cursor returned with the previous page
+     * @param after Continues keyset paging ordered by ticker directly after the given ticker
+     * @param minCap The lowest market cap to return, inclusive
+     * @param maxCap The highest market cap to return, inclusive
+     * @param request The request, used to answer conditional requests on the ETag of the listing
      * @return
-     *       {@link HttpStatus#OK} {@link ResponseEntity<List<Currency>>} containing all {@link Currency} object matching the {@link Pageable} options
+     *       {@link HttpStatus#OK} with the JSON or CBOR of all {@link Currency} object matching the {@link Pageable} options
      *       {@link HttpStatus#NOT_FOUND} when no {@link Currency} (matching {@link Pageable} options) can be found
+     *       {@link HttpStatus#BAD_REQUEST} when the seek order or cursor is invalid, the sort property is unknown, or
+     *       the market cap range is empty or combined with keyset paging
+     *       {@link HttpStatus#NOT_MODIFIED} when no {@link Currency} has been written since the ETag in If-None-Match
      */
     @GetMapping
-    public ResponseEntity<List<Currency>> getAll(@PageableDefault(size = 10, sort = "ticker") Pageable pageable) {
-        Page<Currency> page = currencyRepository.findAll(pageable);
+    public ResponseEntity<byte[]> getAll(@PageableDefault(size = 10, sort = "ticker") Pageable pageable,
+        @RequestParam(required = false) String seek,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) Long minCap,
+        @RequestParam(required = false) Long maxCap,
+        WebRequest request) {
+
+        boolean cbor = prefersCbor(request);
+
+        // The index is updated after the version counter, so range pages are not tagged with it
+        if (minCap != null || maxCap != null) {
+            if (seek != null || cursor != null || after != null) {
+                logger.debug("Request received market cap range with keyset paging");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+            return getRangePage(minCap == null ? Long.MIN_VALUE : minCap, maxCap == null ? Long.MAX_VALUE : maxCap, pageable, cbor);
+        }
+
+        boolean keyset = seek != null || cursor != null || after != null;
+        boolean gzip = !keyset && CompressedPageCache.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        long version = currencyVersions.current();
+        String etag = tag(currencyVersions.collectionTag(version), cbor);
+        if (request.checkNotModified(gzip ? suffix(etag, "gzip") : etag)) {
+            logger.debug("Request received all items - not modified");
+            return null;
+        }
+
+        if (keyset) {
+            return getSeekPage(seek, cursor, after, pageable.getPageSize(), cbor);
+        }
+
+        String key = pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort() + (cbor ? ":cbor" : "");
+        byte[] body;
+        try {
+            body = currencyJsonCache.getPage(key, version, () -> {
+                Page<Currency> page = currencyRepository.findAll(pageable);
+                return page.getContent().isEmpty() ? null : encode(page.getContent(), cbor);
+            });
+        } catch (PropertyReferenceException e) {
+            logger.debug("Request received all items with unknown sort [{}]", e.getPropertyName());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
 
-        if (page.getContent().size() > 0) {
-            logger.info("Request received all items. - serving");
-            return ResponseEntity.status(HttpStatus.OK).body(page.getContent());
+        if (body != null) {
+            logger.debug("Request received all items. - serving");
+            return getOffsetPage(key, version, body, cbor, gzip);
         }
 
-        logger.info("Request received all items - none found");
+        logger.debug("Request received all items - none found");
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
     }
 
+    /**
+     * Endpoint to export all {@link Currency} objects as newline delimited JSON, ordered by ticker
+     * Rows are written to the response while they are read from the database, nothing is collected in memory.
+     *
+     * @param response The response to stream the {@link Currency} objects to
+     * @throws IOException when writing to the response fails
+     */
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportCurrencies(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+
+        long count = currencyExporter.writeTo(response.getOutputStream());
+        logger.debug("Request received export - served [{}] items", count);
+    }
+
     /**
      * Endpoint to retrieve a specific {@link Currency} specified by ticker
+     * The version of the {@link Currency} is sent as ETag. A request with a matching If-None-Match header is answered
+     * from a version lookup, without loading or serializing the {@link Currency}.
+     * The body is written from the {@link CurrencyJsonCache}, a {@link Currency} is only serialized again after it has been written.
+     * CBOR is served from the {@link CurrencyCborCache} instead when the Accept header prefers {@link #APPLICATION_CBOR_VALUE}.
      *
      * @param ticker The short name of the {@link Currency} to be returned
-     * @return Returns {@link HttpStatus#OK} with {@link Currency} body when a matching object has been found
+     * @param request The request, used to answer conditional requests
+     * @return Returns {@link HttpStatus#OK} with the JSON or CBOR of the {@link Currency} when a matching object has been found
+     *         Returns {@link HttpStatus#NOT_MODIFIED} when the {@link Currency} has not changed since the ETag in If-None-Match
      *         Returns {@link HttpStatus#NOT_FOUND} when no {@link Currency}  with matching ticker can be found
      */
     @GetMapping("/{ticker}")
-    public ResponseEntity<Currency> getCurrency(@PathVariable String ticker) {
-        Optional<Currency> currency = currencyRepository.findByTicker(ticker);
+    public ResponseEntity<byte[]> getCurrency(@PathVariable String ticker, WebRequest request) {
+        boolean cbor = prefersCbor(request);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Currency> cached = currencyCache.getIfPresent(ticker);
+            if (cached != null && !cached.isPresent()) {
+                logger.debug("Request for unknown ticker [{}].", ticker);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            }
+            Optional<Long> version = cached != null
+                ? cached.map(Currency::getVersion)
+                : currencyRepository.findVersionByTicker(ticker);
+            if (version.isPresent() && request.checkNotModified(tag(currencyVersions.tag(version.get()), cbor))) {
+                logger.debug("Request for known ticker [{}] - not modified.", ticker);
+                return null;
+            }
+        }
+
+        Optional<Currency> currency = currencyCache.findByTicker(ticker);
         if (currency.isPresent()) {
-            logger.info("Request for known ticker [{}].", ticker);
-            return ResponseEntity.ok(currency.get());
+            logger.debug("Request for known ticker [{}].", ticker);
+            return ok(cbor)
+                .eTag(tag(currencyVersions.tag(currency.get().getVersion()), cbor))
+                .body(cbor ? currencyCborCache.encode(currency.get()) : currencyJsonCache.encode(currency.get()));
         }
-        logger.info("Request for unknown ticker [{}].", ticker);
+        logger.debug("Request for unknown ticker [{}].", ticker);
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
     }
 
@@ -84,35 +257,67 @@ public class CurrencyRestController {
      * Endpoint to create a new currency
      *
      * @param currency  A JSON representation of {@link Currency} with the information to be created
+     * @param request The request, its Accept header decides between JSON and CBOR and their ETags
      * @return Returns {@link HttpStatus#BAD_REQUEST} when JSON body is invalid
      *         Returns {@link HttpStatus#CONFLICT} when {@link Currency} with ther same ticker already exist
      *         Returns {@link HttpStatus#CREATED} when {@link Currency} has been created
      */
     @PostMapping
-    public ResponseEntity createCurrency(@Valid @RequestBody Currency currency, BindingResult bindingResult) {
+    public ResponseEntity createCurrency(@Valid @RequestBody Currency currency, BindingResult bindingResult,
+        WebRequest request) {
         if ( bindingResult.hasErrors() ) {
-            logger.info("Bad request to create new Currency: [{}]", currency.toString());
+            logger.debug("Bad request to create new Currency: [{}]", currency);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
 
-        logger.info("Request to create new Currency: [{}]", currency.toString());
+        logger.debug("Request to create new Currency: [{}]", currency);
 
-        if (currencyRepository.existsByTicker(currency.getTicker())) {
-            logger.info("Currency with ticker [{}] already exists", currency.getTicker());
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(currency);
+        currency.setVersion(currencyVersions.next());
+        if (!insertIfAbsent(currency)) {
+            logger.debug("Currency with ticker [{}] already exists", currency.getTicker());
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(currency);
         }
 
-        currencyRepository.save(currency);
-        logger.info("Currency with ticker [{}] created.", currency.getTicker());
+        currencyVersions.written();
+        currencyCache.evict(currency.getTicker());
+        eventPublisher.publishEvent(CurrencyChangedEvent.created(currency));
+        logger.debug("Currency with ticker [{}] created.", currency.getTicker());
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(currency);
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+            .eTag(tag(currencyVersions.tag(currency.getVersion()), prefersCbor(request)))
+            .body(currency);
+    }
+
+    /**
+     * Endpoint to create many currencies in one request
+     * Entries are validated like {@link #createCurrency(Currency, BindingResult, WebRequest)} and written in chunks,
+     * entries before a malformed part of the body have already been written when {@link HttpStatus#BAD_REQUEST} is
+     * returned.
+     *
+     * @param body A JSON array or newline delimited JSON stream of {@link Currency} objects
+     * @return Returns {@link HttpStatus#OK} with a {@link BatchItemResult} per entry, telling whether it was created,
+     *         conflicted with an existing ticker or was invalid
+     *         Returns {@link HttpStatus#BAD_REQUEST} when the body is not well formed JSON, with a {@link BatchItemResult}
+     *         per entry before the malformed part followed by an invalid one for the malformed part
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<List<BatchItemResult>> createCurrencies(InputStream body) {
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(currencyBatchService.createAll(body));
+        } catch (MalformedBatchException e) {
+            logger.debug("Bad request to create batch of currencies: [{}]", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getResults());
+        }
     }
 
     /**
-     * Endpoint to update an existing {@link Currency} The {@link Currency} will be recreated when the ticker has been changed.
+     * Endpoint to update an existing {@link Currency} The {@link Currency} will be renamed when the ticker has been changed.
+     * Both an update and a rename are a single statement.
      *
      * @param ticker The short name of the {@link Currency} to be updated
      * @param currency  A JSON representation of {@link Currency} with the new information
+     * @param request The request, its Accept header decides between JSON and CBOR and their ETags
      *
      * @return Returns {@link HttpStatus#BAD_REQUEST} when JSON body is invalid
      *         Returns {@link HttpStatus#CONFLICT} when {@link Currency} with the new ticker already exist
@@ -120,35 +325,40 @@ public class CurrencyRestController {
      *         Returns {@link HttpStatus#NOT_FOUND} when {@link Currency} does not exist
      */
     @PutMapping("/{ticker}")
-    @Transactional
-    public ResponseEntity updateCurrency(@PathVariable String ticker, @Valid @RequestBody Currency currency, BindingResult bindingResult) {
+    public ResponseEntity updateCurrency(@PathVariable String ticker, @Valid @RequestBody Currency currency,
+        BindingResult bindingResult, WebRequest request) {
         if ( bindingResult.hasErrors() ) {
-            logger.info("Bad request to update Currency with Ticker [{}]: [{}]", ticker, currency.toString());
+            logger.debug("Bad request to update Currency with Ticker [{}]: [{}]", ticker, currency);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
 
-        logger.info("Request to update Currency with ticker [{}]: [{}]", ticker, currency.toString());
-
-        if (currencyRepository.existsByTicker(ticker)) {
-
-            if (!currency.getTicker().equalsIgnoreCase(ticker)) {
+        logger.debug("Request to update Currency with ticker [{}]: [{}]", ticker, currency);
 
-                if (currencyRepository.existsByTicker(currency.getTicker())) {
-                    logger.info("Currency with ticker [{}] already exists", currency.getTicker());
-                    return ResponseEntity.status(HttpStatus.CONFLICT).body(currency);
-                }
-
-                currencyRepository.deleteByTicker(ticker);
-                logger.info("Currency with ticker [{}] deleted.", ticker);
-            }
-
-            currencyRepository.save(currency);
-            logger.info("Currency with ticker [{}] updated.", currency.getTicker());
+        currency.setVersion(currencyVersions.next());
+        int updated;
+        try {
+            updated = currency.getTicker().equals(ticker)
+                ? currencyRepository.updateByTicker(currency)
+                : currencyRepository.renameTicker(ticker, currency);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Currency with ticker [{}] already exists", currency.getTicker());
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(currency);
+        }
 
-            return ResponseEntity.status(HttpStatus.OK).body(currency);
+        if (updated == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(currency);
         }
 
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(currency);
+        currencyVersions.written();
+        currencyCache.evict(ticker);
+        currencyCache.evict(currency.getTicker());
+        eventPublisher.publishEvent(CurrencyChangedEvent.updated(ticker, currency));
+        logger.debug("Currency with ticker [{}] updated.", currency.getTicker());
+
+        return ResponseEntity.status(HttpStatus.OK)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+            .eTag(tag(currencyVersions.tag(currency.getVersion()), prefersCbor(request)))
+            .body(currency);
     }
 
     /**
@@ -159,17 +369,143 @@ public class CurrencyRestController {
      *         Returns {@link HttpStatus#NOT_FOUND} when {@link Currency} does not exist
      */
     @DeleteMapping("/{ticker}")
-    @Transactional
-    public ResponseEntity<Currency> updateCurrency(@PathVariable String ticker) {
-        logger.info("Request to delete Currency with ticker [{}]", ticker);
+    public ResponseEntity<Currency> deleteCurrency(@PathVariable String ticker) {
+        logger.debug("Request to delete Currency with ticker [{}]", ticker);
 
-        if (currencyRepository.existsByTicker(ticker)) {
-            currencyRepository.deleteByTicker(ticker);
-            logger.info("Currency with ticker [{}] deleted.", ticker);
-            return ResponseEntity.status(HttpStatus.OK).body(null);
+        if (currencyRepository.deleteTicker(ticker) == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
 
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        // Taken after the delete, so writes of the deleted row that report late carry a lower version
+        long version = currencyVersions.next();
+        currencyVersions.written();
+        currencyCache.evict(ticker);
+        eventPublisher.publishEvent(CurrencyChangedEvent.deleted(ticker, version));
+        logger.debug("Currency with ticker [{}] deleted.", ticker);
+        return ResponseEntity.status(HttpStatus.OK).body(null);
+    }
+
+    /**
+     * Creates the {@link Currency} unless its ticker is taken, also when a concurrent request took it in between
+     *
+     * @return true when the {@link Currency} has been created
+     */
+    private boolean insertIfAbsent(Currency currency) {
+        try {
+            return currencyRepository.insertIfAbsent(currency) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private ResponseEntity<byte[]> getRangePage(long minCap, long maxCap, Pageable pageable, boolean cbor) {
+        if (minCap > maxCap) {
+            logger.debug("Request received empty market cap range [{}, {}]", minCap, maxCap);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        List<Currency> currencies = currencyAggregates.rangeByMarketCap(minCap, maxCap, pageable.getOffset(), pageable.getPageSize());
+        if (currencies.isEmpty()) {
+            logger.debug("Request received market cap range [{}, {}] - none found", minCap, maxCap);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+
+        logger.debug("Request received market cap range [{}, {}] - serving", minCap, maxCap);
+        return ok(cbor).body(encode(currencies, cbor));
+    }
+
+    private ResponseEntity<byte[]> getSeekPage(String seek, String cursor, String after, int size, boolean cbor) {
+        SeekCursor seekCursor;
+        try {
+            if (cursor != null) {
+                seekCursor = SeekCursor.decode(cursor);
+            } else if (after != null) {
+                seekCursor = SeekCursor.afterTicker(after);
+            } else {
+                seekCursor = SeekCursor.first(SeekCursor.Order.fromName(seek));
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Request received keyset page with invalid cursor [{}]", cursor);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        // One extra row tells whether there is a next page, without counting the table
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Currency> rows = seekCursor.getOrder() == SeekCursor.Order.TICKER
+            ? currencyRepository.findPageAfterTicker(seekCursor.getTicker(), limit)
+            : currencyRepository.findPageAfterMarketCap(seekCursor.getMarketCap(), seekCursor.getTicker(), limit);
+
+        if (rows.isEmpty()) {
+            logger.debug("Request received keyset page - none found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+
+        logger.debug("Request received keyset page - serving");
+        if (rows.size() > size) {
+            List<Currency> content = rows.subList(0, size);
+            return ok(cbor)
+                .header(NEXT_CURSOR_HEADER, seekCursor.after(content.get(size - 1)).encode())
+                .body(encode(content, cbor));
+        }
+        return ok(cbor).body(encode(rows, cbor));
+    }
+
+    private ResponseEntity<byte[]> getOffsetPage(String key, long version, byte[] body, boolean cbor, boolean gzip) {
+        ResponseEntity.BodyBuilder response = ok(cbor).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(body);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(compressedPageCache.gzip(key, version, body));
+    }
+
+    private byte[] encode(List<Currency> currencies, boolean cbor) {
+        return cbor ? currencyCborCache.encode(currencies) : currencyJsonCache.encode(currencies);
+    }
+
+    private static ResponseEntity.BodyBuilder ok(boolean cbor) {
+        return ResponseEntity.status(HttpStatus.OK)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+            .contentType(cbor ? APPLICATION_CBOR : MediaType.APPLICATION_JSON_UTF8);
+    }
+
+    /**
+     * @return Returns true when the Accept header ranks CBOR above JSON, JSON is the default
+     */
+    private static boolean prefersCbor(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || !accept.contains(APPLICATION_CBOR_VALUE)) {
+            return false;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() > 0 && APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the ETag of the representation, CBOR has its own strong ETags
+     */
+    private static String tag(String etag, boolean cbor) {
+        return cbor ? suffix(etag, "cbor") : etag;
+    }
+
+    /**
+     * @return Returns the ETag with the suffix added inside its quotes
+     */
+    private static String suffix(String etag, String suffix) {
+        return etag.substring(0, etag.length() - 1) + "+" + suffix + "\"";
     }
 
 }
@@ -0,0 +1,89 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the {@link AdmissionInterceptor} for the currency API
+ *
+ * The limits of reads and writes are read from {@code currency.admission.read.*} and
+ * {@code currency.admission.write.*}: initial-limit, min-limit and max-limit. The stream of changes is not limited.
+ * The limit, the requests in flight and the admitted and rejected requests are published as admission.limit,
+ * admission.in-flight and admission.requests, tagged with the type read or write.
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+@Configuration
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+    private final Environment environment;
+    private final ConcurrencyLimiter reads;
+    private final ConcurrencyLimiter writes;
+
+    /**
+     * Constructor for the configuration
+     *
+     * @param environment The environment to read the limits from
+     */
+    public AdmissionConfiguration(Environment environment) {
+        this.environment = environment;
+        this.reads = limiter(environment, "read", 20, 4, 200);
+        this.writes = limiter(environment, "write", 10, 2, 50);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!environment.getProperty("currency.admission.enabled", Boolean.class, true)) {
+            return;
+        }
+
+        long retryAfterSeconds = environment.getProperty("currency.admission.retry-after-seconds", Long.class, 1L);
+        registry.addInterceptor(new AdmissionInterceptor(reads, writes, retryAfterSeconds))
+            .addPathPatterns("/api/currencies/**")
+            .excludePathPatterns("/api/currencies/stream");
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics() {
+        return registry -> {
+            bind(registry, "read", reads);
+            bind(registry, "write", writes);
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String type, ConcurrencyLimiter limiter) {
+        Gauge.builder("admission.limit", limiter, ConcurrencyLimiter::getLimit)
+            .tag("type", type)
+            .description("Number of requests admitted at the same time")
+            .register(registry);
+        Gauge.builder("admission.in-flight", limiter, ConcurrencyLimiter::getInFlight)
+            .tag("type", type)
+            .register(registry);
+        FunctionCounter.builder("admission.requests", limiter, ConcurrencyLimiter::getAcceptedCount)
+            .tag("type", type)
+            .tag("outcome", "accepted")
+            .register(registry);
+        FunctionCounter.builder("admission.requests", limiter, ConcurrencyLimiter::getRejectedCount)
+            .tag("type", type)
+            .tag("outcome", "rejected")
+            .register(registry);
+    }
+
+    private static ConcurrencyLimiter limiter(Environment environment, String type, int initialLimit, int minLimit,
+        int maxLimit) {
+        String prefix = "currency.admission." + type + ".";
+        return new ConcurrencyLimiter(new GradientLimit(
+            environment.getProperty(prefix + "initial-limit", Integer.class, initialLimit),
+            environment.getProperty(prefix + "min-limit", Integer.class, minLimit),
+            environment.getProperty(prefix + "max-limit", Integer.class, maxLimit)));
+    }
+}
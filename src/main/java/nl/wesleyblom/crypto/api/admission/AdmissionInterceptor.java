@@ -0,0 +1,116 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import java.sql.SQLTransientConnectionException;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Admits requests through a {@link ConcurrencyLimiter} for reads and one for writes
+ *
+ * GET, HEAD and OPTIONS requests are reads, all others are writes, so slow writes can not take the place of reads
+ * and the other way around. A request over the limit is answered with {@link HttpStatus#SERVICE_UNAVAILABLE} and a
+ * Retry-After header without reaching its handler. Requests that continue asynchronously, like streams, give up
+ * their place once they have started and are not counted in the latency.
+ *
+ * Only requests that failed because no database connection could be acquired in time count as dropped and shrink
+ * the limit. Any other failure, and any other error status, says nothing about capacity and is recorded as a normal
+ * latency sample.
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionInterceptor.class);
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final ConcurrencyLimiter reads;
+    private final ConcurrencyLimiter writes;
+    private final String retryAfterSeconds;
+
+    /**
+     * Constructor for the interceptor
+     *
+     * @param reads The limiter for reads
+     * @param writes The limiter for writes
+     * @param retryAfterSeconds The number of seconds a rejected client is asked to wait
+     */
+    public AdmissionInterceptor(ConcurrencyLimiter reads, ConcurrencyLimiter writes, long retryAfterSeconds) {
+        if (retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("Retry after can not be negative");
+        }
+        this.reads = reads;
+        this.writes = writes;
+        this.retryAfterSeconds = Long.toString(retryAfterSeconds);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+
+        ConcurrencyLimiter.Permit permit = (isRead(request) ? reads : writes).tryAcquire();
+        if (permit == null) {
+            logger.debug("Rejected [{} {}] over the concurrency limit", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ConcurrencyLimiter.Permit permit = takePermit(request);
+        if (permit != null) {
+            permit.ignore();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ConcurrencyLimiter.Permit permit = takePermit(request);
+        if (permit != null) {
+            permit.release(isOverload(ex));
+        }
+    }
+
+    /**
+     * @param ex The exception a request failed with, may be null
+     * @return Returns true when the exception, or one of its causes, signals that no connection could be acquired
+     */
+    static boolean isOverload(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof CannotCreateTransactionException
+                || cause instanceof CannotGetJdbcConnectionException
+                || cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ConcurrencyLimiter.Permit takePermit(HttpServletRequest request) {
+        ConcurrencyLimiter.Permit permit = (ConcurrencyLimiter.Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        return permit;
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS;
+    }
+}
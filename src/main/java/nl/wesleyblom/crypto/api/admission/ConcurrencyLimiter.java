@@ -0,0 +1,115 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits requests while fewer than the {@link GradientLimit} are in flight, rejecting the others immediately
+ *
+ * Rejected requests never wait, so the latency of admitted requests stays close to what the service can handle
+ * while clients of rejected requests can retry elsewhere or later.
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class ConcurrencyLimiter {
+
+    private final GradientLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Constructor for the limiter
+     *
+     * @param limit The limit following the latency of admitted requests
+     */
+    public ConcurrencyLimiter(GradientLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Admits a request when the limit allows it
+     *
+     * @return Returns the permit of the admitted request, which needs to be released once, or null when rejected
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                rejectedCount.incrementAndGet();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        acceptedCount.incrementAndGet();
+        return new Permit(System.nanoTime(), current + 1);
+    }
+
+    /**
+     * @return Returns the current limit
+     */
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    /**
+     * @return Returns the number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Returns the number of admitted requests
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * @return Returns the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Place of an admitted request, releasing it more than once has no effect
+     */
+    public final class Permit {
+
+        private final long start;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long start, int inFlightAtStart) {
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit and records the latency of the request
+         *
+         * @param dropped True when the request failed because the service could not keep up
+         */
+        public void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                inFlight.decrementAndGet();
+                limit.onSample(now, now - start, inFlightAtStart, dropped);
+            }
+        }
+
+        /**
+         * Releases the permit without recording a latency, for requests that do not tell anything about capacity
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
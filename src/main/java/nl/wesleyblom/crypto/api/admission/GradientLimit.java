@@ -0,0 +1,124 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit that follows the latency of the requests it admits
+ *
+ * Latencies are averaged over windows of at least {@link #WINDOW_MILLIS} ms and {@link #WINDOW_SAMPLES} requests.
+ * After each window the limit moves towards {@code limit * gradient + sqrt(limit)}, where the gradient is the
+ * no-load latency divided by the latency of the window, between 0.5 and 1. While latency stays at the no-load
+ * latency the limit grows by its square root, as soon as requests queue for a resource the latency rises and the
+ * limit shrinks. A window with a failed request shrinks the limit by 10% regardless of latency.
+ *
+ * The no-load latency is the lowest window latency of the current and the previous epoch of {@link #EPOCH_WINDOWS}
+ * windows, so a lasting change of the baseline is learned without probing at a low limit. The limit only grows
+ * while at least half of it is in use, an idle service learns nothing about its capacity.
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class GradientLimit {
+
+    static final long WINDOW_MILLIS = 100;
+    static final int WINDOW_SAMPLES = 10;
+    static final int EPOCH_WINDOWS = 100;
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private volatile int limit;
+    private double estimatedLimit;
+
+    private long noLoadNanos = Long.MAX_VALUE;
+    private long epochMinNanos = Long.MAX_VALUE;
+    private int epochWindows;
+
+    private long windowStart;
+    private long windowNanosSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    /**
+     * Constructor for the limit
+     *
+     * @param initialLimit The limit before any latency has been observed
+     * @param minLimit The lowest limit
+     * @param maxLimit The highest limit
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits need to be positive with min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * @return Returns the current limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Records a completed request
+     *
+     * @param now The time the request completed, from {@link System#nanoTime()}
+     * @param latencyNanos The time the request took
+     * @param inFlight The number of requests in flight when it started, including itself
+     * @param dropped True when the request failed because the service could not keep up
+     */
+    public synchronized void onSample(long now, long latencyNanos, int inFlight, boolean dropped) {
+        if (windowSamples == 0) {
+            windowStart = now;
+        }
+        windowNanosSum += latencyNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        windowDropped |= dropped;
+
+        if (windowSamples >= WINDOW_SAMPLES && now - windowStart >= WINDOW_NANOS) {
+            update(Math.max(1, windowNanosSum / windowSamples), windowMaxInFlight, windowDropped);
+            windowNanosSum = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+            windowDropped = false;
+        }
+    }
+
+    private void update(long latencyNanos, int inFlight, boolean dropped) {
+        epochMinNanos = Math.min(epochMinNanos, latencyNanos);
+        noLoadNanos = Math.min(noLoadNanos, latencyNanos);
+        if (++epochWindows == EPOCH_WINDOWS) {
+            // the previous epoch is forgotten, the minimum of the epoch that ended is kept
+            noLoadNanos = epochMinNanos;
+            epochMinNanos = Long.MAX_VALUE;
+            epochWindows = 0;
+        }
+
+        double target;
+        if (dropped) {
+            target = estimatedLimit * BACKOFF_RATIO;
+        } else {
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, (double) noLoadNanos / latencyNanos));
+            target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            if (target > estimatedLimit && inFlight < estimatedLimit / 2) {
+                return;
+            }
+        }
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,85 @@
+package nl.wesleyblom.crypto.api.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a single entry of a batch create request
+ *
+ * @author Wesley
+ * @date 2019-03-06
+ */
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BatchItemResult {
+
+    /**
+     * Possible outcomes of a batch entry
+     */
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID
+    }
+
+    private final int index;
+    private final String ticker;
+    private final Status status;
+    private final List<String> errors;
+
+    /**
+     * Constructor for a BatchItemResult
+     *
+     * @param index The position of the entry in the request body, starting at 0
+     * @param ticker The ticker of the entry, can be null for entries without one
+     * @param status The outcome of the entry
+     * @param errors The validation errors of an {@link Status#INVALID} entry
+     */
+    public BatchItemResult(int index, String ticker, Status status, List<String> errors) {
+        this.index = index;
+        this.ticker = ticker;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    static BatchItemResult created(int index, String ticker) {
+        return new BatchItemResult(index, ticker, Status.CREATED, Collections.emptyList());
+    }
+
+    static BatchItemResult conflict(int index, String ticker) {
+        return new BatchItemResult(index, ticker, Status.CONFLICT, Collections.emptyList());
+    }
+
+    static BatchItemResult invalid(int index, String ticker, List<String> errors) {
+        return new BatchItemResult(index, ticker, Status.INVALID, errors);
+    }
+
+    /**
+     * @return Returns the position of the entry in the request body
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return Returns the ticker of the entry
+     */
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return Returns the outcome of the entry
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Returns the validation errors of the entry
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,252 @@
+package nl.wesleyblom.crypto.api.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates many {@link Currency} objects from a single request body.
+ *
+ * The body is read as a stream of JSON objects, either a JSON array or newline delimited JSON. Entries are validated
+ * with the bean validation rules of {@link Currency} and written in chunks, each chunk in its own transaction with a
+ * single existence query and JDBC batched inserts. Only integrity violations are reported per entry as conflicts, any
+ * other database failure is thrown.
+ *
+ * @author Wesley
+ * @date 2019-03-06
+ */
+
+@Service
+public class CurrencyBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyBatchService.class);
+
+    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
+    private final CurrencyVersions currencyVersions;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    /**
+     * Constructor for the batch service
+     *
+     * @param currencyRepository The repository used to look up existing tickers
+     * @param currencyCache The cache to evict created tickers from
+     * @param currencyVersions The counter to take the version of each created {@link Currency} from
+     * @param objectMapper The mapper to read the request body with
+     * @param validator The validator applying the bean validation rules of {@link Currency}
+     * @param entityManager The shared entity manager used to persist the entries
+     * @param transactionManager The transaction manager used for each chunk
+     * @param eventPublisher The publisher to report every created {@link Currency} to
+     * @param chunkSize The number of entries written per transaction
+     */
+    public CurrencyBatchService(CurrencyRepository currencyRepository, CurrencyCache currencyCache,
+        CurrencyVersions currencyVersions, ObjectMapper objectMapper,
+        Validator validator, EntityManager entityManager, PlatformTransactionManager transactionManager,
+        ApplicationEventPublisher eventPublisher, @Value("${currency.batch.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size needs to be positive");
+        }
+        this.currencyRepository = currencyRepository;
+        this.currencyCache = currencyCache;
+        this.currencyVersions = currencyVersions;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates all {@link Currency} objects in the given body
+     *
+     * @param body A JSON array or newline delimited JSON stream of {@link Currency} objects
+     * @return Returns a {@link BatchItemResult} for every entry, in the order of the body
+     * @throws MalformedBatchException when the body is not well formed JSON, after the entries before the malformed
+     *         part have been written
+     */
+    public List<BatchItemResult> createAll(InputStream body) throws MalformedBatchException {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<Entry> chunk = new ArrayList<>(chunkSize);
+
+        try (MappingIterator<JsonNode> nodes = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (nodes.hasNextValue()) {
+                JsonNode node = nodes.nextValue();
+                int index = results.size();
+                results.add(null);
+
+                Currency currency = read(index, node, results);
+                if (currency != null) {
+                    chunk.add(new Entry(index, currency));
+                }
+                if (chunk.size() == chunkSize) {
+                    write(chunk, results);
+                }
+            }
+        } catch (IOException e) {
+            write(chunk, results);
+            String error = e instanceof JsonProcessingException ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage();
+            results.add(BatchItemResult.invalid(results.size(), null, Collections.singletonList(error)));
+            logger.info("Batch body malformed after [{}] entries", results.size() - 1);
+            throw new MalformedBatchException(e, results);
+        }
+        write(chunk, results);
+
+        logger.info("Batch of [{}] currencies processed", results.size());
+        return results;
+    }
+
+    /**
+     * Converts and validates a single entry, storing an {@link BatchItemResult.Status#INVALID} result when it is not valid
+     *
+     * @return The {@link Currency} or null when the entry is invalid
+     */
+    private Currency read(int index, JsonNode node, List<BatchItemResult> results) {
+        String ticker = node.path("ticker").isTextual() ? node.path("ticker").asText() : null;
+        Currency currency;
+
+        try {
+            currency = objectMapper.treeToValue(node, Currency.class);
+        } catch (JsonProcessingException e) {
+            results.set(index, BatchItemResult.invalid(index, ticker, Collections.singletonList(e.getOriginalMessage())));
+            return null;
+        }
+
+        Set<ConstraintViolation<Currency>> violations = validator.validate(currency);
+        if (!violations.isEmpty()) {
+            List<String> errors = new ArrayList<>(violations.size());
+            for (ConstraintViolation<Currency> violation : violations) {
+                errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+            Collections.sort(errors);
+            results.set(index, BatchItemResult.invalid(index, ticker, errors));
+            return null;
+        }
+
+        return currency;
+    }
+
+    /**
+     * Writes a chunk in a single transaction. When a concurrent writer created one of the tickers in between,
+     * the chunk is rolled back and the entries are retried one by one. Any other failure is thrown, after the
+     * entries committed so far have been published.
+     */
+    private void write(List<Entry> chunk, List<BatchItemResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<Entry> committed = new ArrayList<>(chunk.size());
+        try {
+            try {
+                transactionTemplate.execute(status -> insert(chunk, results));
+                committed.addAll(chunk);
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                logger.info("Batch chunk conflicted with a concurrent write, retrying entries one by one");
+                for (Entry entry : chunk) {
+                    try {
+                        transactionTemplate.execute(status -> insert(Collections.singletonList(entry), results));
+                        committed.add(entry);
+                    } catch (RuntimeException retry) {
+                        if (!isConflict(retry)) {
+                            throw retry;
+                        }
+                        results.set(entry.index, BatchItemResult.conflict(entry.index, entry.currency.getTicker()));
+                    }
+                }
+            }
+        } finally {
+            currencyVersions.written();
+            for (Entry entry : committed) {
+                if (results.get(entry.index).getStatus() == BatchItemResult.Status.CREATED) {
+                    currencyCache.evict(entry.currency.getTicker());
+                    eventPublisher.publishEvent(CurrencyChangedEvent.created(entry.currency));
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    /**
+     * @return Returns true when the failure, or one of its causes, is an integrity violation such as a duplicate ticker
+     */
+    static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                || cause instanceof ConstraintViolationException
+                || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Void insert(List<Entry> chunk, List<BatchItemResult> results) {
+        Set<String> tickers = new HashSet<>();
+        for (Entry entry : chunk) {
+            tickers.add(entry.currency.getTicker());
+        }
+
+        Set<String> taken = new HashSet<>(currencyRepository.findExistingTickers(tickers));
+        for (Entry entry : chunk) {
+            String ticker = entry.currency.getTicker();
+            if (!taken.add(ticker)) {
+                results.set(entry.index, BatchItemResult.conflict(entry.index, ticker));
+                continue;
+            }
+            entry.currency.setVersion(currencyVersions.next());
+            // persist instead of save, the ticker is known to be new so there is no need for a merge select
+            entityManager.persist(entry.currency);
+            results.set(entry.index, BatchItemResult.created(entry.index, ticker));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        return null;
+    }
+
+    private static final class Entry {
+
+        private final int index;
+        private final Currency currency;
+
+        private Entry(int index, Currency currency) {
+            this.index = index;
+            this.currency = currency;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package nl.wesleyblom.crypto.api.batch;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Thrown when a batch body stops being well formed JSON after some of its entries have been processed
+ *
+ * The entries before the malformed part have been written like those of a well formed body. Their results are kept,
+ * followed by an {@link BatchItemResult.Status#INVALID} result for the malformed part, so a client can tell which
+ * currencies have already been created.
+ *
+ * @author Wesley
+ * @date 2019-04-11
+ */
+
+public class MalformedBatchException extends IOException {
+
+    private final transient List<BatchItemResult> results;
+
+    /**
+     * Constructor for the exception
+     *
+     * @param cause The parse error
+     * @param results The results of the entries before the malformed part and of the malformed part itself
+     */
+    public MalformedBatchException(IOException cause, List<BatchItemResult> results) {
+        super(cause.getMessage(), cause);
+        this.results = results;
+    }
+
+    /**
+     * @return Returns a {@link BatchItemResult} for every entry up to and including the malformed part
+     */
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+}
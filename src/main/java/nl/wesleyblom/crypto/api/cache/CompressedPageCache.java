@@ -0,0 +1,218 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of gzip compressed list pages, next to the encoded pages of {@link CurrencyJsonCache}
+ *
+ * A page is compressed once per collection version at the highest compression level, and is never served once any
+ * {@link nl.wesleyblom.crypto.api.model.Currency} has been written after it. Concurrent misses of the same page under
+ * the same version share a single compression. A full cache evicts a least recently used page by
+ * {@link SampledEviction}. The cache keeps the sizes before and after compression of every page it compressed, their
+ * quotient is the compression ratio.
+ *
+ * @author Wesley
+ * @date 2019-04-03
+ */
+
+@Component
+public class CompressedPageCache {
+
+    private final int maxPages;
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+    private final SingleFlight<String, byte[]> compressions = new SingleFlight<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * Constructor for the cache
+     *
+     * @param maxPages The maximum number of compressed pages kept
+     */
+    public CompressedPageCache(@Value("${currency.cache.max-pages:1000}") int maxPages) {
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("Cache size needs to be positive");
+        }
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Returns the gzip compressed page, compressing it only when it has not been compressed under this version.
+     * Concurrent misses of the same page under the same version share a single compression, a request reading a newer
+     * version never joins an older one. The returned array is shared and must not be modified.
+     *
+     * @param key The key of the list page, identifying page number, size, sort and format
+     * @param version The collection version the page was read under
+     * @param body The encoded page
+     * @return Returns the gzip compressed page
+     */
+    public byte[] gzip(String key, long version, byte[] body) {
+        byte[] cached = get(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        return compressions.load(version + "/" + key, () -> {
+            // A load that completed just before this one started has already stored the page
+            byte[] stored = get(key, version);
+            if (stored != null) {
+                return stored;
+            }
+            misses.incrementAndGet();
+
+            byte[] gzip = compress(body);
+            uncompressedBytes.addAndGet(body.length);
+            compressedBytes.addAndGet(gzip.length);
+
+            if (pages.put(key, new Page(version, gzip, System.nanoTime())) == null && pages.size() > maxPages) {
+                SampledEviction.evictOne(pages, key, entry -> entry.lastAccess);
+            }
+            return gzip;
+        });
+    }
+
+    /**
+     * Removes all compressed pages
+     */
+    public void clear() {
+        compressions.forgetAll();
+        pages.clear();
+    }
+
+    /**
+     * @return Returns the number of pages served without compressing
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Returns the number of pages that had to be compressed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Returns the number of pages not served from the cache that shared the compression of a concurrent request
+     */
+    public long getCoalescedCount() {
+        return compressions.getSharedCount();
+    }
+
+    /**
+     * @return Returns the total size of all pages before they were compressed
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * @return Returns the total size of all pages after they were compressed
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return Returns the compressed size divided by the uncompressed size of all compressed pages, 1 before any page
+     *         has been compressed
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        return uncompressed == 0 ? 1 : (double) compressedBytes.get() / uncompressed;
+    }
+
+    /**
+     * @return Returns the number of compressed pages currently kept
+     */
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * @param acceptEncoding The Accept-Encoding header of a request, may be null
+     * @return Returns true when the header allows a gzip response
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        // gzip named explicitly takes precedence over the wildcard
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = Math.max(gzip, quality(parts));
+            } else if (name.equals("*")) {
+                any = quality(parts);
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private byte[] get(String key, long version) {
+        Page page = pages.get(key);
+        if (page != null && page.version == version) {
+            page.lastAccess = System.nanoTime();
+            hits.incrementAndGet();
+            return page.gzip;
+        }
+        return null;
+    }
+
+    private static byte[] compress(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Page {
+
+        private final long version;
+        private final byte[] gzip;
+        private volatile long lastAccess;
+
+        private Page(long version, byte[] gzip, long lastAccess) {
+            this.version = version;
+            this.gzip = gzip;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded read-through cache in front of {@link CurrencyRepository#findByTicker(String)}
+ *
+ * Entries expire after a fixed time to live. When the cache grows beyond its maximum size the least recently
+ * used entry out of a small sample is evicted. Lookups for unknown tickers are cached as well, so every write
+ * must call {@link #evict(String)} for each ticker it touches. Concurrent misses of the same ticker share a single
+ * query through a {@link SingleFlight}, so a burst of lookups costs one query per ticker instead of one per request.
+ * A load is only kept when its ticker has not been written while it ran, writes to other tickers do not affect it.
+ *
+ * @author Wesley
+ * @date 2019-03-02
+ */
+
+@Component
+public class CurrencyCache {
+
+    private final CurrencyRepository currencyRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Optional<Currency>> loads = new SingleFlight<>();
+    private final Map<String, LoadToken> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor for the cache
+     *
+     * @param currencyRepository The repository to read through to on a miss
+     * @param maxSize The maximum number of tickers kept in the cache
+     * @param ttlSeconds The number of seconds an entry stays valid after being loaded
+     */
+    public CurrencyCache(CurrencyRepository currencyRepository,
+        @Value("${currency.cache.max-size:10000}") int maxSize,
+        @Value("${currency.cache.ttl-seconds:60}") long ttlSeconds) {
+        if (maxSize < 1 || ttlSeconds < 1) {
+            throw new IllegalArgumentException("Cache size and time to live need to be positive");
+        }
+        this.currencyRepository = currencyRepository;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Returns the {@link Currency} for the given ticker, loading it from the {@link CurrencyRepository} on a miss.
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns an {@link Optional<Currency>}
+     */
+    public Optional<Currency> findByTicker(String ticker) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(ticker);
+
+        if (entry != null) {
+            if (now - entry.expiresAt < 0) {
+                entry.lastAccess = now;
+                hits.incrementAndGet();
+                return entry.currency;
+            }
+            if (entries.remove(ticker, entry)) {
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        LoadToken token = pending.compute(ticker, (key, current) -> {
+            LoadToken acquired = current == null ? new LoadToken() : current;
+            acquired.loaders++;
+            return acquired;
+        });
+
+        Optional<Currency> currency;
+        try {
+            currency = loads.load(ticker, () -> currencyRepository.findByTicker(ticker));
+        } catch (RuntimeException | Error e) {
+            release(ticker, token);
+            throw e;
+        }
+
+        Entry loaded = new Entry(currency, now + ttlNanos, now);
+        if (entries.put(ticker, loaded) == null && entries.size() > maxSize) {
+            evictOne(ticker);
+        }
+        // A write to the ticker replaced its token while it was being loaded, drop the possibly stale value
+        if (!release(ticker, token)) {
+            entries.remove(ticker, loaded);
+        }
+
+        return currency;
+    }
+
+    /**
+     * Returns the cached lookup of the given ticker without going to the {@link CurrencyRepository}
+     * Peeking is not counted as a hit or a miss, a following {@link #findByTicker(String)} counts the lookup.
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns an {@link Optional<Currency>}, empty when the ticker is cached as unknown,
+     *         null when the ticker is not cached
+     */
+    public Optional<Currency> getIfPresent(String ticker) {
+        Entry entry = entries.get(ticker);
+
+        if (entry != null && System.nanoTime() - entry.expiresAt < 0) {
+            return entry.currency;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given ticker from the cache. When called inside a transaction the ticker is removed again after
+     * the transaction completes, so concurrent readers can not cache a value from before the commit.
+     *
+     * @param ticker The short name of the {@link Currency} that has been written
+     */
+    public void evict(String ticker) {
+        invalidate(ticker);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(ticker);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public void clear() {
+        loads.forgetAll();
+        pending.clear();
+        entries.clear();
+    }
+
+    /**
+     * @return Returns the number of lookups served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Returns the number of lookups not served from the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Returns the number of lookups not served from the cache that shared the query of a concurrent lookup
+     */
+    public long getCoalescedCount() {
+        return loads.getSharedCount();
+    }
+
+    /**
+     * @return Returns the number of entries removed because they expired or the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Returns the number of tickers currently in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void invalidate(String ticker) {
+        // Detach a running query before dropping the token, a lookup taking a new token can not join it anymore
+        loads.forget(ticker);
+        pending.remove(ticker);
+        entries.remove(ticker);
+    }
+
+    /**
+     * Releases the token of a finished load, the token is removed once no load of the ticker holds it anymore
+     *
+     * @return Returns true when the ticker has not been written since the token was taken
+     */
+    private boolean release(String ticker, LoadToken token) {
+        boolean[] current = new boolean[1];
+        pending.computeIfPresent(ticker, (key, held) -> {
+            if (held != token) {
+                return held;
+            }
+            current[0] = true;
+            return --held.loaders == 0 ? null : held;
+        });
+        return current[0];
+    }
+
+    /**
+     * Evicts the least recently used entry out of a sample of the cache, never the ticker that was just loaded
+     */
+    private void evictOne(String loadedTicker) {
+        if (SampledEviction.evictOne(entries, loadedTicker, entry -> entry.lastAccess)) {
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Taken by the loads of a ticker, {@link #invalidate(String)} removes it so loads still holding it are dropped.
+     * Only changed inside the compute functions of the map, which are serialized per ticker.
+     */
+    private static final class LoadToken {
+
+        private int loaders;
+    }
+
+    private static final class Entry {
+
+        private final Optional<Currency> currency;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(Optional<Currency> currency, long expiresAt, long lastAccess) {
+            this.currency = currency;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the encoded CBOR (RFC 7049) of {@link Currency} objects, the binary counterpart of {@link CurrencyJsonCache}
+ *
+ * A {@link Currency} is encoded once per version. Lists are assembled from the encoded {@link Currency} objects behind
+ * a definite length array header, so a list is never encoded as a whole.
+ *
+ * @author Wesley
+ * @date 2019-04-02
+ */
+
+@Component
+public class CurrencyCborCache {
+
+    private static final int ARRAY = 0x80;
+
+    private final ObjectWriter writer;
+    private final int maxSize;
+    private final Map<String, Encoded> currencies = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the cache
+     *
+     * @param maxSize The maximum number of encoded {@link Currency} objects kept
+     */
+    public CurrencyCborCache(@Value("${currency.cache.max-size:10000}") int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size needs to be positive");
+        }
+        this.writer = Jackson2ObjectMapperBuilder.cbor().build().writerFor(Currency.class);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the CBOR of the given {@link Currency}, encoding it only when this version has not been encoded before.
+     * The returned array is shared and must not be modified.
+     *
+     * @param currency The {@link Currency} to encode
+     * @return Returns the CBOR map
+     */
+    public byte[] encode(Currency currency) {
+        Encoded encoded = currencies.get(currency.getTicker());
+        if (encoded != null && encoded.version == currency.getVersion()) {
+            return encoded.cbor;
+        }
+
+        byte[] cbor;
+        try {
+            cbor = writer.writeValueAsBytes(currency);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (currencies.size() >= maxSize) {
+            currencies.clear();
+        }
+        currencies.put(currency.getTicker(), new Encoded(currency.getVersion(), cbor));
+        return cbor;
+    }
+
+    /**
+     * Returns the CBOR array of the given {@link Currency} objects, assembled from their cached encodings
+     *
+     * @param list The {@link Currency} objects to encode
+     * @return Returns the CBOR array
+     */
+    public byte[] encode(List<Currency> list) {
+        byte[][] parts = new byte[list.size()][];
+        int headerLength = headerLength(list.size());
+        int length = headerLength;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = encode(list.get(i));
+            length += parts[i].length;
+        }
+
+        byte[] cbor = new byte[length];
+        writeHeader(cbor, list.size(), headerLength);
+        int position = headerLength;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, cbor, position, part.length);
+            position += part.length;
+        }
+        return cbor;
+    }
+
+    /**
+     * Removes all encoded {@link Currency} objects
+     */
+    public void clear() {
+        currencies.clear();
+    }
+
+    /**
+     * @return Returns the number of bytes of the header of an array with the given number of items
+     */
+    private static int headerLength(int items) {
+        return items < 24 ? 1 : items < 0x100 ? 2 : items < 0x10000 ? 3 : 5;
+    }
+
+    private static void writeHeader(byte[] cbor, int items, int headerLength) {
+        switch (headerLength) {
+            case 1:
+                cbor[0] = (byte) (ARRAY | items);
+                break;
+            case 2:
+                cbor[0] = (byte) (ARRAY | 24);
+                cbor[1] = (byte) items;
+                break;
+            case 3:
+                cbor[0] = (byte) (ARRAY | 25);
+                cbor[1] = (byte) (items >>> 8);
+                cbor[2] = (byte) items;
+                break;
+            default:
+                cbor[0] = (byte) (ARRAY | 26);
+                cbor[1] = (byte) (items >>> 24);
+                cbor[2] = (byte) (items >>> 16);
+                cbor[3] = (byte) (items >>> 8);
+                cbor[4] = (byte) items;
+        }
+    }
+
+    private static final class Encoded {
+
+        private final long version;
+        private final byte[] cbor;
+
+        private Encoded(long version, byte[] cbor) {
+            this.version = version;
+            this.cbor = cbor;
+        }
+    }
+}
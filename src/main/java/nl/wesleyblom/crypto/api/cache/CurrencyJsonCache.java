@@ -0,0 +1,262 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the encoded JSON of {@link Currency} objects and of complete list pages.
+ *
+ * A {@link Currency} is encoded once per version, so it is only encoded again after it has been written.
+ * List pages are assembled from the encoded {@link Currency} objects and stored together with the collection version
+ * they were read under, a page is never served once any {@link Currency} has been written after it. Both are bounded,
+ * a full cache evicts the least recently used entry out of a sample.
+ *
+ * @author Wesley
+ * @date 2019-03-13
+ */
+
+@Component
+public class CurrencyJsonCache {
+
+    private static final byte[] EMPTY_LIST = {'[', ']'};
+
+    private final ObjectWriter writer;
+    private final int maxSize;
+    private final int maxPages;
+
+    private final Map<String, Encoded> currencies = new ConcurrentHashMap<>();
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+    private final SingleFlight<String, byte[]> pageLoads = new SingleFlight<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong pageHits = new AtomicLong();
+    private final AtomicLong pageMisses = new AtomicLong();
+
+    /**
+     * Constructor for the cache
+     *
+     * @param objectMapper The mapper to encode {@link Currency} objects with
+     * @param maxSize The maximum number of encoded {@link Currency} objects kept
+     * @param maxPages The maximum number of list pages kept
+     */
+    public CurrencyJsonCache(ObjectMapper objectMapper,
+        @Value("${currency.cache.max-size:10000}") int maxSize,
+        @Value("${currency.cache.max-pages:1000}") int maxPages) {
+        if (maxSize < 1 || maxPages < 1) {
+            throw new IllegalArgumentException("Cache sizes need to be positive");
+        }
+        this.writer = objectMapper.writerFor(Currency.class);
+        this.maxSize = maxSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Returns the JSON of the given {@link Currency}, encoding it only when this version has not been encoded before.
+     * The returned array is shared and must not be modified.
+     *
+     * @param currency The {@link Currency} to encode
+     * @return Returns the UTF-8 encoded JSON
+     */
+    public byte[] encode(Currency currency) {
+        long now = System.nanoTime();
+        Encoded encoded = currencies.get(currency.getTicker());
+        if (encoded != null && encoded.version == currency.getVersion()) {
+            encoded.lastAccess = now;
+            hits.incrementAndGet();
+            return encoded.json;
+        }
+        misses.incrementAndGet();
+
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(currency);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (currencies.put(currency.getTicker(), new Encoded(currency.getVersion(), json, now)) == null
+            && currencies.size() > maxSize) {
+            SampledEviction.evictOne(currencies, currency.getTicker(), entry -> entry.lastAccess);
+        }
+        return json;
+    }
+
+    /**
+     * Returns the JSON array of the given {@link Currency} objects, assembled from their cached encodings
+     *
+     * @param list The {@link Currency} objects to encode
+     * @return Returns the UTF-8 encoded JSON array
+     */
+    public byte[] encode(List<Currency> list) {
+        if (list.isEmpty()) {
+            return EMPTY_LIST;
+        }
+
+        byte[][] parts = new byte[list.size()][];
+        int length = list.size() + 1;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = encode(list.get(i));
+            length += parts[i].length;
+        }
+
+        byte[] json = new byte[length];
+        json[0] = '[';
+        int position = 1;
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            System.arraycopy(parts[i], 0, json, position, parts[i].length);
+            position += parts[i].length;
+        }
+        json[position] = ']';
+        return json;
+    }
+
+    /**
+     * @param key The key of the list page, identifying page number, size, sort and format
+     * @param version The current collection version
+     * @return Returns the encoded page when it has been stored under the given version, null otherwise
+     */
+    public byte[] getPage(String key, long version) {
+        Page page = pages.get(key);
+        if (page != null && page.version == version) {
+            page.lastAccess = System.nanoTime();
+            pageHits.incrementAndGet();
+            return page.json;
+        }
+        pageMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the encoded page stored under the given version, or loads and stores it. Concurrent misses of the same
+     * page under the same version share a single load, a request reading a newer version never joins an older load.
+     *
+     * @param key The key of the list page, identifying page number, size, sort and format
+     * @param version The collection version read before the page is queried
+     * @param loader Queries and encodes the page, returns null when the page is empty
+     * @return Returns the encoded page, null when the page is empty
+     */
+    public byte[] getPage(String key, long version, Supplier<byte[]> loader) {
+        byte[] json = getPage(key, version);
+        if (json != null) {
+            return json;
+        }
+        return pageLoads.load(version + "/" + key, () -> {
+            byte[] loaded = loader.get();
+            if (loaded != null) {
+                putPage(key, version, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Stores an encoded list page
+     *
+     * @param key The key of the list page, identifying page number, size, sort and format
+     * @param version The collection version read before the page was queried
+     * @param json The encoded page
+     */
+    public void putPage(String key, long version, byte[] json) {
+        if (pages.put(key, new Page(version, json, System.nanoTime())) == null && pages.size() > maxPages) {
+            SampledEviction.evictOne(pages, key, entry -> entry.lastAccess);
+        }
+    }
+
+    /**
+     * Removes all encoded {@link Currency} objects and pages
+     */
+    public void clear() {
+        pageLoads.forgetAll();
+        currencies.clear();
+        pages.clear();
+    }
+
+    /**
+     * @return Returns the number of {@link Currency} objects served without encoding
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Returns the number of {@link Currency} objects that had to be encoded
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Returns the number of list pages served from the cache
+     */
+    public long getPageHitCount() {
+        return pageHits.get();
+    }
+
+    /**
+     * @return Returns the number of list pages that had to be queried
+     */
+    public long getPageMissCount() {
+        return pageMisses.get();
+    }
+
+    /**
+     * @return Returns the number of list pages not served from the cache that shared the load of a concurrent request
+     */
+    public long getPageCoalescedCount() {
+        return pageLoads.getSharedCount();
+    }
+
+    /**
+     * @return Returns the number of encoded {@link Currency} objects currently kept
+     */
+    public int size() {
+        return currencies.size();
+    }
+
+    /**
+     * @return Returns the number of list pages currently kept
+     */
+    public int pageCount() {
+        return pages.size();
+    }
+
+    private static final class Encoded {
+
+        private final long version;
+        private final byte[] json;
+        private volatile long lastAccess;
+
+        private Encoded(long version, byte[] json, long lastAccess) {
+            this.version = version;
+            this.json = json;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Page {
+
+        private final long version;
+        private final byte[] json;
+        private volatile long lastAccess;
+
+        private Page(long version, byte[] json, long lastAccess) {
+            this.version = version;
+            this.json = json;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Approximated least recently used eviction for the caches of this package
+ *
+ * Keeping entries ordered by access would need a lock on every hit. Instead every entry records the time of its last
+ * access, and a full cache evicts the least recently used entry out of a small sample of its entries. The sample starts
+ * at a random position of the iteration order, so every entry is sampled over time and not only the first buckets.
+ *
+ * @author Wesley
+ * @date 2019-04-09
+ */
+
+final class SampledEviction {
+
+    static final int SAMPLE_SIZE = 16;
+
+    private SampledEviction() {
+    }
+
+    /**
+     * Evicts the least recently used entry out of a sample of the map, never the given key
+     *
+     * @param entries The entries of the cache
+     * @param keep The key that has just been stored
+     * @param lastAccess Returns the time of the last access of an entry
+     * @return Returns true when an entry has been removed
+     */
+    static <K, V> boolean evictOne(Map<K, V> entries, K keep, ToLongFunction<V> lastAccess) {
+        int size = entries.size();
+        return size > 0 && evictOne(entries, keep, lastAccess, ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * Evicts the least recently used entry out of the sample starting at the given position of the iteration order,
+     * wrapping around to the first entries when the end is reached
+     */
+    static <K, V> boolean evictOne(Map<K, V> entries, K keep, ToLongFunction<V> lastAccess, int start) {
+        K victim = null;
+        V victimEntry = null;
+        long oldest = Long.MAX_VALUE;
+
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        for (int i = 0; i < start && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+
+        boolean wrapped = false;
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            if (!iterator.hasNext()) {
+                if (wrapped) {
+                    break;
+                }
+                wrapped = true;
+                iterator = entries.entrySet().iterator();
+                if (!iterator.hasNext()) {
+                    break;
+                }
+            }
+            Map.Entry<K, V> candidate = iterator.next();
+            long accessed = lastAccess.applyAsLong(candidate.getValue());
+            if (!candidate.getKey().equals(keep) && (victim == null || accessed - oldest < 0)) {
+                victim = candidate.getKey();
+                victimEntry = candidate.getValue();
+                oldest = accessed;
+            }
+        }
+
+        return victim != null && entries.remove(victim, victimEntry);
+    }
+}
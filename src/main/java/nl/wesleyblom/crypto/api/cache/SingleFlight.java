@@ -0,0 +1,113 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into a single call
+ *
+ * The first caller for a key runs the loader on its own thread, callers arriving while it runs wait for it and
+ * receive the same result, or the same exception. The key is removed as soon as the load completes, so results are
+ * never kept: a caller arriving afterwards starts a new load. A loader must not load its own key again, it would wait
+ * for itself.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the loaded values, null values are allowed
+ *
+ * @author Wesley
+ * @date 2019-04-08
+ */
+
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Returns the result of the loader, or of the load of the same key that is already running
+     *
+     * @param key The key to load
+     * @param loader Loads the value, only called when no load of the key is running
+     * @return Returns the loaded value
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            shared.incrementAndGet();
+            return await(running);
+        }
+
+        loads.incrementAndGet();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Detaches the running load of the given key, callers arriving afterwards start a new load. Callers already
+     * waiting still receive its result.
+     *
+     * @param key The key that has been written
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    /**
+     * Detaches all running loads
+     */
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    /**
+     * @return Returns the number of loads that called their loader
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return Returns the number of loads that received the result of a load already running
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * @return Returns the number of keys being loaded
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // The loader can only throw unchecked exceptions, rethrow them as they are
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * {@link DataSource} that lets at most a fixed number of callers hold a connection at the same time
+ *
+ * With a thread per request the number of threads limits how many requests wait on the connection pool. With
+ * virtual threads there is no such limit, so thousands of threads would contend in the pool itself. Callers queue
+ * on a fair {@link Semaphore} instead, sized like the pool, and give up after a timeout. A permit is released when
+ * the connection is closed.
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public class BoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConnections;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor for the data source
+     *
+     * @param target The data source to take connections from
+     * @param maxConnections The maximum number of connections handed out at the same time
+     * @param timeoutMillis The time to wait for a connection before failing
+     */
+    public BoundedDataSource(DataSource target, int maxConnections, long timeoutMillis) {
+        super(target);
+        if (maxConnections < 1 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Maximum connections need to be positive and timeout can not be negative");
+        }
+        this.permits = new Semaphore(maxConnections, true);
+        this.maxConnections = maxConnections;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Returns the number of connections currently handed out
+     */
+    public int getActiveConnections() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    /**
+     * @return Returns an estimate of the number of callers waiting for a connection
+     */
+    public int getWaitingCallers() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                    "No connection available within " + timeoutMillis + " ms, " + maxConnections + " in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Wraps the connection so that closing it releases its permit exactly once
+     */
+    private Connection guard(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                    try {
+                        connection.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+}
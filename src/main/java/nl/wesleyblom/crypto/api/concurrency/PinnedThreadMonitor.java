@@ -0,0 +1,134 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread
+ *
+ * A virtual thread is pinned while it holds a monitor, for example inside a synchronized block of a JDBC driver, and
+ * then occupies a carrier thread for as long as it blocks. The JFR event jdk.VirtualThreadPinned is streamed in
+ * process. Every event is logged with the frames of the application and counted as jvm.threads.virtual.pinned,
+ * tagged with whether it happened inside a transaction. JFR is only available on the Java 21 runtime that virtual
+ * threads need, so it is accessed through reflection.
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public class PinnedThreadMonitor implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "nl.wesleyblom.crypto.api.";
+    private static final String TRANSACTION_INTERCEPTOR = "org.springframework.transaction.interceptor.TransactionInterceptor";
+    private static final String TRANSACTION_TEMPLATE = "org.springframework.transaction.support.TransactionTemplate";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Duration threshold;
+
+    private Counter inTransaction;
+    private Counter outsideTransaction;
+    private AutoCloseable stream;
+
+    /**
+     * Constructor for the monitor
+     *
+     * @param meterRegistry The registry to count pinned events in, when available
+     * @param threshold The minimum time a virtual thread must be blocked while pinned to be reported
+     */
+    public PinnedThreadMonitor(ObjectProvider<MeterRegistry> meterRegistry, Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public synchronized void start() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            inTransaction = registry.counter("jvm.threads.virtual.pinned", "transaction", "true");
+            outsideTransaction = registry.counter("jvm.threads.virtual.pinned", "transaction", "false");
+        }
+
+        try {
+            Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object recordingStream = streamType.getConstructor().newInstance();
+            Object settings = streamType.getMethod("enable", String.class).invoke(recordingStream, EVENT);
+            Class<?> settingsType = Class.forName("jdk.jfr.EventSettings");
+            settingsType.getMethod("withStackTrace").invoke(settings);
+            settingsType.getMethod("withThreshold", Duration.class).invoke(settings, threshold);
+
+            Consumer<Object> onEvent = this::pinned;
+            streamType.getMethod("onEvent", String.class, Consumer.class).invoke(recordingStream, EVENT, onEvent);
+            streamType.getMethod("startAsync").invoke(recordingStream);
+            stream = (AutoCloseable) recordingStream;
+            logger.info("Reporting virtual threads pinned for more than [{}] ms", threshold.toMillis());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Pinned virtual threads can not be reported: [{}]", e.toString());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (Exception e) {
+                logger.debug("Closing the pinned thread recording failed", e);
+            }
+            stream = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+
+    private void pinned(Object event) {
+        try {
+            Duration duration = (Duration) invoke(event, "getDuration");
+            Object stackTrace = invoke(event, "getStackTrace");
+            List<?> frames = stackTrace == null ? null : (List<?>) invoke(stackTrace, "getFrames");
+
+            boolean transactional = false;
+            StringBuilder applicationFrames = new StringBuilder();
+            if (frames != null) {
+                for (Object frame : frames) {
+                    Object method = invoke(frame, "getMethod");
+                    String type = (String) invoke(invoke(method, "getType"), "getName");
+                    if (TRANSACTION_INTERCEPTOR.equals(type) || TRANSACTION_TEMPLATE.equals(type)) {
+                        transactional = true;
+                    }
+                    if (type.startsWith(APPLICATION_PACKAGE)) {
+                        applicationFrames.append("\n\tat ").append(type).append('.').append(invoke(method, "getName"))
+                            .append(':').append(invoke(frame, "getLineNumber"));
+                    }
+                }
+            }
+
+            Counter counter = transactional ? inTransaction : outsideTransaction;
+            if (counter != null) {
+                counter.increment();
+            }
+            logger.warn("Virtual thread pinned for [{}] ms{}{}", duration.toMillis(),
+                transactional ? " inside a transaction" : "", applicationFrames);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Could not read pinned thread event", e);
+        }
+    }
+
+    private static Object invoke(Object target, String name) throws ReflectiveOperationException {
+        Method method = target.getClass().getMethod(name);
+        return method.invoke(target);
+    }
+}
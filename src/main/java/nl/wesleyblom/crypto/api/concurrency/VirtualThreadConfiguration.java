@@ -0,0 +1,84 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+/**
+ * Runs every request on its own virtual thread, active with the profile 'virtual-threads' on Java 21 or newer
+ *
+ * Tomcat hands each request to a new virtual thread instead of its platform thread pool, so a request blocked on
+ * the database no longer holds a platform thread. Connections are handed out through a {@link BoundedDataSource}
+ * sized like the connection pool, and virtual threads pinned to their carrier are reported by the
+ * {@link PinnedThreadMonitor}.
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    /**
+     * @return Returns the executor starting a virtual thread per request
+     * @throws IllegalStateException when not running on Java 21 or newer
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        if (!VirtualThreads.isAvailable()) {
+            throw new IllegalStateException("The profile virtual-threads needs Java 21 or newer, running on "
+                + System.getProperty("java.version"));
+        }
+        return VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(ExecutorService requestExecutor) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            connector.getProtocolHandler().setExecutor(requestExecutor);
+            logger.info("Tomcat connector on port [{}] handles requests on virtual threads", connector.getPort());
+        });
+    }
+
+    /**
+     * Wraps the {@link DataSource} in a {@link BoundedDataSource} with a permit per pooled connection
+     *
+     * @param environment The environment to read currency.virtual-threads.* from
+     * @return Returns the post processor wrapping the {@link DataSource}
+     */
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof BoundedDataSource)) {
+                    int poolSize = environment.getProperty("currency.virtual-threads.pool-size", Integer.class, 10);
+                    long timeout = environment.getProperty("currency.virtual-threads.connection-timeout-ms", Long.class, 5000L);
+                    return new BoundedDataSource((DataSource) bean, poolSize, timeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public PinnedThreadMonitor pinnedThreadMonitor(ObjectProvider<MeterRegistry> meterRegistry,
+        @Value("${currency.virtual-threads.pinned-threshold-ms:20}") long thresholdMillis) {
+        return new PinnedThreadMonitor(meterRegistry, Duration.ofMillis(thresholdMillis));
+    }
+}
@@ -0,0 +1,62 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of Java 21 while the code is still compiled for Java 8
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return Returns true when the running JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param prefix The prefix of the thread names, followed by a counter
+     * @return Returns a factory creating a new virtual thread for every task
+     * @throws IllegalStateException when the running JVM does not support virtual threads
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer, running on " + System.getProperty("java.version"), e);
+        }
+    }
+
+    /**
+     * @param prefix The prefix of the thread names, followed by a counter
+     * @return Returns an executor starting a new virtual thread for every task
+     * @throws IllegalStateException when the running JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer, running on " + System.getProperty("java.version"), e);
+        }
+    }
+}
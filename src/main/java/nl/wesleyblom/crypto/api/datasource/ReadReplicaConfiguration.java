@@ -0,0 +1,61 @@
+package nl.wesleyblom.crypto.api.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+/**
+ * Sends read only transactions to a read replica, active with the profile 'read-replica'
+ *
+ * The primary is configured with the usual spring.datasource.* properties. The replica pool starts from the same
+ * settings, every Hikari property can be overridden under currency.datasource.read.*, for instance
+ * currency.datasource.read.jdbc-url. For currency.datasource.replica-lag-ms after a write, read only transactions
+ * still go to the primary.
+ *
+ * @author Wesley
+ * @date 2019-04-04
+ */
+
+@Configuration
+@Profile("read-replica")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    public ReplicaLagWindow replicaLagWindow(@Value("${currency.datasource.replica-lag-ms:1000}") long lagMillis) {
+        return new ReplicaLagWindow(lagMillis);
+    }
+
+    /**
+     * The pools are not beans of their own, the data source is the only one Spring Boot initializes and uses for JPA
+     *
+     * @return Returns the {@link ReadWriteRoutingDataSource} over both pools, which closes them on shutdown
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+        ReplicaLagWindow replicaLagWindow) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = pool(properties, "primary");
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        HikariDataSource replica = pool(properties, "replica");
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        binder.bind("currency.datasource.read", Bindable.ofInstance(replica));
+        replica.setReadOnly(true);
+
+        return new ReadWriteRoutingDataSource(primary, replica, replicaLagWindow);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
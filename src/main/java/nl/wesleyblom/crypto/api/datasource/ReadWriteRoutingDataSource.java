@@ -0,0 +1,95 @@
+package nl.wesleyblom.crypto.api.datasource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link DataSource} that takes connections for read only transactions from the read replica, and all others from
+ * the primary
+ *
+ * Whether a transaction is read only is only known after it has begun, while the transaction manager already asks
+ * for a connection when beginning it. The physical connection is therefore only taken at the first statement.
+ *
+ * @author Wesley
+ * @date 2019-04-04
+ */
+
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    /**
+     * The data source a connection is taken from
+     */
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagWindow replicaLagWindow;
+
+    /**
+     * Constructor for the data source
+     *
+     * @param primary The data source for writes and for reads outside read only transactions
+     * @param replica The data source for read only transactions
+     * @param replicaLagWindow Tells when read only transactions need the primary to see the latest write
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagWindow replicaLagWindow) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaLagWindow = replicaLagWindow;
+
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return currentRoute();
+            }
+        };
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+
+        setTargetDataSource(router);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return Returns the data source the next connection of the current thread is taken from
+     */
+    public Route currentRoute() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !replicaLagWindow.isReplicaBehind()
+            ? Route.REPLICA
+            : Route.PRIMARY;
+    }
+
+    /**
+     * Closes the primary and the replica
+     */
+    @Override
+    public void close() {
+        close(replica);
+        close(primary);
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                logger.warn("Could not close data source: [{}]", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package nl.wesleyblom.crypto.api.datasource;
+
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Tells whether the read replica may still be behind the primary
+ *
+ * The replica is assumed to lag at most a fixed time behind the primary. For that time after any
+ * {@link nl.wesleyblom.crypto.api.model.Currency} has been written, reads are sent to the primary so that a client
+ * reading directly after its own write sees it. A lag of 0 always reads from the replica.
+ *
+ * @author Wesley
+ * @date 2019-04-04
+ */
+
+public class ReplicaLagWindow {
+
+    private final long lagNanos;
+
+    private volatile long primaryUntil;
+
+    /**
+     * Constructor for the window
+     *
+     * @param lagMillis The maximum time the replica is behind the primary
+     */
+    public ReplicaLagWindow(long lagMillis) {
+        if (lagMillis < 0) {
+            throw new IllegalArgumentException("Replica lag can not be negative");
+        }
+        this.lagNanos = TimeUnit.MILLISECONDS.toNanos(lagMillis);
+        this.primaryUntil = System.nanoTime();
+    }
+
+    /**
+     * Opens the window after a write
+     *
+     * @param event The write
+     */
+    @EventListener
+    public void onCurrencyChanged(CurrencyChangedEvent event) {
+        written();
+    }
+
+    /**
+     * Opens the window, reads go to the primary until the replica has caught up with the last write
+     */
+    public void written() {
+        if (lagNanos > 0) {
+            primaryUntil = System.nanoTime() + lagNanos;
+        }
+    }
+
+    /**
+     * @return Returns true when the last write may not have reached the replica yet
+     */
+    public boolean isReplicaBehind() {
+        return System.nanoTime() - primaryUntil < 0;
+    }
+}
@@ -0,0 +1,64 @@
+package nl.wesleyblom.crypto.api.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Highest version applied per ticker, for in-memory views that apply every {@link CurrencyChangedEvent}
+ *
+ * Concurrent writers publish their events after commit in any order, so an event can arrive after a newer one of the
+ * same ticker. A deleted ticker, and the old ticker of a rename, keep the version of the delete or rename as a
+ * tombstone: a late update of the removed {@link Currency} carries a lower version and can not bring it back.
+ * Tombstones are kept as long as the view, one per ticker that has ever been written.
+ *
+ * Not thread safe, the view applying the events needs to serialize the calls.
+ *
+ * @author Wesley
+ * @date 2019-04-10
+ */
+
+public class AppliedVersions {
+
+    private final Map<String, Long> versions = new HashMap<>();
+
+    /**
+     * Records a {@link Currency} loaded by the view itself
+     *
+     * @param currency The stored {@link Currency}
+     * @return Returns true when it is not older than what has been applied for its ticker
+     */
+    public boolean load(Currency currency) {
+        return advance(currency.getTicker(), currency.getVersion());
+    }
+
+    /**
+     * Decides which parts of a write to apply and records their version
+     *
+     * @param event The write
+     * @param put Replaces the state of a ticker in the view with the new state of the {@link Currency}
+     * @param remove Removes a ticker from the view
+     */
+    public void apply(CurrencyChangedEvent event, Consumer<Currency> put, Consumer<String> remove) {
+        Currency currency = event.getCurrency();
+        if (currency == null || event.isRename()) {
+            // Deletes and renames remove the addressed ticker, unless it has been written again since
+            if (advance(event.getTicker(), event.getVersion())) {
+                remove.accept(event.getTicker());
+            }
+        }
+        if (currency != null && advance(currency.getTicker(), event.getVersion())) {
+            put.accept(currency);
+        }
+    }
+
+    private boolean advance(String ticker, long version) {
+        Long applied = versions.get(ticker);
+        if (applied != null && applied > version) {
+            return false;
+        }
+        versions.put(ticker, version);
+        return true;
+    }
+}
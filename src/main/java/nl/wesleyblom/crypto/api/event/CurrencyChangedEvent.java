@@ -0,0 +1,111 @@
+package nl.wesleyblom.crypto.api.event;
+
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Published after a {@link Currency} has been written and the write is visible to readers
+ *
+ * Listeners run on the thread of the write, so they need to be cheap or hand the work off.
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+public class CurrencyChangedEvent {
+
+    /**
+     * Kinds of writes
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final String ticker;
+    private final Currency currency;
+    private final long version;
+    private final long timestamp;
+
+    /**
+     * Constructor for a CurrencyChangedEvent
+     *
+     * @param type The kind of write
+     * @param ticker The ticker the write was addressed to, the old ticker when a {@link Currency} has been renamed
+     * @param currency The new state of the {@link Currency}, null when it has been deleted
+     * @param version The version of the write, see {@link #getVersion()}
+     * @param timestamp The time of the write in milliseconds since the epoch
+     */
+    public CurrencyChangedEvent(Type type, String ticker, Currency currency, long version, long timestamp) {
+        this.type = type;
+        this.ticker = ticker;
+        this.currency = currency;
+        this.version = version;
+        this.timestamp = timestamp;
+    }
+
+    public static CurrencyChangedEvent created(Currency currency) {
+        return new CurrencyChangedEvent(Type.CREATED, currency.getTicker(), currency, currency.getVersion(),
+            System.currentTimeMillis());
+    }
+
+    public static CurrencyChangedEvent updated(String ticker, Currency currency) {
+        return new CurrencyChangedEvent(Type.UPDATED, ticker, currency, currency.getVersion(), System.currentTimeMillis());
+    }
+
+    /**
+     * @param ticker The ticker of the deleted {@link Currency}
+     * @param version A version taken after the delete, so it is higher than the version of any deleted state
+     */
+    public static CurrencyChangedEvent deleted(String ticker, long version) {
+        return new CurrencyChangedEvent(Type.DELETED, ticker, null, version, System.currentTimeMillis());
+    }
+
+    /**
+     * @return Returns the kind of write
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return Returns the ticker the write was addressed to
+     */
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return Returns the new state of the {@link Currency}, null when it has been deleted
+     */
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return Returns the version of the new state of the {@link Currency}, or of the delete
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Returns true when an update changed the ticker of the {@link Currency}
+     */
+    public boolean isRename() {
+        return currency != null && !currency.getTicker().equals(ticker);
+    }
+
+    /**
+     * @return Returns the time of the write in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "CurrencyChangedEvent{" + type + " " + ticker + (currency == null ? "" : " " + currency) + "}";
+    }
+}
@@ -0,0 +1,100 @@
+package nl.wesleyblom.crypto.api.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes every {@link Currency} as newline delimited JSON.
+ *
+ * Rows are read through {@link CurrencyRepository#streamAll()} and detached as soon as they have been written,
+ * so memory use does not depend on the size of the table. Rows are not flushed one by one, the output is only flushed
+ * when the buffer of the generator is full and once at the end.
+ *
+ * @author Wesley
+ * @date 2019-03-08
+ */
+
+@Component
+public class CurrencyExporter {
+
+    private final CurrencyRepository currencyRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructor for the exporter
+     *
+     * @param currencyRepository The repository to stream the {@link Currency} objects from
+     * @param entityManager The shared entity manager used to detach written entities
+     * @param objectMapper The mapper to serialize each {@link Currency} with
+     * @param transactionManager The transaction manager for the read only export transaction
+     */
+    public CurrencyExporter(CurrencyRepository currencyRepository, EntityManager entityManager, ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager) {
+        this.currencyRepository = currencyRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(Currency.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Writes all {@link Currency} objects to the given stream, one JSON object per line.
+     * The stream is flushed but not closed.
+     *
+     * @param out The stream to write to
+     * @return Returns the number of {@link Currency} objects written
+     * @throws IOException when writing to the stream fails
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return write(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long write(OutputStream out) throws IOException {
+        long count = 0;
+
+        try (Stream<Currency> currencies = currencyRepository.streamAll();
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Currency> iterator = currencies.iterator();
+            while (iterator.hasNext()) {
+                Currency currency = iterator.next();
+                writer.writeValue(generator, currency);
+                generator.writeRaw('\n');
+                entityManager.detach(currency);
+                count++;
+            }
+            // Closing the generator writes what is left in its buffer and flushes the stream, without closing it
+        }
+
+        return count;
+    }
+}
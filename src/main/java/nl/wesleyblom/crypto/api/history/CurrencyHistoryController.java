@@ -0,0 +1,138 @@
+package nl.wesleyblom.crypto.api.history;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST endpoint with the market cap history of a {@link Currency}
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/currencies/{ticker}/history")
+public class CurrencyHistoryController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyHistoryController.class);
+
+    private static final Pattern STEP = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+
+    @Autowired
+    CurrencyHistoryStore currencyHistoryStore;
+
+    @Value("${currency.history.max-buckets:10000}")
+    int maxBuckets;
+
+    /**
+     * Endpoint to retrieve the market cap history of a ticker, downsampled to open, high, low and close per step
+     * Buckets are aligned to the epoch, buckets without points are left out.
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @param from The start of the range as ISO-8601 instant or milliseconds since the epoch, inclusive.
+     *             Defaults to the widest range allowed before to
+     * @param to The end of the range as ISO-8601 instant or milliseconds since the epoch, exclusive. Defaults to now
+     * @param step The length of a bucket, like 30s, 1m, 4h, 1d or an ISO-8601 duration
+     * @return Returns {@link HttpStatus#OK} with the {@link HistoryBucket} objects of the range
+     *         Returns {@link HttpStatus#BAD_REQUEST} when a parameter is invalid or the range has more than
+     *         currency.history.max-buckets steps
+     *         Returns {@link HttpStatus#NOT_FOUND} when no history has been recorded for the ticker
+     */
+    @GetMapping
+    public ResponseEntity<List<HistoryBucket>> getHistory(@PathVariable String ticker,
+        @RequestParam(required = false) String from,
+        @RequestParam(required = false) String to,
+        @RequestParam(defaultValue = "1m") String step) throws IOException {
+
+        long stepMillis;
+        long toMillis;
+        long fromMillis;
+        long steps;
+        try {
+            stepMillis = parseStep(step);
+            toMillis = to == null ? System.currentTimeMillis() : parseTime(to);
+            fromMillis = from == null ? Math.subtractExact(toMillis, Math.multiplyExact(stepMillis, maxBuckets)) : parseTime(from);
+            steps = Math.subtractExact(toMillis, fromMillis) / stepMillis;
+        } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) {
+            logger.debug("Bad request for history of ticker [{}]: [{}]", ticker, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        if (fromMillis > toMillis || steps > maxBuckets) {
+            logger.debug("Bad request for history of ticker [{}]: invalid range", ticker);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        Optional<List<HistoryBucket>> buckets = currencyHistoryStore.query(ticker, fromMillis, toMillis, stepMillis);
+        if (!buckets.isPresent()) {
+            logger.debug("Request for history of unknown ticker [{}]", ticker);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+
+        logger.debug("Request for history of ticker [{}] - serving [{}] buckets", ticker, buckets.get().size());
+        return ResponseEntity.status(HttpStatus.OK).body(buckets.get());
+    }
+
+    /**
+     * @return Returns the time in milliseconds since the epoch, given as ISO-8601 instant or as milliseconds
+     */
+    static long parseTime(String time) {
+        if (!time.isEmpty() && time.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(time);
+        }
+        return Instant.parse(time).toEpochMilli();
+    }
+
+    /**
+     * @return Returns the positive step in milliseconds, given like 30s, 1m, 4h, 1d or as ISO-8601 duration
+     */
+    static long parseStep(String step) {
+        Matcher matcher = STEP.matcher(step);
+        long millis;
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "ms":
+                    millis = amount;
+                    break;
+                case "s":
+                    millis = Math.multiplyExact(amount, 1000L);
+                    break;
+                case "m":
+                    millis = Math.multiplyExact(amount, 60_000L);
+                    break;
+                case "h":
+                    millis = Math.multiplyExact(amount, 3_600_000L);
+                    break;
+                default:
+                    millis = Math.multiplyExact(amount, 86_400_000L);
+            }
+        } else {
+            millis = Duration.parse(step).toMillis();
+        }
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Step needs to be positive: " + step);
+        }
+        return millis;
+    }
+}
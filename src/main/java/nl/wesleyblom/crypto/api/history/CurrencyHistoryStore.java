@@ -0,0 +1,252 @@
+package nl.wesleyblom.crypto.api.history;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.PreDestroy;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Market cap history of every ticker, one {@link HistoryFile} per ticker in currency.history.directory
+ *
+ * Every write creating or updating a {@link Currency} appends a point to the file of its (new) ticker. History is
+ * kept when a {@link Currency} is deleted or renamed, a ticker created again continues its old history.
+ * Points are not forced to disk on every write, the operating system writes the mapped pages back; they are forced
+ * when a file is closed.
+ *
+ * At most currency.history.max-open-files files are kept open, so writes of many tickers can not run out of file
+ * descriptors or memory mappings. When more are opened, the least recently used files that are not being read or
+ * written are closed; their mapping is released once it has been garbage collected.
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+@Component
+public class CurrencyHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyHistoryStore.class);
+
+    private static final String SUFFIX = ".hist";
+
+    private final Path directory;
+    private final int initialCapacity;
+    private final int maxOpenFiles;
+
+    // Guarded by itself, ordered from least to most recently used
+    private final Map<String, OpenFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructor for the store
+     *
+     * @param directory The directory to keep the history files in, created when it does not exist
+     * @param initialCapacity The number of points a new history file has room for before it is grown
+     * @param maxOpenFiles The number of history files kept open
+     * @throws IOException when the directory can not be created
+     */
+    public CurrencyHistoryStore(@Value("${currency.history.directory}") String directory,
+        @Value("${currency.history.initial-capacity:4096}") int initialCapacity,
+        @Value("${currency.history.max-open-files:256}") int maxOpenFiles) throws IOException {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException("The number of open history files needs to be positive");
+        }
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.initialCapacity = initialCapacity;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Records the new market cap of a created or updated {@link Currency}. A failure is logged, the write itself has
+     * already succeeded.
+     *
+     * @param event The write
+     */
+    @EventListener
+    public void onCurrencyChanged(CurrencyChangedEvent event) {
+        Currency currency = event.getCurrency();
+        if (currency == null) {
+            return;
+        }
+        try {
+            append(currency.getTicker(), event.getTimestamp(), currency.getMarketCap(), currency.getNumberOfCoins());
+        } catch (IOException e) {
+            logger.warn("Could not record history of ticker [{}]: [{}]", currency.getTicker(), e.toString());
+        }
+    }
+
+    /**
+     * Appends a point to the history of a ticker
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @param timestamp The time of the point in milliseconds since the epoch
+     * @param marketCap The market cap at that time
+     * @param numberOfCoins The number of coins at that time
+     * @throws IOException when the history file can not be opened or grown
+     */
+    public void append(String ticker, long timestamp, long marketCap, long numberOfCoins) throws IOException {
+        OpenFile file = acquire(ticker, true);
+        try {
+            file.history.append(timestamp, marketCap, numberOfCoins);
+        } finally {
+            release(file);
+        }
+    }
+
+    /**
+     * Aggregates the history of a ticker into buckets
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @param from The start of the range in milliseconds since the epoch, inclusive
+     * @param to The end of the range in milliseconds since the epoch, exclusive
+     * @param step The length of a bucket in milliseconds
+     * @return Returns the buckets containing at least one point ordered by time, empty when the ticker has no history
+     * @throws IOException when the history file can not be opened
+     */
+    public Optional<List<HistoryBucket>> query(String ticker, long from, long to, long step) throws IOException {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Step needs to be positive");
+        }
+        OpenFile file = acquire(ticker, false);
+        if (file == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(file.history.buckets(from, to, step));
+        } finally {
+            release(file);
+        }
+    }
+
+    /**
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns the number of points recorded for the ticker
+     * @throws IOException when the history file can not be opened
+     */
+    public int size(String ticker) throws IOException {
+        OpenFile file = acquire(ticker, false);
+        if (file == null) {
+            return 0;
+        }
+        try {
+            return file.history.size();
+        } finally {
+            release(file);
+        }
+    }
+
+    /**
+     * @return Returns the number of history files currently open
+     */
+    public int openFileCount() {
+        synchronized (files) {
+            return files.size();
+        }
+    }
+
+    /**
+     * Forces all history files to disk and closes them
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (files) {
+            for (Map.Entry<String, OpenFile> entry : files.entrySet()) {
+                close(entry.getKey(), entry.getValue());
+            }
+            files.clear();
+        }
+    }
+
+    /**
+     * Opens the history file of a ticker, or returns it when it is already open, and marks it as in use until it is
+     * released. Files of unknown tickers are only created for writes, so reads can not fill the directory.
+     *
+     * @return Returns the file, or null when it does not exist and create is false
+     */
+    private OpenFile acquire(String ticker, boolean create) throws IOException {
+        synchronized (files) {
+            OpenFile file = files.get(ticker);
+            if (file == null) {
+                Path path = directory.resolve(fileName(ticker));
+                if (!create && !Files.isRegularFile(path)) {
+                    return null;
+                }
+                file = new OpenFile(new HistoryFile(path, initialCapacity));
+                files.put(ticker, file);
+                closeIdleFiles();
+            }
+            file.users++;
+            return file;
+        }
+    }
+
+    private void release(OpenFile file) {
+        synchronized (files) {
+            file.users--;
+        }
+    }
+
+    /**
+     * Closes the least recently used files until no more than the maximum are open. Files in use are skipped, they
+     * can only be closed once released, else a second file of the same ticker could be opened while one is appending.
+     */
+    private void closeIdleFiles() {
+        Iterator<Map.Entry<String, OpenFile>> iterator = files.entrySet().iterator();
+        while (files.size() > maxOpenFiles && iterator.hasNext()) {
+            Map.Entry<String, OpenFile> entry = iterator.next();
+            if (entry.getValue().users == 0) {
+                iterator.remove();
+                close(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void close(String ticker, OpenFile file) {
+        try {
+            file.history.close();
+        } catch (IOException e) {
+            logger.warn("Could not close history of ticker [{}]: [{}]", ticker, e.toString());
+        }
+    }
+
+    /**
+     * Upper case letters and digits are kept, every other byte is written as an underscore and two hex digits.
+     * Tickers differing only in case get different names, also on file systems that ignore case.
+     */
+    static String fileName(String ticker) {
+        StringBuilder name = new StringBuilder(ticker.length() + SUFFIX.length());
+        for (byte b : ticker.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')) {
+                name.append((char) b);
+            } else {
+                name.append('_').append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    /**
+     * A {@link HistoryFile} with the number of appends and queries using it, only accessed while holding the map
+     */
+    private static final class OpenFile {
+
+        private final HistoryFile history;
+        private int users;
+
+        private OpenFile(HistoryFile history) {
+            this.history = history;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package nl.wesleyblom.crypto.api.history;
+
+/**
+ * Market cap of a ticker within one time bucket: open, high, low and close, with the number of coins at the close
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+public class HistoryBucket {
+
+    private final long time;
+    private final long open;
+    private final long high;
+    private final long low;
+    private final long close;
+    private final long numberOfCoins;
+    private final int count;
+
+    /**
+     * Constructor for a HistoryBucket
+     *
+     * @param time The start of the bucket in milliseconds since the epoch
+     * @param open The market cap of the first point in the bucket
+     * @param high The highest market cap in the bucket
+     * @param low The lowest market cap in the bucket
+     * @param close The market cap of the last point in the bucket
+     * @param numberOfCoins The number of coins of the last point in the bucket
+     * @param count The number of points in the bucket
+     */
+    public HistoryBucket(long time, long open, long high, long low, long close, long numberOfCoins, int count) {
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.numberOfCoins = numberOfCoins;
+        this.count = count;
+    }
+
+    /**
+     * @return Returns the start of the bucket in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return Returns the market cap of the first point in the bucket
+     */
+    public long getOpen() {
+        return open;
+    }
+
+    /**
+     * @return Returns the highest market cap in the bucket
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return Returns the lowest market cap in the bucket
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return Returns the market cap of the last point in the bucket
+     */
+    public long getClose() {
+        return close;
+    }
+
+    /**
+     * @return Returns the number of coins of the last point in the bucket
+     */
+    public long getNumberOfCoins() {
+        return numberOfCoins;
+    }
+
+    /**
+     * @return Returns the number of points in the bucket
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryBucket{" +
+            "time=" + time +
+            ", open=" + open +
+            ", high=" + high +
+            ", low=" + low +
+            ", close=" + close +
+            ", numberOfCoins=" + numberOfCoins +
+            ", count=" + count +
+            '}';
+    }
+}
@@ -0,0 +1,209 @@
+package nl.wesleyblom.crypto.api.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of market cap points of a single ticker, read and written through a memory mapping
+ *
+ * The file starts with a header of 16 bytes: a magic number, the record size and the number of records. Records are
+ * 24 bytes each: the time in milliseconds since the epoch, the market cap and the number of coins. Times never
+ * decrease, so a time range is found with a binary search and aggregated in a single pass without creating an object
+ * per point.
+ *
+ * Appends are serialized, reads run concurrently with them. A record is written before the count is advanced, and
+ * readers only look at records below the count they have seen. When the mapping is full the file is mapped again
+ * with twice the capacity.
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+final class HistoryFile implements Closeable {
+
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 24;
+    static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    private static final int MAGIC = 0x43484953;
+    private static final int COUNT_OFFSET = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private volatile MappedByteBuffer buffer;
+    private volatile int count;
+    private int capacity;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Opens the file, creating it when it does not exist yet
+     *
+     * @param path The location of the file
+     * @param initialCapacity The number of records to map when the file is created
+     * @throws IOException when the file can not be opened or is not a history file
+     */
+    HistoryFile(Path path, int initialCapacity) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                map(Math.max(1, Math.min(initialCapacity, MAX_RECORDS)));
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, RECORD_BYTES);
+                buffer.putLong(COUNT_OFFSET, 0);
+            } else {
+                open();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            throw new IOException("History file " + path + " is truncated");
+        }
+        map((int) Math.min((channel.size() - HEADER_BYTES) / RECORD_BYTES, MAX_RECORDS));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_BYTES) {
+            throw new IOException("File " + path + " is not a history file");
+        }
+        long stored = buffer.getLong(COUNT_OFFSET);
+        if (stored < 0 || stored > capacity) {
+            throw new IOException("History file " + path + " has an invalid record count " + stored);
+        }
+        count = (int) stored;
+        if (count > 0) {
+            lastTimestamp = timestamp(buffer, count - 1);
+        }
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+        capacity = records;
+    }
+
+    /**
+     * Appends a point. A time before the last point is recorded as the time of the last point, so times stay ordered
+     * when the clock is set back.
+     *
+     * @param timestamp The time of the point in milliseconds since the epoch
+     * @param marketCap The market cap at that time
+     * @param numberOfCoins The number of coins at that time
+     * @throws IOException when the file can not be grown
+     */
+    synchronized void append(long timestamp, long marketCap, long numberOfCoins) throws IOException {
+        int index = count;
+        if (index == capacity) {
+            if (capacity == MAX_RECORDS) {
+                throw new IOException("History file " + path + " is full");
+            }
+            map((int) Math.min(Math.max(1L, (long) capacity * 2), MAX_RECORDS));
+        }
+
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        int offset = HEADER_BYTES + index * RECORD_BYTES;
+        MappedByteBuffer records = buffer;
+        records.putLong(offset, lastTimestamp);
+        records.putLong(offset + 8, marketCap);
+        records.putLong(offset + 16, numberOfCoins);
+        records.putLong(COUNT_OFFSET, index + 1);
+        count = index + 1;
+    }
+
+    /**
+     * @return Returns the number of points in the file
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Aggregates the points in a time range into buckets of a fixed length, aligned to the epoch
+     *
+     * @param from The start of the range in milliseconds since the epoch, inclusive
+     * @param to The end of the range in milliseconds since the epoch, exclusive
+     * @param step The length of a bucket in milliseconds
+     * @return Returns the buckets containing at least one point, ordered by time
+     */
+    List<HistoryBucket> buckets(long from, long to, long step) {
+        // count before buffer, a buffer read after the count always holds that many records
+        int size = count;
+        MappedByteBuffer records = buffer;
+
+        int first = lowerBound(records, size, from);
+        int last = lowerBound(records, size, to);
+        List<HistoryBucket> buckets = new ArrayList<>();
+        if (first == last) {
+            return buckets;
+        }
+
+        long start = Long.MIN_VALUE;
+        long open = 0;
+        long high = 0;
+        long low = 0;
+        long close = 0;
+        long numberOfCoins = 0;
+        int points = 0;
+        for (int index = first; index < last; index++) {
+            int offset = HEADER_BYTES + index * RECORD_BYTES;
+            long bucket = Math.floorDiv(records.getLong(offset), step) * step;
+            long marketCap = records.getLong(offset + 8);
+            if (bucket != start) {
+                if (points > 0) {
+                    buckets.add(new HistoryBucket(start, open, high, low, close, numberOfCoins, points));
+                }
+                start = bucket;
+                open = marketCap;
+                high = marketCap;
+                low = marketCap;
+                points = 0;
+            } else {
+                high = Math.max(high, marketCap);
+                low = Math.min(low, marketCap);
+            }
+            close = marketCap;
+            numberOfCoins = records.getLong(offset + 16);
+            points++;
+        }
+        buckets.add(new HistoryBucket(start, open, high, low, close, numberOfCoins, points));
+        return buckets;
+    }
+
+    /**
+     * @return Returns the index of the first record at or after the given time, or size when there is none
+     */
+    private static int lowerBound(MappedByteBuffer records, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamp(records, middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long timestamp(MappedByteBuffer records, int index) {
+        return records.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    /**
+     * Writes the mapped records to disk and closes the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
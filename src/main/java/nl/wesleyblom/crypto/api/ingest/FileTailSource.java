@@ -0,0 +1,177 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows a file like tail -F, handing every complete line to a consumer
+ *
+ * Reading starts at the end of the file, lines written before the source started are skipped. At the end of the file
+ * the source polls for new data; a line is only handed over once its line separator has been written. When the file
+ * is truncated or replaced it is read again from the start, a file that does not exist yet is waited for and read
+ * from the start. Lines longer than the maximum are dropped and reported, so a file without line separators can not
+ * fill the heap.
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class FileTailSource implements UpdateSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileTailSource.class);
+
+    private final Path path;
+    private final Consumer<String> lines;
+    private final Runnable overlongLines;
+    private final long pollMillis;
+    private final int maxLineBytes;
+
+    private volatile boolean running;
+    private Thread reader;
+
+    /**
+     * Constructor for the source
+     *
+     * @param path The file to follow
+     * @param lines The consumer of every line, without line separator
+     * @param overlongLines Called for every line that is dropped because it is longer than the maximum
+     * @param pollMillis The time to wait for new data at the end of the file
+     * @param maxLineBytes The maximum length of a line in bytes, without line separator
+     */
+    public FileTailSource(Path path, Consumer<String> lines, Runnable overlongLines, long pollMillis, int maxLineBytes) {
+        if (maxLineBytes < 1) {
+            throw new IllegalArgumentException("The maximum line length needs to be positive");
+        }
+        this.path = path;
+        this.lines = lines;
+        this.overlongLines = overlongLines;
+        this.pollMillis = pollMillis;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        reader = new Thread(this::run, "ingest-file");
+        reader.setDaemon(true);
+        reader.start();
+        logger.info("Ingesting updates from file [{}]", path);
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (reader != null) {
+            reader.interrupt();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reader = null;
+        }
+    }
+
+    private void run() {
+        // Only the file found at start is skipped, a file created, truncated or replaced later is new data
+        boolean fromStart = false;
+        while (running) {
+            try {
+                if (Files.isRegularFile(path)) {
+                    follow(fromStart);
+                    fromStart = true;
+                } else {
+                    fromStart = true;
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Could not read updates from [{}]: [{}]", path, e.toString());
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Reads the file until it is truncated or replaced
+     *
+     * @param fromStart Whether to read the lines already in the file, else reading starts at the end
+     */
+    private void follow(boolean fromStart) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            boolean overlong = false;
+            long position = fromStart ? 0 : channel.size();
+
+            while (running) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read > 0) {
+                    position += read;
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        byte b = buffer.get();
+                        if (b == '\n') {
+                            if (overlong) {
+                                overlongLines.run();
+                                overlong = false;
+                            } else {
+                                lines.accept(line.toString(StandardCharsets.UTF_8.name()));
+                            }
+                            line.reset();
+                        } else if (b != '\r' && !overlong) {
+                            if (line.size() == maxLineBytes) {
+                                logger.debug("Dropping line of more than [{}] bytes from [{}]", maxLineBytes, path);
+                                overlong = true;
+                                line.reset();
+                            } else {
+                                line.write(b);
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                Thread.sleep(pollMillis);
+                if (channel.size() < position || replaced(fileKey)) {
+                    logger.info("File [{}] has been truncated or replaced, reading it from the start", path);
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean replaced(Object fileKey) {
+        try {
+            return fileKey != null
+                && !fileKey.equals(Files.readAttributes(path, BasicFileAttributes.class).fileKey());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
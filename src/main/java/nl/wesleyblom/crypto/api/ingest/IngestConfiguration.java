@@ -0,0 +1,58 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Paths;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Ingestion of market updates, active with the profile 'ingest'
+ *
+ * Updates are read from the file currency.ingest.file and from connections to the loopback port
+ * currency.ingest.port, each source only when its property is set.
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+@Configuration
+@Profile("ingest")
+public class IngestConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public IngestPipeline ingestPipeline(CurrencyRepository currencyRepository, CurrencyCache currencyCache,
+        CurrencyVersions currencyVersions, ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager, ObjectProvider<MeterRegistry> meterRegistry,
+        @Value("${currency.ingest.queue-capacity:10000}") int queueCapacity,
+        @Value("${currency.ingest.batch-size:500}") int batchSize,
+        @Value("${currency.ingest.window-ms:100}") long windowMillis,
+        @Value("${currency.ingest.offer-timeout-ms:1000}") long offerTimeoutMillis) {
+        return new IngestPipeline(currencyRepository, currencyCache, currencyVersions, eventPublisher, transactionManager,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new), queueCapacity, batchSize, windowMillis, offerTimeoutMillis);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty("currency.ingest.file")
+    public FileTailSource fileTailSource(IngestPipeline ingestPipeline, @Value("${currency.ingest.file}") String file,
+        @Value("${currency.ingest.file-poll-ms:50}") long pollMillis,
+        @Value("${currency.ingest.max-line-bytes:4096}") int maxLineBytes) {
+        return new FileTailSource(Paths.get(file), ingestPipeline::submit, ingestPipeline::rejectInvalid, pollMillis,
+            maxLineBytes);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty("currency.ingest.port")
+    public SocketSource socketSource(IngestPipeline ingestPipeline, @Value("${currency.ingest.port}") int port) {
+        return new SocketSource(port, ingestPipeline::submit);
+    }
+}
@@ -0,0 +1,374 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.PersistenceException;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind path for market updates arriving faster than single requests can write them
+ *
+ * Sources submit {@link PriceUpdate} objects to a bounded queue. A single flusher thread takes updates for at most
+ * one window after the first one arrived, keeping only the latest update per ticker, and writes them in one
+ * transaction with a statement per ticker. When the queue is full a source waits for room, up to a timeout after
+ * which the update is dropped; a waiting source stops reading, which pushes back on whoever sends the updates.
+ *
+ * Written tickers are evicted from the {@link CurrencyCache} and published as {@link CurrencyChangedEvent} after the
+ * transaction, like writes through the API. Updates of unknown tickers are counted and ignored, updates only change
+ * the market cap and number of coins of existing currencies.
+ *
+ * Published meters: ingest.updates tagged with the outcome (received, invalid, merged, dropped, unknown, applied,
+ * failed), ingest.backpressure counting submits that had to wait, ingest.queue.size, ingest.flush timing the
+ * transactions and ingest.latency timing from receiving the oldest update of a batch until it was written.
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class IngestPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS);
+
+    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
+    private final CurrencyVersions currencyVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PriceUpdate> queue;
+    private final int batchSize;
+    private final long windowNanos;
+    private final long offerTimeoutMillis;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong backpressure = new AtomicLong();
+    private final Timer flushTimer;
+    private final Timer latencyTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructor for the pipeline
+     *
+     * @param currencyRepository The repository to write updates with
+     * @param currencyCache The cache to evict written tickers from
+     * @param currencyVersions The counter to take the version of each written {@link Currency} from
+     * @param eventPublisher The publisher to report every written {@link Currency} to
+     * @param transactionManager The transaction manager used for each batch
+     * @param meterRegistry The registry to publish the counters and timers in
+     * @param queueCapacity The maximum number of updates waiting to be written
+     * @param batchSize The maximum number of tickers written per transaction
+     * @param windowMillis The time updates are collected for after the first one of a batch arrived
+     * @param offerTimeoutMillis The time a source waits for room in a full queue before the update is dropped
+     */
+    public IngestPipeline(CurrencyRepository currencyRepository, CurrencyCache currencyCache,
+        CurrencyVersions currencyVersions, ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+        int queueCapacity, int batchSize, long windowMillis, long offerTimeoutMillis) {
+        if (queueCapacity < 1 || batchSize < 1 || windowMillis < 0 || offerTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size need to be positive, timeouts can not be negative");
+        }
+        this.currencyRepository = currencyRepository;
+        this.currencyCache = currencyCache;
+        this.currencyVersions = currencyVersions;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+
+        updates(meterRegistry, "received", received);
+        updates(meterRegistry, "invalid", invalid);
+        updates(meterRegistry, "merged", merged);
+        updates(meterRegistry, "dropped", dropped);
+        updates(meterRegistry, "unknown", unknown);
+        updates(meterRegistry, "applied", applied);
+        updates(meterRegistry, "failed", failed);
+        FunctionCounter.builder("ingest.backpressure", backpressure, AtomicLong::get)
+            .description("The number of updates that had to wait for room in the queue")
+            .register(meterRegistry);
+        Gauge.builder("ingest.queue.size", queue, Collection::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("ingest.flush")
+            .description("The time to write a batch")
+            .register(meterRegistry);
+        this.latencyTimer = Timer.builder("ingest.latency")
+            .description("The time from receiving the oldest update of a batch until the batch was written")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    private static void updates(MeterRegistry registry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("ingest.updates", count, AtomicLong::get)
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    /**
+     * Starts the flusher thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "ingest-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Ingesting updates in batches of at most [{}] tickers every [{}] ms", batchSize,
+            TimeUnit.NANOSECONDS.toMillis(windowNanos));
+    }
+
+    /**
+     * Stops the flusher thread after the queued updates have been written
+     */
+    public synchronized void stop() {
+        running = false;
+        if (flusher == null) {
+            return;
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+    }
+
+    /**
+     * Counts an update that a source could not read, like a line longer than the source allows
+     */
+    public void rejectInvalid() {
+        invalid.incrementAndGet();
+    }
+
+    /**
+     * Parses and queues an update, see {@link PriceUpdate#parse(String)}
+     *
+     * @param line The update
+     * @return Returns true when the update has been queued
+     */
+    public boolean submit(String line) {
+        if (line.trim().isEmpty()) {
+            return false;
+        }
+        PriceUpdate update;
+        try {
+            update = PriceUpdate.parse(line);
+        } catch (IllegalArgumentException e) {
+            invalid.incrementAndGet();
+            logger.debug("Invalid update [{}]: [{}]", line, e.getMessage());
+            return false;
+        }
+        return submit(update);
+    }
+
+    /**
+     * Queues an update, waiting for room when the queue is full
+     *
+     * @param update The update
+     * @return Returns true when the update has been queued, false when it has been dropped
+     */
+    public boolean submit(PriceUpdate update) {
+        received.incrementAndGet();
+        if (queue.offer(update)) {
+            return true;
+        }
+
+        backpressure.incrementAndGet();
+        try {
+            if (queue.offer(update, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private void run() {
+        Map<String, PriceUpdate> batch = new LinkedHashMap<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PriceUpdate first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                long deadline = first.getReceivedNanos() + windowNanos;
+                add(batch, first);
+                while (batch.size() < batchSize) {
+                    // checked for every update, a steady stream for fewer than batchSize tickers still closes the window
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PriceUpdate next = queue.poll();
+                    if (next == null) {
+                        if (!running) {
+                            break;
+                        }
+                        // wait in slices, so stopping does not wait for the whole window
+                        next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            continue;
+                        }
+                    }
+                    add(batch, next);
+                }
+                write(batch.values(), first.getReceivedNanos());
+            } catch (InterruptedException e) {
+                logger.warn("Ingest flusher interrupted, [{}] updates left in the queue", queue.size());
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Ingest flusher failed to write a batch", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void add(Map<String, PriceUpdate> batch, PriceUpdate update) {
+        if (batch.put(update.getTicker(), update) != null) {
+            merged.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the latest update of every ticker in a single transaction
+     *
+     * @param updates The updates, at most one per ticker
+     * @param oldestNanos The {@link System#nanoTime()} the oldest update of the batch was received at
+     */
+    void write(Collection<PriceUpdate> updates, long oldestNanos) {
+        long start = System.nanoTime();
+        List<Currency> written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                List<String> tickers = new ArrayList<>(updates.size());
+                for (PriceUpdate update : updates) {
+                    if (currencyRepository.updateMarket(update.getTicker(), update.getMarketCap(),
+                        update.getNumberOfCoins(), currencyVersions.next()) > 0) {
+                        tickers.add(update.getTicker());
+                    }
+                }
+                if (tickers.isEmpty()) {
+                    return Collections.<Currency>emptyList();
+                }
+                List<Currency> currencies = new ArrayList<>(tickers.size());
+                currencyRepository.findAllById(tickers).forEach(currencies::add);
+                return currencies;
+            });
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            failed.addAndGet(updates.size());
+            logger.warn("Could not write batch of [{}] updates: [{}]", updates.size(), e.toString());
+            return;
+        }
+
+        currencyVersions.written();
+        for (Currency currency : written) {
+            currencyCache.evict(currency.getTicker());
+            eventPublisher.publishEvent(CurrencyChangedEvent.updated(currency.getTicker(), currency));
+        }
+        applied.addAndGet(written.size());
+        unknown.addAndGet(updates.size() - written.size());
+
+        long end = System.nanoTime();
+        flushTimer.record(end - start, TimeUnit.NANOSECONDS);
+        latencyTimer.record(end - oldestNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Returns the number of updates submitted, including dropped ones
+     */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * @return Returns the number of lines that were not a valid update
+     */
+    public long getInvalidCount() {
+        return invalid.get();
+    }
+
+    /**
+     * @return Returns the number of updates replaced by a later update of the same ticker before they were written
+     */
+    public long getMergedCount() {
+        return merged.get();
+    }
+
+    /**
+     * @return Returns the number of updates dropped because the queue stayed full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Returns the number of written updates of tickers that do not exist
+     */
+    public long getUnknownCount() {
+        return unknown.get();
+    }
+
+    /**
+     * @return Returns the number of updates written
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * @return Returns the number of updates lost because their batch could not be written
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return Returns the number of updates that had to wait for room in the queue
+     */
+    public long getBackpressureCount() {
+        return backpressure.get();
+    }
+
+    /**
+     * @return Returns the number of updates waiting to be written
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+}
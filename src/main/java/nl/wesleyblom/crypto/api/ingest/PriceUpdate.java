@@ -0,0 +1,118 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+
+/**
+ * New market cap and number of coins of a ticker, as received by the {@link IngestPipeline}
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class PriceUpdate {
+
+    private static final ObjectReader JSON = new ObjectMapper().readerFor(JsonNode.class);
+
+    private final String ticker;
+    private final long marketCap;
+    private final long numberOfCoins;
+    private final long receivedNanos;
+
+    /**
+     * Constructor for a PriceUpdate
+     *
+     * @param ticker The short name of the {@link nl.wesleyblom.crypto.api.model.Currency}
+     * @param marketCap The new market cap
+     * @param numberOfCoins The new number of coins
+     * @param receivedNanos The {@link System#nanoTime()} the update was received at
+     */
+    public PriceUpdate(String ticker, long marketCap, long numberOfCoins, long receivedNanos) {
+        this.ticker = ticker;
+        this.marketCap = marketCap;
+        this.numberOfCoins = numberOfCoins;
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * Reads an update from a line, either comma separated as ticker,marketCap,numberOfCoins or as JSON object with
+     * the fields ticker, marketCap and numberOfCoins
+     *
+     * @param line The line without line separator
+     * @return Returns the update, received now
+     * @throws IllegalArgumentException when the line is not a valid update
+     */
+    public static PriceUpdate parse(String line) {
+        String trimmed = line.trim();
+        String ticker;
+        long marketCap;
+        long numberOfCoins;
+        if (trimmed.startsWith("{")) {
+            JsonNode node;
+            try {
+                node = JSON.readValue(trimmed);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed JSON update", e);
+            }
+            if (!node.path("ticker").isTextual() || !node.path("marketCap").canConvertToLong()
+                || !node.path("numberOfCoins").canConvertToLong()) {
+                throw new IllegalArgumentException("Update needs a ticker, marketCap and numberOfCoins");
+            }
+            ticker = node.get("ticker").asText();
+            marketCap = node.get("marketCap").asLong();
+            numberOfCoins = node.get("numberOfCoins").asLong();
+        } else {
+            String[] fields = trimmed.split(",", -1);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Update needs 3 comma separated fields");
+            }
+            ticker = fields[0].trim();
+            marketCap = Long.parseLong(fields[1].trim());
+            numberOfCoins = Long.parseLong(fields[2].trim());
+        }
+
+        if (ticker.isEmpty() || ticker.length() > 5) {
+            throw new IllegalArgumentException("Ticker needs a length between 1 and 5");
+        }
+        return new PriceUpdate(ticker, marketCap, numberOfCoins, System.nanoTime());
+    }
+
+    /**
+     * @return Returns the short name of the {@link nl.wesleyblom.crypto.api.model.Currency}
+     */
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return Returns the new market cap
+     */
+    public long getMarketCap() {
+        return marketCap;
+    }
+
+    /**
+     * @return Returns the new number of coins
+     */
+    public long getNumberOfCoins() {
+        return numberOfCoins;
+    }
+
+    /**
+     * @return Returns the {@link System#nanoTime()} the update was received at
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceUpdate{" +
+            "ticker='" + ticker + '\'' +
+            ", marketCap=" + marketCap +
+            ", numberOfCoins=" + numberOfCoins +
+            '}';
+    }
+}
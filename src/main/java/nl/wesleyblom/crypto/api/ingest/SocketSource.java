@@ -0,0 +1,105 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accepts connections on the loopback interface and hands every line they send to a consumer
+ *
+ * Every connection is read by its own thread. While the consumer waits for room the connection is not read, so the
+ * sender is slowed down by TCP flow control instead of updates piling up in memory.
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class SocketSource implements UpdateSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketSource.class);
+
+    private final int port;
+    private final Consumer<String> lines;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Constructor for the source
+     *
+     * @param port The port to listen on, 0 for any free port
+     * @param lines The consumer of every line, without line separator
+     */
+    public SocketSource(int port, Consumer<String> lines) {
+        this.port = port;
+        this.lines = lines;
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "ingest-socket");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Ingesting updates from connections on port [{}]", serverSocket.getLocalPort());
+    }
+
+    /**
+     * @return Returns the port the source listens on
+     */
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        ServerSocket server = serverSocket;
+        while (!server.isClosed()) {
+            try {
+                Socket connection = server.accept();
+                connections.add(connection);
+                Thread thread = new Thread(() -> read(connection), "ingest-socket-" + connectionCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    logger.warn("Could not accept update connection: [{}]", e.toString());
+                }
+            }
+        }
+    }
+
+    private void read(Socket connection) {
+        try (Socket socket = connection;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.accept(line);
+            }
+        } catch (IOException e) {
+            logger.debug("Update connection closed: [{}]", e.toString());
+        } finally {
+            connections.remove(connection);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of update lines for the {@link IngestPipeline}, reading on its own threads
+ *
+ * A source hands every line to the pipeline and waits while the pipeline has no room, so it needs to stop reading
+ * instead of buffering when the pipeline falls behind.
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public interface UpdateSource extends Closeable {
+
+    /**
+     * Starts reading
+     *
+     * @throws IOException when the source can not be opened
+     */
+    void start() throws IOException;
+
+    /**
+     * Stops reading, lines that have been handed to the pipeline are still written
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,47 @@
+package nl.wesleyblom.crypto.api.logging;
+
+import java.util.Collections;
+import java.util.Map;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the {@link AccessLogInterceptor} for the API
+ *
+ * Sample rates are read from the properties below {@code access-log.sample-rate}, for example
+ * {@code access-log.sample-rate.2xx=0.01} or {@code access-log.sample-rate.getCurrency.4xx=0.1}.
+ *
+ * @author Wesley
+ * @date 2019-03-16
+ */
+
+@Configuration
+public class AccessLogConfiguration implements WebMvcConfigurer {
+
+    private final Environment environment;
+
+    /**
+     * Constructor for the configuration
+     *
+     * @param environment The environment to read the sample rates from
+     */
+    public AccessLogConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!environment.getProperty("access-log.enabled", Boolean.class, true)) {
+            return;
+        }
+
+        Map<String, Double> rates = Binder.get(environment)
+            .bind("access-log.sample-rate", Bindable.mapOf(String.class, Double.class))
+            .orElse(Collections.emptyMap());
+        registry.addInterceptor(new AccessLogInterceptor(new AccessLogSampler(rates))).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,76 @@
+package nl.wesleyblom.crypto.api.logging;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Writes one line per sampled request to the access log
+ *
+ * The access log is the logger {@value #LOGGER_NAME}. Fields are passed as parameters, so nothing is formatted for
+ * requests that are not sampled or when the logger is disabled. A request whose handler threw an exception that no
+ * resolver handled still has its original status when the interceptor completes, the container turns it into a 500
+ * afterwards. Such a request is always logged, with status 500 and the class of the exception.
+ *
+ * @author Wesley
+ * @date 2019-03-16
+ */
+
+public class AccessLogInterceptor implements HandlerInterceptor {
+
+    /**
+     * Name of the logger the access log is written to
+     */
+    public static final String LOGGER_NAME = "nl.wesleyblom.crypto.api.access";
+
+    private static final Logger accessLog = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private static final String START_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".start";
+    private static final String UNKNOWN_ENDPOINT = "unknown";
+
+    private final AccessLogSampler sampler;
+
+    /**
+     * Constructor for the interceptor
+     *
+     * @param sampler The sampler deciding which requests are logged
+     */
+    public AccessLogInterceptor(AccessLogSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (accessLog.isInfoEnabled()) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+
+        String endpoint = handler instanceof HandlerMethod ? ((HandlerMethod) handler).getMethod().getName() : UNKNOWN_ENDPOINT;
+        int status = ex != null ? HttpStatus.INTERNAL_SERVER_ERROR.value() : response.getStatus();
+        if (ex == null && !sampler.sample(endpoint, status)) {
+            return;
+        }
+
+        long micros = (System.nanoTime() - (Long) start) / 1000;
+        if (ex != null) {
+            accessLog.info("method={} path={} endpoint={} status={} micros={} exception={}",
+                request.getMethod(), request.getRequestURI(), endpoint, status, micros, ex.getClass().getName());
+        } else {
+            accessLog.info("method={} path={} endpoint={} status={} micros={}",
+                request.getMethod(), request.getRequestURI(), endpoint, status, micros);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package nl.wesleyblom.crypto.api.logging;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which requests are written to the access log.
+ *
+ * Requests are sampled per endpoint and per outcome, the outcome being the class of the response status (2xx, 3xx,
+ * 4xx or 5xx). Rates are looked up as {@code <endpoint>.<outcome>} first and as {@code <outcome>} second, an
+ * outcome without a configured rate is always logged. The rates of an endpoint are resolved once and kept, so a
+ * sampling decision does not allocate.
+ *
+ * @author Wesley
+ * @date 2019-03-16
+ */
+
+public class AccessLogSampler {
+
+    private static final String[] OUTCOMES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final Map<String, Double> rates;
+    private final Map<String, double[]> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for the sampler
+     *
+     * @param rates The fraction of requests to log between 0 and 1, keyed by outcome or by endpoint and outcome
+     */
+    public AccessLogSampler(Map<String, Double> rates) {
+        for (Map.Entry<String, Double> rate : rates.entrySet()) {
+            if (rate.getValue() == null || rate.getValue() < 0 || rate.getValue() > 1) {
+                throw new IllegalArgumentException("Sample rate of [" + rate.getKey() + "] needs to be between 0 and 1");
+            }
+        }
+        this.rates = Collections.unmodifiableMap(rates);
+    }
+
+    /**
+     * @param endpoint The name of the handler that served the request
+     * @param status The status of the response
+     * @return Returns true when the request should be logged
+     */
+    public boolean sample(String endpoint, int status) {
+        double rate = rate(endpoint, status);
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * @param endpoint The name of the handler that served the request
+     * @param status The status of the response
+     * @return Returns the fraction of requests with this endpoint and status that is logged
+     */
+    public double rate(String endpoint, int status) {
+        int outcome = status / 100 - 1;
+        if (outcome < 0 || outcome >= OUTCOMES.length) {
+            return 1;
+        }
+        return endpoints.computeIfAbsent(endpoint, this::resolve)[outcome];
+    }
+
+    private double[] resolve(String endpoint) {
+        double[] resolved = new double[OUTCOMES.length];
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            Double rate = rates.get(endpoint + "." + OUTCOMES[i]);
+            if (rate == null) {
+                rate = rates.getOrDefault(OUTCOMES[i], 1.0);
+            }
+            resolved[i] = rate;
+        }
+        return resolved;
+    }
+}
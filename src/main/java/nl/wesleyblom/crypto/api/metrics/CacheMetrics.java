@@ -0,0 +1,100 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import nl.wesleyblom.crypto.api.cache.CompressedPageCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the counters of {@link CurrencyCache}, {@link CurrencyJsonCache} and {@link CompressedPageCache}
+ *
+ * The meters follow the Micrometer cache conventions, cache.gets tagged with result hit or miss, so the hit rate is
+ * hits divided by all gets. The counters are read when the registry is scraped, lookups only increment their own
+ * counters. The compression ratio of the compressed pages is published as cache.compression.ratio, the compressed
+ * size divided by the uncompressed size. Misses that shared the query of a concurrent miss are counted as
+ * cache.coalesced, the queries executed are the misses minus the coalesced misses.
+ *
+ * @author Wesley
+ * @date 2019-03-18
+ */
+
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final CurrencyCache currencyCache;
+    private final CurrencyJsonCache currencyJsonCache;
+    private final CompressedPageCache compressedPageCache;
+
+    /**
+     * Constructor for the metrics
+     *
+     * @param currencyCache The cache of {@link nl.wesleyblom.crypto.api.model.Currency} objects
+     * @param currencyJsonCache The cache of encoded JSON
+     * @param compressedPageCache The cache of compressed list pages
+     */
+    public CacheMetrics(CurrencyCache currencyCache, CurrencyJsonCache currencyJsonCache,
+        CompressedPageCache compressedPageCache) {
+        this.currencyCache = currencyCache;
+        this.currencyJsonCache = currencyJsonCache;
+        this.compressedPageCache = compressedPageCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gets(registry, "currency", "hit", currencyCache, CurrencyCache::getHitCount);
+        gets(registry, "currency", "miss", currencyCache, CurrencyCache::getMissCount);
+        FunctionCounter.builder("cache.evictions", currencyCache, CurrencyCache::getEvictionCount)
+            .tag("cache", "currency")
+            .description("The number of entries removed because they expired or the cache was full")
+            .register(registry);
+        Gauge.builder("cache.size", currencyCache, CurrencyCache::size)
+            .tag("cache", "currency")
+            .register(registry);
+        coalesced(registry, "currency", currencyCache, CurrencyCache::getCoalescedCount);
+
+        gets(registry, "currency-json", "hit", currencyJsonCache, CurrencyJsonCache::getHitCount);
+        gets(registry, "currency-json", "miss", currencyJsonCache, CurrencyJsonCache::getMissCount);
+        Gauge.builder("cache.size", currencyJsonCache, CurrencyJsonCache::size)
+            .tag("cache", "currency-json")
+            .register(registry);
+
+        gets(registry, "currency-page", "hit", currencyJsonCache, CurrencyJsonCache::getPageHitCount);
+        gets(registry, "currency-page", "miss", currencyJsonCache, CurrencyJsonCache::getPageMissCount);
+        Gauge.builder("cache.size", currencyJsonCache, CurrencyJsonCache::pageCount)
+            .tag("cache", "currency-page")
+            .register(registry);
+        coalesced(registry, "currency-page", currencyJsonCache, CurrencyJsonCache::getPageCoalescedCount);
+
+        gets(registry, "currency-page-gzip", "hit", compressedPageCache, CompressedPageCache::getHitCount);
+        gets(registry, "currency-page-gzip", "miss", compressedPageCache, CompressedPageCache::getMissCount);
+        Gauge.builder("cache.size", compressedPageCache, CompressedPageCache::size)
+            .tag("cache", "currency-page-gzip")
+            .register(registry);
+        coalesced(registry, "currency-page-gzip", compressedPageCache, CompressedPageCache::getCoalescedCount);
+        Gauge.builder("cache.compression.ratio", compressedPageCache, CompressedPageCache::getCompressionRatio)
+            .tag("cache", "currency-page-gzip")
+            .description("The compressed size divided by the uncompressed size of all compressed pages")
+            .register(registry);
+    }
+
+    private static <T> void gets(MeterRegistry registry, String cache, String result, T source,
+        ToDoubleFunction<T> count) {
+        FunctionCounter.builder("cache.gets", source, count)
+            .tag("cache", cache)
+            .tag("result", result)
+            .description("The number of times the cache was looked up")
+            .register(registry);
+    }
+
+    private static <T> void coalesced(MeterRegistry registry, String cache, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder("cache.coalesced", source, count)
+            .tag("cache", cache)
+            .description("The number of misses that shared the query of a concurrent miss")
+            .register(registry);
+    }
+}
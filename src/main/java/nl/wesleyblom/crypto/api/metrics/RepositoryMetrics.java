@@ -0,0 +1,121 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every method of every Spring Data repository
+ *
+ * The timer {@value #METRIC_NAME} is tagged with the repository, the method and whether the call threw. It measures
+ * the call itself, for methods returning a stream this is the time until the first rows can be read.
+ * The timers of a method are created on its first call and looked up by {@link Method} afterwards.
+ *
+ * @author Wesley
+ * @date 2019-03-18
+ */
+
+@Component
+public class RepositoryMetrics implements BeanPostProcessor {
+
+    /**
+     * Name of the timer of repository invocations
+     */
+    public static final String METRIC_NAME = "repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    /**
+     * Constructor for the post processor
+     *
+     * @param meterRegistry The registry to register the timers in, resolved on the first repository call
+     */
+    public RepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised) {
+            Class<?> repositoryInterface = repositoryInterface((Advised) bean);
+            ((Advised) bean).addAdvice(0, new TimingInterceptor(meterRegistry, repositoryInterface.getSimpleName()));
+        }
+        return bean;
+    }
+
+    private static Class<?> repositoryInterface(Advised advised) {
+        for (Class<?> proxied : advised.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(proxied)) {
+                return proxied;
+            }
+        }
+        return Repository.class;
+    }
+
+    /**
+     * Records the duration of each call on the timer of the called method and its outcome
+     */
+    static final class TimingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final String repository;
+        private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+            this.meterRegistry = meterRegistry;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Timer[] methodTimers = timers.computeIfAbsent(invocation.getMethod(), this::register);
+            if (methodTimers == null) {
+                return invocation.proceed();
+            }
+
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                methodTimers[0].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                methodTimers[1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer[] register(Method method) {
+            MeterRegistry registry;
+            try {
+                registry = meterRegistry.getIfAvailable();
+            } catch (BeansException e) {
+                // the registry has already been destroyed when a method is first called while closing the context
+                registry = null;
+            }
+            if (registry == null) {
+                return null;
+            }
+            return new Timer[] {timer(registry, method, "success"), timer(registry, method, "error")};
+        }
+
+        private Timer timer(MeterRegistry registry, Method method, String outcome) {
+            return Timer.builder(METRIC_NAME)
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .description("Duration of repository method calls")
+                .register(registry);
+        }
+    }
+}
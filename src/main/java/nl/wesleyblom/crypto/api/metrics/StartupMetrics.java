@@ -0,0 +1,105 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Measures how long after the start of the JVM the application is ready and has served its first request
+ *
+ * Both are published as the gauge startup.time, tagged with the phase 'ready' or 'first-request', and are NaN until
+ * reached. The first request is only seen by Spring MVC, not by the reactive stack.
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+@Component
+public class StartupMetrics extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupMetrics.class);
+
+    private final long startMillis;
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    /**
+     * Constructor measuring from the start of the JVM
+     */
+    public StartupMetrics() {
+        this(ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    /**
+     * Constructor for the metrics
+     *
+     * @param startMillis The start time to measure from, in milliseconds since the epoch
+     */
+    StartupMetrics(long startMillis) {
+        this.startMillis = startMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "ready", readyMillis);
+        gauge(registry, "first-request", firstRequestMillis);
+    }
+
+    private static void gauge(MeterRegistry registry, String phase, AtomicLong millis) {
+        TimeGauge.builder("startup.time", millis, TimeUnit.MILLISECONDS, value -> value.get() < 0 ? Double.NaN : value.get())
+            .tag("phase", phase)
+            .description("Time from the start of the JVM until the phase was reached")
+            .register(registry);
+    }
+
+    /**
+     * Records the time the application is ready to serve requests
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (readyMillis.compareAndSet(-1, System.currentTimeMillis() - startMillis)) {
+            logger.info("Ready [{}] ms after start", readyMillis.get());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (firstRequestMillis.get() < 0
+                && firstRequestMillis.compareAndSet(-1, System.currentTimeMillis() - startMillis)) {
+                logger.info("First request served [{}] ms after start", firstRequestMillis.get());
+            }
+        }
+    }
+
+    /**
+     * @return Returns the time from the start until the application was ready in milliseconds, -1 before that
+     */
+    public long getReadyMillis() {
+        return readyMillis.get();
+    }
+
+    /**
+     * @return Returns the time from the start until the first request was served in milliseconds, -1 before that
+     */
+    public long getFirstRequestMillis() {
+        return firstRequestMillis.get();
+    }
+}
@@ -1,8 +1,11 @@
 package nl.wesleyblom.crypto.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,6 +19,7 @@ import javax.validation.constraints.Size;
 
 
 @Entity
+@Table(indexes = @Index(name = "idx_currency_market_cap", columnList = "marketCap DESC, ticker"))
 public class Currency {
 
     @Id
@@ -31,6 +35,8 @@ public class Currency {
     private String name;
     private long numberOfCoins;
     private long marketCap;
+    @JsonIgnore
+    private long version;
 
     /**
      * empty constructor to make JPA happy :-)
@@ -81,6 +87,22 @@ public class Currency {
         return marketCap;
     }
 
+    /**
+     * @return Returns the version of the Currency, unique across all Currency writes. Not part of the JSON representation.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the Currency, to be called with a new version before every write
+     *
+     * @param version The new version of the Currency
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Currency{" +
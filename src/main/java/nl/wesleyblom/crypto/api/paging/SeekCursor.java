@@ -0,0 +1,149 @@
+package nl.wesleyblom.crypto.api.paging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Position in a keyset (seek) paged listing of {@link Currency} objects.
+ * The cursor remembers the sort order and the sort key of the last row that has been served,
+ * the next page starts directly after that row without an OFFSET scan.
+ *
+ * @author Wesley
+ * @date 2019-03-04
+ */
+
+public final class SeekCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final Order order;
+    private final String ticker;
+    private final long marketCap;
+
+    /**
+     * Sort orders supported by keyset paging
+     */
+    public enum Order {
+        /**
+         * Ascending by ticker
+         */
+        TICKER("t"),
+        /**
+         * Descending by market cap, ties ascending by ticker
+         */
+        MARKET_CAP("m");
+
+        private final String code;
+
+        Order(String code) {
+            this.code = code;
+        }
+
+        /**
+         * Resolves an order from its request parameter value, e.g. 'ticker' or 'marketCap'
+         *
+         * @param name The name of the order
+         * @return The matching {@link Order}
+         * @throws IllegalArgumentException when the name is unknown
+         */
+        public static Order fromName(String name) {
+            if ("ticker".equalsIgnoreCase(name)) {
+                return TICKER;
+            }
+            if ("marketCap".equalsIgnoreCase(name)) {
+                return MARKET_CAP;
+            }
+            throw new IllegalArgumentException("Unknown seek order: " + name);
+        }
+
+        private static Order fromCode(String code) {
+            for (Order order : values()) {
+                if (order.code.equals(code)) {
+                    return order;
+                }
+            }
+            throw new IllegalArgumentException("Unknown seek order code: " + code);
+        }
+    }
+
+    private SeekCursor(Order order, String ticker, long marketCap) {
+        this.order = order;
+        this.ticker = ticker;
+        this.marketCap = marketCap;
+    }
+
+    /**
+     * @param order The sort order
+     * @return Returns a cursor positioned before the first row
+     */
+    public static SeekCursor first(Order order) {
+        return new SeekCursor(order, "", Long.MAX_VALUE);
+    }
+
+    /**
+     * @param ticker The last ticker the client has seen
+     * @return Returns a ticker ordered cursor positioned directly after the given ticker
+     */
+    public static SeekCursor afterTicker(String ticker) {
+        return new SeekCursor(Order.TICKER, ticker, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param currency The last {@link Currency} of the current page
+     * @return Returns a cursor with the same order positioned directly after the given {@link Currency}
+     */
+    public SeekCursor after(Currency currency) {
+        return new SeekCursor(order, currency.getTicker(), currency.getMarketCap());
+    }
+
+    /**
+     * Decodes a cursor previously returned by {@link #encode()}
+     *
+     * @param value The opaque cursor value
+     * @return The decoded {@link SeekCursor}
+     * @throws IllegalArgumentException when the value is not a valid cursor
+     */
+    public static SeekCursor decode(String value) {
+        String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        String[] parts = decoded.split("\\" + SEPARATOR, 3);
+
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new SeekCursor(Order.fromCode(parts[0]), parts[2], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * @return Returns the cursor as an opaque, url safe string
+     */
+    public String encode() {
+        String value = order.code + SEPARATOR + marketCap + SEPARATOR + ticker;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Returns the sort order of the cursor
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return Returns the ticker of the last row that has been served
+     */
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return Returns the market cap of the last row that has been served
+     */
+    public long getMarketCap() {
+        return marketCap;
+    }
+}
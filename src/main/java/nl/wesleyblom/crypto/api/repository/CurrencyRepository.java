@@ -1,8 +1,18 @@
 package nl.wesleyblom.crypto.api.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import nl.wesleyblom.crypto.api.model.Currency;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository for {@link Currency}
@@ -21,6 +31,7 @@ public interface CurrencyRepository extends PagingAndSortingRepository<Currency,
      * @param ticker The short name of the {@link Currency}
      * @return Returns an {@link Optional<Currency>}
      */
+    @Transactional(readOnly = true)
     Optional<Currency> findByTicker(String ticker);
 
     /**
@@ -30,6 +41,7 @@ public interface CurrencyRepository extends PagingAndSortingRepository<Currency,
      * @param ticker The short name of the {@link Currency}
      * @return Returns a boolean
      */
+    @Transactional(readOnly = true)
     boolean existsByTicker(String ticker);
 
     /**
@@ -39,4 +51,143 @@ public interface CurrencyRepository extends PagingAndSortingRepository<Currency,
      * @param ticker The short name of the {@link Currency}
      */
     void deleteByTicker(String ticker);
+
+    /**
+     * Creates the given {@link Currency} unless its ticker already exists, in a single statement
+     * A concurrent insert of the same ticker can still fail on the primary key with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}.
+     *
+     * @param currency The {@link Currency} to create
+     * @return Returns 1 when the {@link Currency} has been created, 0 when the ticker already exists
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "insert into currency (ticker, name, number_of_coins, market_cap, version) "
+        + "select :#{#currency.ticker}, :#{#currency.name}, :#{#currency.numberOfCoins}, :#{#currency.marketCap}, :#{#currency.version} "
+        + "from dual where not exists (select 1 from currency where ticker = :#{#currency.ticker})")
+    int insertIfAbsent(@Param("currency") Currency currency);
+
+    /**
+     * Overwrites the {@link Currency} with the same ticker in a single statement
+     *
+     * @param currency The new state of the {@link Currency}
+     * @return Returns the number of updated {@link Currency} objects, 0 when the ticker does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Currency c set c.name = :#{#currency.name}, c.numberOfCoins = :#{#currency.numberOfCoins}, "
+        + "c.marketCap = :#{#currency.marketCap}, c.version = :#{#currency.version} where c.ticker = :#{#currency.ticker}")
+    int updateByTicker(@Param("currency") Currency currency);
+
+    /**
+     * Overwrites only the market cap and number of coins of the {@link Currency} with the given ticker in a single statement
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @param marketCap The new market cap
+     * @param numberOfCoins The new number of coins
+     * @param version The new version of the {@link Currency}
+     * @return Returns the number of updated {@link Currency} objects, 0 when the ticker does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Currency c set c.marketCap = :marketCap, c.numberOfCoins = :numberOfCoins, c.version = :version "
+        + "where c.ticker = :ticker")
+    int updateMarket(@Param("ticker") String ticker, @Param("marketCap") long marketCap,
+        @Param("numberOfCoins") long numberOfCoins, @Param("version") long version);
+
+    /**
+     * Renames the {@link Currency} with the given ticker and overwrites it with the given {@link Currency} in a single statement
+     *
+     * @param ticker The current short name of the {@link Currency}
+     * @param currency The new state of the {@link Currency}, including its new ticker
+     * @return Returns the number of updated {@link Currency} objects, 0 when the ticker does not exist
+     * @throws org.springframework.dao.DataIntegrityViolationException when the new ticker already exists
+     */
+    @Modifying
+    @Transactional
+    @Query("update Currency c set c.ticker = :#{#currency.ticker}, c.name = :#{#currency.name}, "
+        + "c.numberOfCoins = :#{#currency.numberOfCoins}, c.marketCap = :#{#currency.marketCap}, "
+        + "c.version = :#{#currency.version} where c.ticker = :ticker")
+    int renameTicker(@Param("ticker") String ticker, @Param("currency") Currency currency);
+
+    /**
+     * Deletes the {@link Currency} with the given ticker in a single statement, unlike {@link #deleteByTicker(String)}
+     * which loads the {@link Currency} first.
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns the number of deleted {@link Currency} objects, 0 when the ticker does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Currency c where c.ticker = :ticker")
+    int deleteTicker(@Param("ticker") String ticker);
+
+    /**
+     * Method to look up only the version of a {@link Currency}, without loading the entity
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns an {@link Optional<Long>} with the version
+     */
+    @Transactional(readOnly = true)
+    @Query("select c.version from Currency c where c.ticker = :ticker")
+    Optional<Long> findVersionByTicker(@Param("ticker") String ticker);
+
+    /**
+     * Not read only, so that it is read from the primary when reads go to a replica
+     *
+     * @return Returns the highest version of all {@link Currency} objects, null when there are none
+     */
+    @Transactional
+    @Query("select max(c.version) from Currency c")
+    Long findMaxVersion();
+
+    /**
+     * Method to check which of the given tickers already exist in a single query
+     *
+     * @param tickers The short names to check
+     * @return Returns the subset of the given tickers that exist
+     */
+    @Query("select c.ticker from Currency c where c.ticker in :tickers")
+    List<String> findExistingTickers(@Param("tickers") Collection<String> tickers);
+
+    /**
+     * Keyset page of {@link Currency} objects ordered by ticker, starting directly after the given ticker.
+     * Only the page size of the {@link Pageable} is used, no count query is executed.
+     *
+     * @param ticker The last ticker of the previous page, an empty string for the first page
+     * @param pageable The page size to fetch
+     * @return Returns at most {@link Pageable#getPageSize()} {@link Currency} objects
+     */
+    @Transactional(readOnly = true)
+    @Query("select c from Currency c where c.ticker > :ticker order by c.ticker")
+    List<Currency> findPageAfterTicker(@Param("ticker") String ticker, Pageable pageable);
+
+    /**
+     * Keyset page of {@link Currency} objects ordered by descending market cap and ascending ticker,
+     * starting directly after the given market cap and ticker.
+     * Only the page size of the {@link Pageable} is used, no count query is executed.
+     *
+     * @param marketCap The market cap of the last row of the previous page, {@link Long#MAX_VALUE} for the first page
+     * @param ticker The ticker of the last row of the previous page, an empty string for the first page
+     * @param pageable The page size to fetch
+     * @return Returns at most {@link Pageable#getPageSize()} {@link Currency} objects
+     */
+    @Transactional(readOnly = true)
+    @Query("select c from Currency c where c.marketCap < :marketCap or (c.marketCap = :marketCap and c.ticker > :ticker) "
+        + "order by c.marketCap desc, c.ticker")
+    List<Currency> findPageAfterMarketCap(@Param("marketCap") long marketCap, @Param("ticker") String ticker, Pageable pageable);
+
+    /**
+     * Streams all {@link Currency} objects ordered by ticker through a forward only cursor.
+     * Rows are fetched from the database in chunks and loaded as read only entities.
+     * Needs to be consumed inside a transaction and closed afterwards.
+     *
+     * @return Returns a {@link Stream<Currency>} over all {@link Currency} objects
+     */
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select c from Currency c order by c.ticker")
+    Stream<Currency> streamAll();
 }
@@ -0,0 +1,59 @@
+package nl.wesleyblom.crypto.api.search;
+
+import java.util.List;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST endpoint searching {@link Currency} objects by ticker and name, served from {@link CurrencySearchIndex}
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/currencies/search")
+public class CurrencySearchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencySearchController.class);
+
+    private static final int MAX_QUERY_LENGTH = 25;
+
+    @Autowired
+    CurrencySearchIndex currencySearchIndex;
+
+    @Value("${currency.search.max-results:50}")
+    int maxResults;
+
+    /**
+     * Endpoint to search {@link Currency} objects for typeahead
+     *
+     * @param q The text typed so far, matched case insensitive against the start of the ticker, the name and every
+     *          word of the name, tolerating typos in longer queries
+     * @param n The maximum number of {@link Currency} objects to return, between 1 and currency.search.max-results
+     * @return Returns {@link HttpStatus#OK} with the matching {@link Currency} objects, best match first
+     *         Returns {@link HttpStatus#BAD_REQUEST} when the query is blank or longer than a name, or n is out of range
+     */
+    @GetMapping
+    public ResponseEntity<List<Currency>> search(@RequestParam String q, @RequestParam(defaultValue = "10") int n) {
+        if (q.trim().isEmpty() || q.length() > MAX_QUERY_LENGTH || n < 1 || n > maxResults) {
+            logger.debug("Bad request for search [{}] with [{}] results", q, n);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        List<Currency> currencies = currencySearchIndex.search(q, n);
+        logger.debug("Request for search [{}] - serving [{}] currencies", q, currencies.size());
+        return ResponseEntity.status(HttpStatus.OK).body(currencies);
+    }
+}
@@ -0,0 +1,172 @@
+package nl.wesleyblom.crypto.api.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import nl.wesleyblom.crypto.api.event.AppliedVersions;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory search over the ticker and name of all {@link Currency} objects
+ *
+ * Tickers and names are kept lowercased in a {@link SearchTrie} each; a name is indexed as a whole and per word. The
+ * index is loaded from the repository once at startup and then kept up to date from every
+ * {@link CurrencyChangedEvent}, through {@link AppliedVersions} so late writes can not undo newer ones or bring back
+ * deleted and renamed tickers. Searches take no lock.
+ *
+ * A query matches every term starting with it; queries of 3 characters or more also match terms starting within one
+ * edit of the query, from 6 characters within two edits. Results are ranked by edit distance, then whole term matches
+ * before prefix matches, ticker matches before name matches, and finally by market cap, highest first.
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+@Component
+public class CurrencySearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencySearchIndex.class);
+
+    private final CurrencyRepository currencyRepository;
+    private final Map<String, Currency> byTicker = new ConcurrentHashMap<>();
+    private final SearchTrie tickers = new SearchTrie();
+    private final SearchTrie names = new SearchTrie();
+    private final AppliedVersions versions = new AppliedVersions();
+
+    /**
+     * Constructor for the index
+     *
+     * @param currencyRepository The repository to load the index from at startup
+     */
+    public CurrencySearchIndex(CurrencyRepository currencyRepository) {
+        this.currencyRepository = currencyRepository;
+    }
+
+    /**
+     * Indexes every stored {@link Currency}
+     */
+    @PostConstruct
+    public synchronized void init() {
+        for (Currency currency : currencyRepository.findAll()) {
+            if (versions.load(currency)) {
+                put(currency);
+            }
+        }
+        logger.info("Indexed [{}] currencies for search", byTicker.size());
+    }
+
+    /**
+     * Applies a write to the index
+     *
+     * @param event The write
+     */
+    @EventListener
+    public synchronized void onCurrencyChanged(CurrencyChangedEvent event) {
+        versions.apply(event, this::put, this::remove);
+    }
+
+    /**
+     * @param query The text typed so far, matched case insensitive
+     * @param limit The maximum number of {@link Currency} objects to return
+     * @return Returns the matching {@link Currency} objects, best match first
+     */
+    public List<Currency> search(String query, int limit) {
+        String normalized = normalize(query).trim();
+        if (normalized.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        int maxDistance = normalized.length() < 3 ? 0 : normalized.length() < 6 ? 1 : 2;
+
+        // lower scores rank higher: distance first, then whole terms, then tickers
+        Map<String, Integer> scores = new HashMap<>();
+        tickers.search(normalized, maxDistance, (ticker, distance, exact) ->
+            scores.merge(ticker, distance * 4 + (exact ? 0 : 2), Math::min));
+        names.search(normalized, maxDistance, (ticker, distance, exact) ->
+            scores.merge(ticker, distance * 4 + (exact ? 0 : 2) + 1, Math::min));
+
+        // keep the best matches in a heap with the worst on top, instead of sorting every match
+        Comparator<Match> order = Comparator.<Match>comparingInt(match -> match.score)
+            .thenComparing(Comparator.<Match>comparingLong(match -> match.currency.getMarketCap()).reversed())
+            .thenComparing(match -> match.currency.getTicker());
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, order.reversed());
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            Currency currency = byTicker.get(score.getKey());
+            if (currency != null) {
+                best.add(new Match(currency, score.getValue()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        Currency[] matches = new Currency[best.size()];
+        for (int i = matches.length - 1; i >= 0; i--) {
+            matches[i] = best.poll().currency;
+        }
+        return new ArrayList<>(Arrays.asList(matches));
+    }
+
+    private void put(Currency currency) {
+        remove(currency.getTicker());
+        byTicker.put(currency.getTicker(), currency);
+        tickers.add(normalize(currency.getTicker()), currency.getTicker());
+        for (String term : nameTerms(currency.getName())) {
+            names.add(term, currency.getTicker());
+        }
+    }
+
+    private void remove(String ticker) {
+        Currency removed = byTicker.remove(ticker);
+        if (removed != null) {
+            tickers.remove(normalize(removed.getTicker()), ticker);
+            for (String term : nameTerms(removed.getName())) {
+                names.remove(term, ticker);
+            }
+        }
+    }
+
+    /**
+     * @return Returns the whole name and every word in it, lowercased
+     */
+    static Set<String> nameTerms(String name) {
+        Set<String> terms = new LinkedHashSet<>();
+        String normalized = normalize(name).trim();
+        terms.add(normalized);
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Match {
+
+        private final Currency currency;
+        private final int score;
+
+        private Match(Currency currency, int score) {
+            this.currency = currency;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package nl.wesleyblom.crypto.api.search;
+
+import java.util.Arrays;
+
+/**
+ * Trie from terms to the values stored under them, searched by prefix within an edit distance
+ *
+ * Children and values are copied on write and published through volatile fields, so searches never take a lock and
+ * never see a half-written node. Writes need to be serialized by the caller.
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+class SearchTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final String[] NO_VALUES = new String[0];
+
+    /**
+     * Receives the values matched by a search, a value can be received more than once
+     */
+    interface Matches {
+
+        /**
+         * @param value The value stored under a matching term
+         * @param distance The edit distance between the query and the closest prefix of the term
+         * @param exact True when the whole term is equal to the query
+         */
+        void match(String value, int distance, boolean exact);
+    }
+
+    private final Node root = new Node('\0');
+
+    /**
+     * Stores a value under a term
+     *
+     * @param term The term
+     * @param value The value, stored once per term
+     */
+    void add(String term, String value) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+        }
+        node.addValue(value);
+    }
+
+    /**
+     * Removes a value from a term, nodes left without values or children are removed as well
+     *
+     * @param term The term
+     * @param value The value
+     */
+    void remove(String term, String value) {
+        remove(root, term, 0, value);
+    }
+
+    /**
+     * Finds every term starting with a prefix within the edit distance of the query. Distances are Levenshtein
+     * distances: every inserted, deleted or replaced character counts as one.
+     *
+     * @param query The query
+     * @param maxDistance The highest distance to match
+     * @param matches Receives the values of every matching term
+     */
+    void search(String query, int maxDistance, Matches matches) {
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        Node[] children = root.children;
+        for (Node child : children) {
+            search(child, query, row, maxDistance, Integer.MAX_VALUE, matches);
+        }
+    }
+
+    /**
+     * Walks a node with the distances between the query and the path to its parent
+     *
+     * @param previous The distances of every prefix of the query to the path of the parent
+     * @param best The lowest distance of the whole query to any prefix of the path of the parent
+     */
+    private static void search(Node node, String query, int[] previous, int maxDistance, int best, Matches matches) {
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        int lowest = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int replace = previous[i - 1] + (query.charAt(i - 1) == node.key ? 0 : 1);
+            row[i] = Math.min(replace, Math.min(row[i - 1] + 1, previous[i] + 1));
+            lowest = Math.min(lowest, row[i]);
+        }
+        int distance = row[row.length - 1];
+        best = Math.min(best, distance);
+
+        // once a prefix matched every longer path matches, otherwise stop when no prefix of the query can match
+        if (best > maxDistance && lowest > maxDistance) {
+            return;
+        }
+        if (best <= maxDistance) {
+            for (String value : node.values) {
+                matches.match(value, best, distance == 0);
+            }
+        }
+        for (Node child : node.children) {
+            if (best == 0) {
+                // nothing below can come closer, and longer paths are never equal to the query
+                collect(child, matches);
+            } else {
+                search(child, query, row, maxDistance, best, matches);
+            }
+        }
+    }
+
+    private static void collect(Node node, Matches matches) {
+        for (String value : node.values) {
+            matches.match(value, 0, false);
+        }
+        for (Node child : node.children) {
+            collect(child, matches);
+        }
+    }
+
+    /**
+     * @return Returns true when the node has no values and no children left
+     */
+    private static boolean remove(Node node, String term, int depth, String value) {
+        if (depth == term.length()) {
+            node.removeValue(value);
+        } else {
+            Node child = node.child(term.charAt(depth));
+            if (child != null && remove(child, term, depth + 1, value)) {
+                node.removeChild(child);
+            }
+        }
+        return node.values.length == 0 && node.children.length == 0;
+    }
+
+    private static final class Node {
+
+        private final char key;
+        private volatile Node[] children = NO_CHILDREN;
+        private volatile String[] values = NO_VALUES;
+
+        private Node(char key) {
+            this.key = key;
+        }
+
+        private Node child(char key) {
+            Node[] current = children;
+            int index = indexOf(current, key);
+            return index >= 0 ? current[index] : null;
+        }
+
+        private Node childOrCreate(char key) {
+            Node[] current = children;
+            int index = indexOf(current, key);
+            if (index >= 0) {
+                return current[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node(key);
+            Node[] updated = new Node[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = child;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            children = updated;
+            return child;
+        }
+
+        private void removeChild(Node child) {
+            Node[] current = children;
+            int index = indexOf(current, child.key);
+            if (index < 0) {
+                return;
+            }
+            Node[] updated = new Node[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            children = updated;
+        }
+
+        private void addValue(String value) {
+            String[] current = values;
+            if (Arrays.asList(current).contains(value)) {
+                return;
+            }
+            String[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = value;
+            values = updated;
+        }
+
+        private void removeValue(String value) {
+            String[] current = values;
+            int index = Arrays.asList(current).indexOf(value);
+            if (index < 0) {
+                return;
+            }
+            String[] updated = new String[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            values = updated;
+        }
+
+        /**
+         * @return Returns the index of the child with the key, or (-(insertion point) - 1)
+         */
+        private static int indexOf(Node[] children, char key) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleKey = children[middle].key;
+                if (middleKey < key) {
+                    low = middle + 1;
+                } else if (middleKey > key) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
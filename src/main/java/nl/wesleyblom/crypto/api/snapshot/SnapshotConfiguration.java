@@ -0,0 +1,73 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Starts from a binary snapshot of the currency table instead of data.sql, active with the profile 'snapshot'
+ *
+ * The snapshot currency.snapshot.file is loaded when Hibernate has created the schema, before the application
+ * reports ready. Without a snapshot the script currency.snapshot.fallback-script is executed. The table is written
+ * to the snapshot every currency.snapshot.interval-ms when it has changed, and on shutdown.
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+@Configuration
+@Profile("snapshot")
+public class SnapshotConfiguration {
+
+    /**
+     * Static, the loader needs to be registered before the entity manager factory is created
+     *
+     * @param environment The environment to read currency.snapshot.* from
+     * @return Returns the post processor loading the snapshot
+     */
+    @Bean
+    public static SnapshotLoader snapshotLoader(Environment environment) {
+        return new SnapshotLoader(Paths.get(environment.getRequiredProperty("currency.snapshot.file")),
+            new DefaultResourceLoader().getResource(
+                environment.getProperty("currency.snapshot.fallback-script", "classpath:data.sql")),
+            environment.getProperty("currency.snapshot.batch-size", Integer.class, 500));
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public SnapshotWriter snapshotWriter(CurrencyRepository currencyRepository, CurrencyVersions currencyVersions,
+        EntityManager entityManager, PlatformTransactionManager transactionManager,
+        @Value("${currency.snapshot.file}") String file,
+        @Value("${currency.snapshot.interval-ms:60000}") long intervalMillis) {
+        return new SnapshotWriter(Paths.get(file), currencyRepository, currencyVersions, entityManager,
+            transactionManager, intervalMillis);
+    }
+
+    @Bean
+    public MeterBinder snapshotMetrics(SnapshotLoader snapshotLoader, SnapshotWriter snapshotWriter) {
+        return registry -> {
+            TimeGauge.builder("snapshot.load.time", snapshotLoader, TimeUnit.NANOSECONDS, SnapshotLoader::getLoadNanos)
+                .tag("source", snapshotLoader.getSource().name().toLowerCase(Locale.ROOT))
+                .description("Time it took to fill the currency table at startup")
+                .register(registry);
+            FunctionCounter.builder("snapshot.writes", snapshotWriter, SnapshotWriter::getWriteCount)
+                .tag("result", "success")
+                .register(registry);
+            FunctionCounter.builder("snapshot.writes", snapshotWriter, SnapshotWriter::getFailureCount)
+                .tag("result", "failure")
+                .register(registry);
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Binary snapshot of all {@link Currency} objects, read through a memory mapping
+ *
+ * The file starts with a header of 24 bytes: a magic number, the format, the number of records, the size of the
+ * records in bytes and the CRC32 of the records. A record holds the ticker and the name, each as a length byte
+ * followed by UTF-8, and then the number of coins, the market cap and the version.
+ *
+ * A snapshot is written to a temporary file next to it and moved over the old snapshot once complete, so a crash
+ * while writing leaves the previous snapshot in place.
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+final class SnapshotFile {
+
+    static final int HEADER_BYTES = 24;
+
+    private static final int MAGIC = 0x43534E50;
+    private static final int FORMAT = 1;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot, replacing the existing one
+     *
+     * @param path The location of the snapshot
+     * @param currencies The {@link Currency} objects to write
+     * @return Returns the number of {@link Currency} objects written
+     * @throws IOException when the snapshot can not be written, the existing snapshot is kept then
+     */
+    static int write(Path path, Iterator<Currency> currencies) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES);
+            CRC32 checksum = new CRC32();
+            // not closed, closing would close the channel before the header is written
+            DataOutputStream records = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), checksum));
+            while (currencies.hasNext()) {
+                Currency currency = currencies.next();
+                writeString(records, currency.getTicker());
+                writeString(records, currency.getName());
+                records.writeLong(currency.getNumberOfCoins());
+                records.writeLong(currency.getMarketCap());
+                records.writeLong(currency.getVersion());
+                count++;
+            }
+            records.flush();
+            if (records.size() > Integer.MAX_VALUE - HEADER_BYTES) {
+                throw new IOException("Snapshot of " + count + " currencies is too large");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT).putInt(count).putInt(records.size()).putLong(checksum.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads a snapshot
+     *
+     * @param path The location of the snapshot
+     * @return Returns the {@link Currency} objects in the snapshot, in the order they were written
+     * @throws IOException when the snapshot can not be read, is truncated or its checksum does not match
+     */
+    static List<Currency> read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File " + path + " is not a snapshot");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IOException("File " + path + " is not a snapshot");
+        }
+        int count = buffer.getInt(8);
+        int size = buffer.getInt(12);
+        if (count < 0 || size < 0 || size != buffer.capacity() - HEADER_BYTES) {
+            throw new IOException("Snapshot " + path + " is truncated");
+        }
+
+        ByteBuffer records = buffer.duplicate();
+        records.position(HEADER_BYTES);
+        CRC32 checksum = new CRC32();
+        checksum.update(records.slice());
+        if (checksum.getValue() != buffer.getLong(16)) {
+            throw new IOException("Snapshot " + path + " does not match its checksum");
+        }
+
+        List<Currency> currencies = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                Currency currency = new Currency.CurrencyBuilder()
+                    .withTicker(readString(records))
+                    .withName(readString(records))
+                    .withNumberOfCoins(records.getLong())
+                    .withMarketCap(records.getLong())
+                    .build();
+                currency.setVersion(records.getLong());
+                currencies.add(currency);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + path + " has an invalid record: " + e, e);
+        }
+        if (records.hasRemaining()) {
+            throw new IOException("Snapshot " + path + " has data after its last record");
+        }
+        return currencies;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IOException("Value [" + value + "] is too long for a snapshot");
+        }
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.get() & 0xFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills the currency table from the snapshot as soon as Hibernate has created the schema
+ *
+ * The table is filled before any repository can be used, so everything reading it at startup already sees the
+ * snapshot. When there is no snapshot yet the fallback script is executed instead. A snapshot that can not be read
+ * fails the startup, as falling back would silently lose every write it holds.
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+public class SnapshotLoader implements BeanPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotLoader.class);
+
+    private static final String INSERT = "insert into currency (ticker, name, number_of_coins, market_cap, version) "
+        + "values (?, ?, ?, ?, ?)";
+
+    /**
+     * Where the currencies were loaded from
+     */
+    public enum Source {
+        NONE, SNAPSHOT, SCRIPT
+    }
+
+    private final Path path;
+    private final Resource fallbackScript;
+    private final int batchSize;
+
+    private volatile Source source = Source.NONE;
+    private volatile int loadedCount;
+    private volatile long loadNanos;
+
+    /**
+     * Constructor for the loader
+     *
+     * @param path The location of the snapshot
+     * @param fallbackScript The SQL script executed when there is no snapshot
+     * @param batchSize The number of rows inserted per JDBC batch
+     */
+    public SnapshotLoader(Path path, Resource fallbackScript, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size needs to be positive");
+        }
+        this.path = path;
+        this.fallbackScript = fallbackScript;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof LocalContainerEntityManagerFactoryBean && source == Source.NONE) {
+            DataSource dataSource = ((LocalContainerEntityManagerFactoryBean) bean).getDataSource();
+            try {
+                load(dataSource);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load snapshot " + path + ", remove it to start from "
+                    + fallbackScript.getDescription(), e);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * Replaces the content of the currency table with the snapshot, or executes the fallback script when there is no
+     * snapshot
+     *
+     * @param dataSource The data source holding the currency table
+     * @throws IOException when the snapshot can not be read
+     */
+    public void load(DataSource dataSource) throws IOException {
+        long start = System.nanoTime();
+        if (!Files.isRegularFile(path)) {
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(fallbackScript), dataSource);
+            loadNanos = System.nanoTime() - start;
+            source = Source.SCRIPT;
+            logger.info("No snapshot at [{}], executed [{}] in [{}] ms", path, fallbackScript.getDescription(),
+                TimeUnit.NANOSECONDS.toMillis(loadNanos));
+            return;
+        }
+
+        List<Currency> currencies = SnapshotFile.read(path);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+            jdbcTemplate.update("delete from currency");
+            jdbcTemplate.batchUpdate(INSERT, currencies, batchSize, (statement, currency) -> {
+                statement.setString(1, currency.getTicker());
+                statement.setString(2, currency.getName());
+                statement.setLong(3, currency.getNumberOfCoins());
+                statement.setLong(4, currency.getMarketCap());
+                statement.setLong(5, currency.getVersion());
+            });
+            return null;
+        });
+        loadNanos = System.nanoTime() - start;
+        loadedCount = currencies.size();
+        source = Source.SNAPSHOT;
+        logger.info("Loaded [{}] currencies from snapshot [{}] in [{}] ms", loadedCount, path,
+            TimeUnit.NANOSECONDS.toMillis(loadNanos));
+    }
+
+    /**
+     * @return Returns where the currencies were loaded from, {@link Source#NONE} before loading
+     */
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * @return Returns the number of currencies loaded from the snapshot
+     */
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    /**
+     * @return Returns the time it took to load the snapshot or execute the fallback script, in nanoseconds
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+}
@@ -0,0 +1,188 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Periodically writes all {@link Currency} objects to the snapshot, and once more when closed
+ *
+ * A snapshot is only written when a {@link Currency} has been written since the last snapshot. Rows are streamed
+ * from the database in a read only transaction and detached once written, the table is never held in memory.
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+public class SnapshotWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    private final Path path;
+    private final CurrencyRepository currencyRepository;
+    private final CurrencyVersions currencyVersions;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervalMillis;
+
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private long writtenVersion = Long.MIN_VALUE;
+
+    /**
+     * Constructor for the writer
+     *
+     * @param path The location of the snapshot, its directory is created when it does not exist
+     * @param currencyRepository The repository to stream the {@link Currency} objects from
+     * @param currencyVersions The version counter telling whether anything has been written since the last snapshot
+     * @param entityManager The shared entity manager used to detach written entities
+     * @param transactionManager The transaction manager for the read only snapshot transaction
+     * @param intervalMillis The time between two snapshots
+     */
+    public SnapshotWriter(Path path, CurrencyRepository currencyRepository, CurrencyVersions currencyVersions,
+        EntityManager entityManager, PlatformTransactionManager transactionManager, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Snapshot interval needs to be positive");
+        }
+        this.path = path;
+        this.currencyRepository = currencyRepository;
+        this.currencyVersions = currencyVersions;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Starts writing snapshots, the first one after a full interval
+     *
+     * @throws IOException when the directory of the snapshot can not be created
+     */
+    public synchronized void start() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        // the loaded table is already in the snapshot, unless it came from the fallback script
+        if (Files.isRegularFile(path)) {
+            writtenVersion = currencyVersions.current();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeIfChanged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Writing snapshots to [{}] every [{}] ms", path, intervalMillis);
+    }
+
+    /**
+     * Stops writing snapshots and writes a last one
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        writeIfChanged();
+    }
+
+    /**
+     * Writes a snapshot when a {@link Currency} has been written since the last one. A failure is logged, the
+     * previous snapshot stays in place.
+     *
+     * @return Returns true when a snapshot has been written
+     */
+    public synchronized boolean writeIfChanged() {
+        // read before the table, writes during the snapshot are written again next time
+        long version = currencyVersions.current();
+        if (version == writtenVersion) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            int count = write();
+            writtenVersion = version;
+            writeCount.incrementAndGet();
+            logger.info("Wrote [{}] currencies to snapshot [{}] in [{}] ms", count, path,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failureCount.incrementAndGet();
+            logger.warn("Could not write snapshot [{}]: [{}]", path, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * @return Returns the number of snapshots written
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * @return Returns the number of snapshots that could not be written
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    private int write() throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try (Stream<Currency> currencies = currencyRepository.streamAll()) {
+                    Iterator<Currency> iterator = currencies.iterator();
+                    return SnapshotFile.write(path, new Iterator<Currency>() {
+                        private Currency previous;
+
+                        @Override
+                        public boolean hasNext() {
+                            detachPrevious();
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Currency next() {
+                            detachPrevious();
+                            previous = iterator.next();
+                            return previous;
+                        }
+
+                        private void detachPrevious() {
+                            if (previous != null) {
+                                entityManager.detach(previous);
+                                previous = null;
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
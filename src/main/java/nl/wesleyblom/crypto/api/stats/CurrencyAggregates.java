@@ -0,0 +1,142 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import nl.wesleyblom.crypto.api.event.AppliedVersions;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory totals and market cap ranking of all {@link Currency} objects
+ *
+ * The aggregates are loaded from the repository once at startup and then kept up to date from every
+ * {@link CurrencyChangedEvent}, without reading the table again. The totals are published as an immutable
+ * {@link CurrencyStatistics} snapshot and the ranking is a {@link MarketCapIndex}, so reading them takes no lock.
+ * Ranks, market cap ranges and the top n are found in logarithmic time plus the number of returned entries.
+ *
+ * A change carrying a version lower than the one already applied for its ticker is ignored, so writes that report
+ * out of order and writes that happened before the startup load can not undo a newer state. Deleted and renamed
+ * tickers are remembered by {@link AppliedVersions}, so a late update can not bring them back either.
+ * Sums are kept with wrapping arithmetic: every change is added and subtracted again exactly, so the totals are
+ * correct whenever the true sum fits in a long.
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+@Component
+public class CurrencyAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyAggregates.class);
+
+    private final CurrencyRepository currencyRepository;
+    private final Map<String, Currency> byTicker = new ConcurrentHashMap<>();
+    private final MarketCapIndex byMarketCap = new MarketCapIndex();
+    private final AppliedVersions versions = new AppliedVersions();
+
+    private long totalMarketCap;
+    private long totalNumberOfCoins;
+    private volatile CurrencyStatistics statistics = new CurrencyStatistics(0, 0, 0);
+
+    /**
+     * Constructor for the aggregates
+     *
+     * @param currencyRepository The repository to load the aggregates from at startup
+     */
+    public CurrencyAggregates(CurrencyRepository currencyRepository) {
+        this.currencyRepository = currencyRepository;
+    }
+
+    /**
+     * Builds the aggregates from every stored {@link Currency}
+     */
+    @PostConstruct
+    public synchronized void init() {
+        for (Currency currency : currencyRepository.findAll()) {
+            if (versions.load(currency)) {
+                put(currency);
+            }
+        }
+        publish();
+        logger.info("Loaded aggregates of [{}] currencies", byTicker.size());
+    }
+
+    /**
+     * Applies a write to the aggregates
+     *
+     * @param event The write
+     */
+    @EventListener
+    public synchronized void onCurrencyChanged(CurrencyChangedEvent event) {
+        versions.apply(event, this::put, this::remove);
+        publish();
+    }
+
+    /**
+     * @return Returns the totals of all {@link Currency} objects
+     */
+    public CurrencyStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param n The maximum number of {@link Currency} objects to return
+     * @return Returns the {@link Currency} objects with the highest market cap, highest first, ties ordered by ticker
+     */
+    public List<Currency> topByMarketCap(int n) {
+        return byMarketCap.slice(0, n);
+    }
+
+    /**
+     * @param minCap The lowest market cap to return, inclusive
+     * @param maxCap The highest market cap to return, inclusive
+     * @param offset The number of matching {@link Currency} objects to skip
+     * @param limit The maximum number of {@link Currency} objects to return
+     * @return Returns the {@link Currency} objects within the market cap range, highest first, ties ordered by ticker
+     */
+    public List<Currency> rangeByMarketCap(long minCap, long maxCap, long offset, int limit) {
+        return byMarketCap.range(minCap, maxCap, offset, limit);
+    }
+
+    /**
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns an {@link Optional<CurrencyRank>} with the position of the {@link Currency} by market cap
+     */
+    public Optional<CurrencyRank> rank(String ticker) {
+        Currency currency = byTicker.get(ticker);
+        if (currency == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CurrencyRank(ticker, currency.getMarketCap(), byMarketCap.countBefore(currency) + 1,
+            byMarketCap.size()));
+    }
+
+    private void put(Currency currency) {
+        remove(currency.getTicker());
+        byTicker.put(currency.getTicker(), currency);
+        byMarketCap.add(currency);
+        totalMarketCap += currency.getMarketCap();
+        totalNumberOfCoins += currency.getNumberOfCoins();
+    }
+
+    private void remove(String ticker) {
+        Currency removed = byTicker.remove(ticker);
+        if (removed != null) {
+            byMarketCap.remove(removed);
+            totalMarketCap -= removed.getMarketCap();
+            totalNumberOfCoins -= removed.getNumberOfCoins();
+        }
+    }
+
+    private void publish() {
+        statistics = new CurrencyStatistics(byTicker.size(), totalMarketCap, totalNumberOfCoins);
+    }
+}
@@ -0,0 +1,61 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Position of a {@link Currency} when all are ordered by market cap, highest first
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+public class CurrencyRank {
+
+    private final String ticker;
+    private final long marketCap;
+    private final long rank;
+    private final long count;
+
+    /**
+     * Constructor for the rank
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @param marketCap The market cap of the {@link Currency}
+     * @param rank The position of the {@link Currency}, 1 for the highest market cap
+     * @param count The number of ranked {@link Currency} objects
+     */
+    public CurrencyRank(String ticker, long marketCap, long rank, long count) {
+        this.ticker = ticker;
+        this.marketCap = marketCap;
+        this.rank = rank;
+        this.count = count;
+    }
+
+    /**
+     * @return Returns the short name of the {@link Currency}
+     */
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return Returns the market cap of the {@link Currency}
+     */
+    public long getMarketCap() {
+        return marketCap;
+    }
+
+    /**
+     * @return Returns the position of the {@link Currency}, 1 for the highest market cap
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    /**
+     * @return Returns the number of ranked {@link Currency} objects
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Totals over all {@link Currency} objects at one moment
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+public class CurrencyStatistics {
+
+    private final long count;
+    private final long totalMarketCap;
+    private final long totalNumberOfCoins;
+
+    /**
+     * Constructor for the statistics
+     *
+     * @param count The number of {@link Currency} objects
+     * @param totalMarketCap The sum of the market caps
+     * @param totalNumberOfCoins The sum of the number of coins
+     */
+    public CurrencyStatistics(long count, long totalMarketCap, long totalNumberOfCoins) {
+        this.count = count;
+        this.totalMarketCap = totalMarketCap;
+        this.totalNumberOfCoins = totalNumberOfCoins;
+    }
+
+    /**
+     * @return Returns the number of {@link Currency} objects
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Returns the sum of the market caps
+     */
+    public long getTotalMarketCap() {
+        return totalMarketCap;
+    }
+
+    /**
+     * @return Returns the sum of the number of coins
+     */
+    public long getTotalNumberOfCoins() {
+        return totalNumberOfCoins;
+    }
+
+    @Override
+    public String toString() {
+        return "CurrencyStatistics{" +
+            "count=" + count +
+            ", totalMarketCap=" + totalMarketCap +
+            ", totalNumberOfCoins=" + totalNumberOfCoins +
+            '}';
+    }
+}
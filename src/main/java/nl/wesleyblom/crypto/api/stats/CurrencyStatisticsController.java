@@ -0,0 +1,90 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import java.util.List;
+import java.util.Optional;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST endpoints with totals and rankings over all {@link Currency} objects, served from {@link CurrencyAggregates}
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/currencies")
+public class CurrencyStatisticsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyStatisticsController.class);
+
+    @Autowired
+    CurrencyAggregates currencyAggregates;
+
+    @Value("${currency.stats.max-top:1000}")
+    int maxTop;
+
+    /**
+     * Endpoint to retrieve the totals of all {@link Currency} objects
+     *
+     * @return Returns {@link HttpStatus#OK} with the {@link CurrencyStatistics}
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CurrencyStatistics> getStatistics() {
+        CurrencyStatistics statistics = currencyAggregates.getStatistics();
+        logger.debug("Request for statistics - serving [{}]", statistics);
+        return ResponseEntity.status(HttpStatus.OK).body(statistics);
+    }
+
+    /**
+     * Endpoint to retrieve the {@link Currency} objects ranked highest
+     *
+     * @param by The property to rank by, only marketCap is supported
+     * @param n The number of {@link Currency} objects to return, between 1 and currency.stats.max-top
+     * @return Returns {@link HttpStatus#OK} with at most n {@link Currency} objects, highest first
+     *         Returns {@link HttpStatus#BAD_REQUEST} when the property is not supported or n is out of range
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<Currency>> getTop(@RequestParam(defaultValue = "marketCap") String by,
+        @RequestParam(defaultValue = "10") int n) {
+        if (!"marketCap".equals(by) || n < 1 || n > maxTop) {
+            logger.debug("Bad request for top [{}] by [{}]", n, by);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        List<Currency> top = currencyAggregates.topByMarketCap(n);
+        logger.debug("Request for top [{}] by [{}] - serving [{}] currencies", n, by, top.size());
+        return ResponseEntity.status(HttpStatus.OK).body(top);
+    }
+
+    /**
+     * Endpoint to retrieve the position of a {@link Currency} when all are ordered by market cap
+     *
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns {@link HttpStatus#OK} with the {@link CurrencyRank}, 1 for the highest market cap
+     *         Returns {@link HttpStatus#NOT_FOUND} when no {@link Currency} with matching ticker can be found
+     */
+    @GetMapping("/{ticker}/rank")
+    public ResponseEntity<CurrencyRank> getRank(@PathVariable String ticker) {
+        Optional<CurrencyRank> rank = currencyAggregates.rank(ticker);
+        if (!rank.isPresent()) {
+            logger.debug("Request for rank of unknown ticker [{}]", ticker);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+
+        logger.debug("Request for rank of ticker [{}] - serving [{}]", ticker, rank.get().getRank());
+        return ResponseEntity.status(HttpStatus.OK).body(rank.get());
+    }
+}
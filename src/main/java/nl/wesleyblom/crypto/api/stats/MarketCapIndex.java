@@ -0,0 +1,222 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import nl.wesleyblom.crypto.api.model.Currency;
+
+/**
+ * Ordered index of {@link Currency} objects by market cap, highest first, ties ordered by ticker
+ *
+ * The index is a persistent treap where every node knows the size of its subtree, which gives the position of any key
+ * and the entries at any position in logarithmic time. Writes copy the nodes on their path and publish the new root,
+ * so readers never take a lock and always see a complete state. Writes need to be serialized by the caller.
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+class MarketCapIndex {
+
+    static final Comparator<Currency> ORDER = Comparator.comparingLong(Currency::getMarketCap).reversed()
+        .thenComparing(Currency::getTicker);
+
+    private volatile Node root;
+
+    /**
+     * Adds a {@link Currency}, which must not be in the index with the same market cap and ticker
+     *
+     * @param currency The {@link Currency} to add
+     */
+    void add(Currency currency) {
+        root = insert(root, new Node(currency, ThreadLocalRandom.current().nextInt(), null, null));
+    }
+
+    /**
+     * Removes a {@link Currency} with the same market cap and ticker, if present
+     *
+     * @param currency The {@link Currency} to remove
+     */
+    void remove(Currency currency) {
+        root = delete(root, currency);
+    }
+
+    /**
+     * @return Returns the number of {@link Currency} objects in the index
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * @param currency The {@link Currency} to find the position of
+     * @return Returns the number of {@link Currency} objects ordered before the given one
+     */
+    int countBefore(Currency currency) {
+        Node node = root;
+        int count = 0;
+        while (node != null) {
+            if (ORDER.compare(currency, node.currency) <= 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param from The position of the first {@link Currency}, inclusive
+     * @param to The position after the last {@link Currency}, exclusive
+     * @return Returns the {@link Currency} objects at the given positions, highest market cap first
+     */
+    List<Currency> slice(int from, int to) {
+        return slice(root, from, to);
+    }
+
+    /**
+     * @param minCap The lowest market cap to return, inclusive
+     * @param maxCap The highest market cap to return, inclusive
+     * @param offset The number of matching {@link Currency} objects to skip
+     * @param limit The maximum number of {@link Currency} objects to return
+     * @return Returns the matching {@link Currency} objects, highest market cap first
+     */
+    List<Currency> range(long minCap, long maxCap, long offset, int limit) {
+        Node snapshot = root;
+        int start = countAbove(snapshot, maxCap, false);
+        int end = countAbove(snapshot, minCap, true);
+        long from = start + offset;
+        if (from >= end) {
+            return new ArrayList<>(0);
+        }
+        return slice(snapshot, (int) from, (int) Math.min(end, from + limit));
+    }
+
+    private static List<Currency> slice(Node snapshot, int from, int to) {
+        List<Currency> currencies = new ArrayList<>(Math.max(0, Math.min(to, size(snapshot)) - from));
+        collect(snapshot, Math.max(0, from), to, currencies);
+        return currencies;
+    }
+
+    /**
+     * @return Returns the number of entries with a market cap above the given one, or at least the given one
+     */
+    private static int countAbove(Node node, long marketCap, boolean inclusive) {
+        int count = 0;
+        while (node != null) {
+            long cap = node.currency.getMarketCap();
+            if (cap > marketCap || (inclusive && cap == marketCap)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the entries of a subtree at positions from until to, relative to the subtree, in order
+     */
+    private static void collect(Node node, int from, int to, List<Currency> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.currency);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.currency);
+            return added.with(parts[0], parts[1]);
+        }
+        return ORDER.compare(added.currency, node.currency) < 0
+            ? node.with(insert(node.left, added), node.right)
+            : node.with(node.left, insert(node.right, added));
+    }
+
+    private static Node delete(Node node, Currency currency) {
+        if (node == null) {
+            return null;
+        }
+        int compared = ORDER.compare(currency, node.currency);
+        if (compared < 0) {
+            Node left = delete(node.left, currency);
+            return left == node.left ? node : node.with(left, node.right);
+        }
+        if (compared > 0) {
+            Node right = delete(node.right, currency);
+            return right == node.right ? node : node.with(node.left, right);
+        }
+        return merge(node.left, node.right);
+    }
+
+    /**
+     * @return Returns the entries ordered before the key and the remaining entries
+     */
+    private static Node[] split(Node node, Currency key) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (ORDER.compare(node.currency, key) < 0) {
+            Node[] parts = split(node.right, key);
+            return new Node[]{node.with(node.left, parts[0]), parts[1]};
+        }
+        Node[] parts = split(node.left, key);
+        return new Node[]{parts[0], node.with(parts[1], node.right)};
+    }
+
+    /**
+     * @return Returns the entries of both subtrees, where every entry of the first is ordered before the second
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.priority > second.priority
+            ? first.with(first.left, merge(first.right, second))
+            : second.with(merge(first, second.left), second.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+
+        private final Currency currency;
+        private final int priority;
+        private final Node left;
+        private final Node right;
+        private final int size;
+
+        private Node(Currency currency, int priority, Node left, Node right) {
+            this.currency = currency;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        private Node with(Node left, Node right) {
+            return new Node(currency, priority, left, right);
+        }
+    }
+}
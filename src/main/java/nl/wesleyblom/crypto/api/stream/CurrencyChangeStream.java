@@ -0,0 +1,133 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fans every {@link CurrencyChangedEvent} out to the subscribers of the change stream
+ *
+ * Every subscriber has its own {@link StreamSubscription}, changes are sent by a small shared pool of
+ * currency.stream.threads threads. A slow subscriber only delays itself: it receives the latest change per ticker,
+ * and is disconnected when more than currency.stream.max-pending tickers are waiting. A rename is streamed as a
+ * delete of the old ticker and an update of the new one, so the latest change of every ticker is complete.
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+@Component
+public class CurrencyChangeStream {
+
+    private final Set<StreamSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService heartbeats;
+    private final int maxPending;
+
+    /**
+     * Constructor for the stream
+     *
+     * @param threads The number of threads sending changes to subscribers
+     * @param maxPending The maximum number of tickers with a change waiting for a single subscriber
+     * @param heartbeatSeconds The interval of heartbeats to every subscriber, 0 to send none
+     */
+    public CurrencyChangeStream(@Value("${currency.stream.threads:4}") int threads,
+        @Value("${currency.stream.max-pending:10000}") int maxPending,
+        @Value("${currency.stream.heartbeat-seconds:15}") long heartbeatSeconds) {
+        if (threads < 1 || maxPending < 1 || heartbeatSeconds < 0) {
+            throw new IllegalArgumentException("Threads and maximum pending need to be positive, heartbeat can not be negative");
+        }
+        // a subscription has at most one drain queued, so the queue of the pool is bounded by the number of subscribers
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory("currency-stream-"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(threadFactory("currency-stream-heartbeat-"));
+        this.maxPending = maxPending;
+        if (heartbeatSeconds > 0) {
+            heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Starts sending changes to a subscriber, changes written before are not sent
+     *
+     * @param sink The connection to the subscriber
+     * @return Returns the subscription, to be closed when the subscriber goes away
+     */
+    public StreamSubscription subscribe(StreamSink sink) {
+        StreamSubscription subscription = new StreamSubscription(sink, executor, maxPending, subscriptions::remove);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Offers a write to every subscriber
+     *
+     * @param event The write
+     */
+    @EventListener
+    public void onCurrencyChanged(CurrencyChangedEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (event.isRename()) {
+            Currency currency = event.getCurrency();
+            offer(new CurrencyChangedEvent(CurrencyChangedEvent.Type.DELETED, event.getTicker(), null, event.getVersion(),
+                event.getTimestamp()));
+            offer(new CurrencyChangedEvent(CurrencyChangedEvent.Type.UPDATED, currency.getTicker(), currency,
+                event.getVersion(), event.getTimestamp()));
+        } else {
+            offer(event);
+        }
+    }
+
+    private void offer(CurrencyChangedEvent event) {
+        for (StreamSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private void heartbeat() {
+        for (StreamSubscription subscription : subscriptions) {
+            subscription.heartbeat();
+        }
+    }
+
+    /**
+     * @return Returns the number of connected subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Disconnects every subscriber and stops sending
+     */
+    @PreDestroy
+    public void close() {
+        heartbeats.shutdownNow();
+        for (StreamSubscription subscription : new ArrayList<>(subscriptions)) {
+            subscription.close();
+        }
+        executor.shutdown();
+    }
+
+    static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST endpoint streaming every write of a {@link Currency} as Server-Sent Events
+ * With the profile 'reactive' the stream is served by {@code nl.wesleyblom.crypto.api.reactive.CurrencyHandler} instead.
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+@RestController
+@Profile("!reactive")
+public class CurrencyStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyStreamController.class);
+
+    @Autowired
+    CurrencyChangeStream currencyChangeStream;
+
+    @Autowired
+    CurrencyJsonCache currencyJsonCache;
+
+    @Value("${currency.stream.timeout-ms:1800000}")
+    long timeoutMillis;
+
+    @Value("${currency.stream.send-timeout-ms:10000}")
+    long sendTimeoutMillis;
+
+    private final ExecutorService writers = Executors.newCachedThreadPool(CurrencyChangeStream.threadFactory("currency-stream-writer-"));
+
+    /**
+     * Endpoint to subscribe to changes of {@link Currency} objects
+     * Events are named created, updated or deleted. The data of created and updated is the JSON of the
+     * {@link Currency}, the data of deleted only contains the ticker. A subscriber that falls behind receives the
+     * latest change of every ticker, and is disconnected when it falls too far behind, when it does not take a change
+     * within currency.stream.send-timeout-ms or after currency.stream.timeout-ms.
+     *
+     * @return Returns the event stream
+     */
+    @GetMapping(value = "/api/currencies/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCurrencies() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        EmitterSink sink = new EmitterSink(emitter, currencyJsonCache, writers, sendTimeoutMillis);
+        StreamSubscription subscription = currencyChangeStream.subscribe(sink);
+        sink.attach(subscription);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        logger.debug("Request to stream currencies - [{}] subscribers", currencyChangeStream.getSubscriberCount());
+        return emitter;
+    }
+
+    /**
+     * Stops the threads writing to subscribers
+     */
+    @PreDestroy
+    public void close() {
+        writers.shutdownNow();
+    }
+
+    /**
+     * Sends changes to an {@link SseEmitter}
+     *
+     * A write to the emitter blocks until the client has taken the bytes, so it runs on a writer thread of its own
+     * instead of the shared pool of the {@link CurrencyChangeStream}. The sink is not ready while a write is in flight,
+     * changes keep being coalesced in the meantime. A write in flight for longer than the send timeout ends the
+     * subscription, a client that stopped reading then only holds its own writer threads until the connection times out.
+     */
+    static class EmitterSink implements StreamSink {
+
+        private final SseEmitter emitter;
+        private final CurrencyJsonCache currencyJsonCache;
+        private final Executor writers;
+        private final long sendTimeoutNanos;
+
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private volatile long writeStart;
+        private volatile StreamSubscription subscription;
+
+        EmitterSink(SseEmitter emitter, CurrencyJsonCache currencyJsonCache, Executor writers, long sendTimeoutMillis) {
+            this.emitter = emitter;
+            this.currencyJsonCache = currencyJsonCache;
+            this.writers = writers;
+            this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        }
+
+        /**
+         * Connects the sink to its subscription, changes offered before are sent from now on
+         *
+         * @param subscription The subscription sending to this sink
+         */
+        void attach(StreamSubscription subscription) {
+            this.subscription = subscription;
+            subscription.schedule();
+        }
+
+        @Override
+        public boolean ready() {
+            if (!writing.get()) {
+                return true;
+            }
+            StreamSubscription current = subscription;
+            if (current != null && System.nanoTime() - writeStart > sendTimeoutNanos) {
+                logger.info("Closing stream subscriber that did not take a change within [{}] ms",
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                current.close();
+            }
+            return false;
+        }
+
+        @Override
+        public void send(CurrencyChangedEvent event) throws IOException {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.getType().name().toLowerCase(Locale.ROOT));
+            if (event.getCurrency() == null) {
+                builder.data(Collections.singletonMap("ticker", event.getTicker()), MediaType.APPLICATION_JSON);
+            } else {
+                builder.data(currencyJsonCache.encode(event.getCurrency()), MediaType.APPLICATION_JSON);
+            }
+            write(builder);
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            write(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            // completing waits for a write in flight, which may never return
+            try {
+                writers.execute(emitter::complete);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Closing stream subscriber after shutdown: [{}]", e.toString());
+            }
+        }
+
+        private void write(SseEmitter.SseEventBuilder builder) throws IOException {
+            writeStart = System.nanoTime();
+            writing.set(true);
+            try {
+                writers.execute(() -> {
+                    try {
+                        emitter.send(builder);
+                        writing.set(false);
+                        StreamSubscription current = subscription;
+                        if (current != null) {
+                            current.schedule();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        logger.debug("Stream subscriber went away: [{}]", e.toString());
+                        StreamSubscription current = subscription;
+                        if (current != null) {
+                            current.close();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+                throw new IOException("Writers have been shut down", e);
+            }
+        }
+    }
+}
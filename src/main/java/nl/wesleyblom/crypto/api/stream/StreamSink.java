@@ -0,0 +1,42 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import java.io.IOException;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+
+/**
+ * Connection of a single subscriber of the {@link CurrencyChangeStream}
+ *
+ * Methods are called by one thread at a time, never by the thread that wrote the {@link nl.wesleyblom.crypto.api.model.Currency}.
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+public interface StreamSink {
+
+    /**
+     * @return Returns true when the subscriber can take a change now, false to hold changes until
+     *         {@link StreamSubscription#schedule()} is called
+     */
+    boolean ready();
+
+    /**
+     * Sends a change to the subscriber
+     *
+     * @param event The latest change of a ticker
+     * @throws IOException when the subscriber can not be reached, which ends the subscription
+     */
+    void send(CurrencyChangedEvent event) throws IOException;
+
+    /**
+     * Sends a message without content, which keeps the connection open and detects subscribers that went away
+     *
+     * @throws IOException when the subscriber can not be reached, which ends the subscription
+     */
+    void heartbeat() throws IOException;
+
+    /**
+     * Ends the connection, called once when the subscription ends
+     */
+    void close();
+}
@@ -0,0 +1,169 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Changes waiting to be sent to a single subscriber, coalesced to the latest change per ticker
+ *
+ * A writer puts its change in a map by ticker; when the ticker was not pending yet it is also appended to a queue
+ * that keeps the order in which tickers changed. A writer never waits for the subscriber, it only schedules a drain
+ * on the shared executor when none is scheduled yet. The drain sends at most {@link #BATCH} changes and schedules
+ * itself again, so a subscriber with many changes does not hold a thread from the others.
+ *
+ * A subscriber that falls behind only receives the latest change of every ticker. When more tickers are pending
+ * than allowed the subscription is closed, the subscriber has to read the current state again after reconnecting.
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+public class StreamSubscription {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamSubscription.class);
+
+    static final int BATCH = 64;
+
+    private final StreamSink sink;
+    private final Executor executor;
+    private final int maxPending;
+    private final Consumer<StreamSubscription> onClose;
+
+    private final Map<String, CurrencyChangedEvent> pending = new ConcurrentHashMap<>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean heartbeatDue;
+
+    /**
+     * Constructor for a subscription
+     *
+     * @param sink The connection to the subscriber
+     * @param executor The executor to send changes on
+     * @param maxPending The maximum number of tickers with a change waiting to be sent
+     * @param onClose Called once when the subscription ends
+     */
+    StreamSubscription(StreamSink sink, Executor executor, int maxPending, Consumer<StreamSubscription> onClose) {
+        this.sink = sink;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Adds a change, replacing a change of the same ticker that has not been sent yet
+     *
+     * @param event The change
+     */
+    void offer(CurrencyChangedEvent event) {
+        if (closed.get()) {
+            return;
+        }
+        if (pending.put(event.getTicker(), event) == null) {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                logger.info("Closing stream subscriber that is more than [{}] tickers behind", maxPending);
+                close();
+                return;
+            }
+            order.offer(event.getTicker());
+        }
+        schedule();
+    }
+
+    /**
+     * Sends a heartbeat with the next drain
+     */
+    void heartbeat() {
+        heartbeatDue = true;
+        schedule();
+    }
+
+    /**
+     * Schedules a drain when none is scheduled, to be called when the {@link StreamSink} is ready again
+     */
+    public void schedule() {
+        if (closed.get() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            close();
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int sent = 0; sent < BATCH && !closed.get() && sink.ready(); sent++) {
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    sink.heartbeat();
+                    continue;
+                }
+                String ticker = order.poll();
+                if (ticker == null) {
+                    break;
+                }
+                pendingCount.decrementAndGet();
+                CurrencyChangedEvent event = pending.remove(ticker);
+                if (event != null) {
+                    sink.send(event);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Stream subscriber went away: [{}]", e.toString());
+            close();
+        } finally {
+            scheduled.set(false);
+        }
+
+        // a change offered while the flag was still set did not schedule a drain
+        if ((!order.isEmpty() || heartbeatDue) && sink.ready()) {
+            schedule();
+        }
+    }
+
+    /**
+     * @return Returns the number of tickers with a change waiting to be sent
+     */
+    public int getPending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return Returns true when the subscription has ended
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Ends the subscription and closes the {@link StreamSink}, pending changes are dropped
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        pending.clear();
+        order.clear();
+        onClose.accept(this);
+        try {
+            sink.close();
+        } catch (RuntimeException e) {
+            logger.debug("Closing stream subscriber failed: [{}]", e.toString());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package nl.wesleyblom.crypto.api.version;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Global modification counter for {@link Currency} objects.
+ *
+ * Writes that create or update a {@link Currency} take the next value of the counter and store it as its version.
+ * The version of a single {@link Currency} is used in its ETag, the counter itself in the ETag of every listing since
+ * any write can change a listing. Every write reports itself through {@link #written()} after it has been executed,
+ * which advances the counter again once the write is visible to readers. A listing read under an older counter value
+ * can then never be tagged with the counter value of a committed write.
+ *
+ * @author Wesley
+ * @date 2019-03-11
+ */
+
+@Component
+public class CurrencyVersions {
+
+    private final CurrencyRepository currencyRepository;
+    private final AtomicLong counter = new AtomicLong();
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    /**
+     * Constructor for the version counter
+     *
+     * @param currencyRepository The repository to read the highest stored version from
+     */
+    public CurrencyVersions(CurrencyRepository currencyRepository) {
+        this.currencyRepository = currencyRepository;
+    }
+
+    /**
+     * Continues counting after the highest version that has been stored
+     */
+    @PostConstruct
+    public void init() {
+        Long highest = currencyRepository.findMaxVersion();
+        counter.set(highest == null ? 0 : highest);
+    }
+
+    /**
+     * Advances the counter to get the version for a {@link Currency} that is about to be written
+     *
+     * @return Returns the new version
+     */
+    public long next() {
+        return counter.incrementAndGet();
+    }
+
+    /**
+     * Advances the counter after a write, needs to be called for every write including deletes.
+     * When called inside a transaction the counter is advanced again after the transaction completes.
+     */
+    public void written() {
+        counter.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    counter.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return Returns the version of the last write
+     */
+    public long current() {
+        return counter.get();
+    }
+
+    /**
+     * The ETag for a single {@link Currency}. Contains the start time of the application like {@link #collectionTag()},
+     * versions are not unique across restarts: the counter restarts from the highest stored version and seeded
+     * {@link Currency} objects all have version 0.
+     *
+     * @param version The version of a {@link Currency}
+     * @return Returns the strong ETag for the given version
+     */
+    public String tag(long version) {
+        return "\"" + epoch + "." + version + "\"";
+    }
+
+    /**
+     * The ETag for listings of {@link Currency} objects. Contains the start time of the application as the counter
+     * restarts from the highest stored version, which can be lower than before when that {@link Currency} has been deleted.
+     *
+     * @return Returns the strong ETag for the current state of all {@link Currency} objects
+     */
+    public String collectionTag() {
+        return collectionTag(counter.get());
+    }
+
+    /**
+     * @param version A value of the counter returned by {@link #current()}
+     * @return Returns the strong ETag for all {@link Currency} objects at the given counter value
+     */
+    public String collectionTag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
@@ -1,5 +1,5 @@
-INSERT INTO Currency (ticker, name, number_of_coins, market_cap) VALUES
-            ('BTC', 'Bitcoin', '16770000', '189580000000' ),
-            ('ETH', 'Ethereum', '96710000', '69280000000' ),
-            ('XRP', 'Ripple', '38590000000', '64750000000' ),
-            ('BCH', 'BitcoinCash', '16670000', '69020000000' );
+INSERT INTO Currency (ticker, name, number_of_coins, market_cap, version) VALUES
+            ('BTC', 'Bitcoin', '16770000', '189580000000', '0' ),
+            ('ETH', 'Ethereum', '96710000', '69280000000', '0' ),
+            ('XRP', 'Ripple', '38590000000', '64750000000', '0' ),
+            ('BCH', 'BitcoinCash', '16670000', '69020000000', '0' );
@@ -0,0 +1,133 @@
+package nl.wesleyblom.crypto.api.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.validation.Validation;
+import nl.wesleyblom.crypto.api.CurrencyRestController;
+import nl.wesleyblom.crypto.api.batch.CurrencyBatchService;
+import nl.wesleyblom.crypto.api.cache.CompressedPageCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCborCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.export.CurrencyExporter;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.stats.CurrencyAggregates;
+import nl.wesleyblom.crypto.api.stream.CurrencyChangeStream;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.MockMvc;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Sends the same paging parameters to {@link CurrencyRestController} and {@link CurrencyHandler}, both need to answer
+ * with the same status and query the same page
+ *
+ * @author Wesley
+ * @date 2019-04-09
+ */
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CurrencyRestController.class)
+@EnableSpringDataWebSupport
+@Import({CurrencyCache.class, CurrencyJsonCache.class, CurrencyCborCache.class, CompressedPageCache.class,
+    CurrencyVersions.class})
+public class CurrencyHandlerParityTest {
+
+    private static final String API_URL = "/api/currencies";
+
+    private static final List<String> QUERIES = Arrays.asList(
+        "", "?page=-1", "?page=abc", "?page=", "?page=1&size=2", "?size=0", "?size=-5", "?size=abc", "?size=100000",
+        "?sort=marketCap,desc", "?sort=name", "?sort=", "?sort=marketCap,ticker,desc", "?sort=name&sort=ticker,desc",
+        "?sort=unknown", "?sort=ticker,sideways", "?seek=ticker&size=-1", "?seek=ticker&sort=unknown");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CurrencyRepository currencyRepository;
+
+    @Autowired
+    private CurrencyCache currencyCache;
+
+    @Autowired
+    private CurrencyJsonCache currencyJsonCache;
+
+    @Autowired
+    private CurrencyVersions currencyVersions;
+
+    @MockBean
+    private CurrencyBatchService currencyBatchService;
+
+    @MockBean
+    private CurrencyExporter currencyExporter;
+
+    @MockBean
+    private CurrencyAggregates currencyAggregates;
+
+    private CurrencyChangeStream currencyChangeStream;
+    private WebTestClient client;
+    private List<Pageable> queried;
+
+    @Before
+    public void setup() {
+        queried = new ArrayList<>();
+        Currency xrp = new Currency.CurrencyBuilder().withTicker("XRP").withName("Ripple").build();
+        // Like the query Spring Data derives from the Pageable, an unknown sort property throws
+        given(currencyRepository.findAll(any(Pageable.class))).willAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            pageable.getSort().forEach(order -> PropertyPath.from(order.getProperty(), Currency.class));
+            queried.add(pageable);
+            return new PageImpl<>(Arrays.asList(xrp));
+        });
+
+        ReactiveCurrencyRepository reactiveRepository = new ReactiveCurrencyRepository(currencyRepository, currencyCache,
+            currencyVersions, event -> { }, Schedulers.immediate());
+        currencyChangeStream = new CurrencyChangeStream(1, 100, 0);
+        CurrencyHandler handler = new CurrencyHandler(reactiveRepository, currencyJsonCache, currencyVersions,
+            Validation.buildDefaultValidatorFactory().getValidator(), currencyChangeStream);
+        client = WebTestClient.bindToRouterFunction(new ReactiveConfiguration().currencyRoutes(handler)).build();
+    }
+
+    @After
+    public void close() {
+        currencyChangeStream.close();
+    }
+
+    @Test
+    public void pagingParametersHaveSameOutcome() throws Exception {
+        for (String query : QUERIES) {
+            currencyJsonCache.clear();
+            queried.clear();
+            int mvcStatus = mvc.perform(get(API_URL + query)).andReturn().getResponse().getStatus();
+            List<Pageable> mvcQueried = new ArrayList<>(queried);
+
+            currencyJsonCache.clear();
+            queried.clear();
+            int reactiveStatus = client.get().uri(API_URL + query).exchange().returnResult(byte[].class)
+                .getStatus().value();
+
+            assertEquals("Status of [" + query + "]", mvcStatus, reactiveStatus);
+            assertEquals("Page of [" + query + "]", mvcQueried, queried);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package nl.wesleyblom.crypto.api.reactive;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import nl.wesleyblom.crypto.api.CurrencyRestController;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.stream.CurrencyChangeStream;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Unit tests for {@link CurrencyHandler}, checking the same status codes as the tests of {@link CurrencyRestController}
+ *
+ * @author Wesley
+ * @date 2019-03-25
+ */
+
+public class CurrencyHandlerTest {
+
+    private static final String API_URL = "/api/currencies";
+    private static final String API_URL_XRP = "/api/currencies/XRP";
+    private static final String JSON_XRP = "{\"ticker\":\"XRP\",\"name\":\"Ripple\",\"numberOfCoins\":1,\"marketCap\":2}";
+
+    private CurrencyRepository currencyRepository;
+    private CurrencyVersions currencyVersions;
+    private List<Object> events;
+    private CurrencyChangeStream currencyChangeStream;
+    private WebTestClient client;
+
+    @Before
+    public void setup() {
+        currencyRepository = mock(CurrencyRepository.class);
+        CurrencyCache currencyCache = new CurrencyCache(currencyRepository, 100, 60);
+        currencyVersions = new CurrencyVersions(currencyRepository);
+        currencyVersions.init();
+        events = new ArrayList<>();
+
+        ReactiveCurrencyRepository reactiveRepository = new ReactiveCurrencyRepository(currencyRepository, currencyCache,
+            currencyVersions, events::add, Schedulers.immediate());
+        currencyChangeStream = new CurrencyChangeStream(1, 100, 0);
+        CurrencyHandler handler = new CurrencyHandler(reactiveRepository, new CurrencyJsonCache(new ObjectMapper(), 100, 100),
+            currencyVersions, Validation.buildDefaultValidatorFactory().getValidator(), currencyChangeStream);
+
+        client = WebTestClient.bindToRouterFunction(new ReactiveConfiguration().currencyRoutes(handler)).build();
+    }
+
+    @After
+    public void close() {
+        currencyChangeStream.close();
+    }
+
+    @Test
+    public void getKnownCurrencyReturns200() {
+        given(currencyRepository.findByTicker("XRP")).willReturn(Optional.of(xrp()));
+
+        client.get().uri(API_URL_XRP).exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, currencyVersions.tag(0))
+            .expectBody().json(JSON_XRP);
+    }
+
+    @Test
+    public void getUnknownCurrencyReturns404() {
+        client.get().uri(API_URL_XRP).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getUnchangedCurrencyReturns304() {
+        given(currencyRepository.findVersionByTicker("XRP")).willReturn(Optional.of(0L));
+
+        client.get().uri(API_URL_XRP).header(HttpHeaders.IF_NONE_MATCH, currencyVersions.tag(0)).exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void getAllReturnsPage() {
+        given(currencyRepository.findAll(any(Pageable.class))).willReturn(new PageImpl<>(Arrays.asList(xrp())));
+
+        client.get().uri(API_URL + "?size=5&sort=marketCap,desc").exchange()
+            .expectStatus().isOk()
+            .expectBody().json("[" + JSON_XRP + "]");
+    }
+
+    @Test
+    public void getAllWithoutCurrenciesReturns404() {
+        given(currencyRepository.findAll(any(Pageable.class))).willReturn(new PageImpl<>(Arrays.asList()));
+
+        client.get().uri(API_URL).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getAllWithInvalidCursorReturns400() {
+        client.get().uri(API_URL + "?cursor=invalid").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getAllWithUnknownSortReturns400() {
+        client.get().uri(API_URL + "?sort=unknown").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void createValidCurrencyReturns201() {
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(1);
+
+        client.post().uri(API_URL).contentType(MediaType.APPLICATION_JSON).syncBody(JSON_XRP).exchange()
+            .expectStatus().isCreated()
+            .expectBody().json(JSON_XRP);
+        assertEquals(CurrencyChangedEvent.Type.CREATED, ((CurrencyChangedEvent) events.get(0)).getType());
+    }
+
+    @Test
+    public void createDuplicateCurrencyReturns409() {
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(0);
+
+        client.post().uri(API_URL).contentType(MediaType.APPLICATION_JSON).syncBody(JSON_XRP).exchange()
+            .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void createInvalidCurrencyReturns400() {
+        client.post().uri(API_URL).contentType(MediaType.APPLICATION_JSON).syncBody("{\"ticker\":\"TOOLONG\",\"name\":\"\"}")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void createMalformedCurrencyReturns400() {
+        client.post().uri(API_URL).contentType(MediaType.APPLICATION_JSON).syncBody("{\"ticker\":").exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void updateExistingCurrencyReturns200() {
+        given(currencyRepository.updateByTicker(any(Currency.class))).willReturn(1);
+
+        client.put().uri(API_URL_XRP).contentType(MediaType.APPLICATION_JSON).syncBody(JSON_XRP).exchange()
+            .expectStatus().isOk();
+        assertEquals(CurrencyChangedEvent.Type.UPDATED, ((CurrencyChangedEvent) events.get(0)).getType());
+    }
+
+    @Test
+    public void updateNonExistingCurrencyReturns404() {
+        client.put().uri(API_URL_XRP).contentType(MediaType.APPLICATION_JSON).syncBody(JSON_XRP).exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void renameToExistingTickerReturns409() {
+        given(currencyRepository.renameTicker(eq("OLD"), any(Currency.class)))
+            .willThrow(new DataIntegrityViolationException("duplicate"));
+
+        client.put().uri(API_URL + "/OLD").contentType(MediaType.APPLICATION_JSON).syncBody(JSON_XRP).exchange()
+            .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void deleteExistingCurrencyReturns200() {
+        given(currencyRepository.deleteTicker("XRP")).willReturn(1);
+
+        client.delete().uri(API_URL_XRP).exchange().expectStatus().isOk();
+        assertEquals(CurrencyChangedEvent.Type.DELETED, ((CurrencyChangedEvent) events.get(0)).getType());
+    }
+
+    @Test
+    public void deleteNonExistingCurrencyReturns404() {
+        client.delete().uri(API_URL_XRP).exchange().expectStatus().isNotFound();
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void writesAreStreamedAsEvents() throws Exception {
+        FluxExchangeResult<String> result = client.get().uri(API_URL + "/stream").accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class);
+        CompletableFuture<String> first = result.getResponseBody().next().toFuture();
+        for (int i = 0; i < 500 && currencyChangeStream.getSubscriberCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        currencyChangeStream.onCurrencyChanged(CurrencyChangedEvent.deleted("XRP", 1));
+
+        assertEquals("{\"ticker\":\"XRP\"}", first.get(5, TimeUnit.SECONDS));
+    }
+
+    private static Currency xrp() {
+        return new Currency.CurrencyBuilder().withTicker("XRP").withName("Ripple").withNumberOfCoins(1).withMarketCap(2).build();
+    }
+}
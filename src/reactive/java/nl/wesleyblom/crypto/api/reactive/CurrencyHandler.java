@@ -0,0 +1,366 @@
+package nl.wesleyblom.crypto.api.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import javax.validation.Validator;
+import nl.wesleyblom.crypto.api.CurrencyRestController;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.paging.SeekCursor;
+import nl.wesleyblom.crypto.api.stream.CurrencyChangeStream;
+import nl.wesleyblom.crypto.api.stream.StreamSink;
+import nl.wesleyblom.crypto.api.stream.StreamSubscription;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.codec.CodecException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive handlers for the {@link Currency} API, with the same contract as {@link CurrencyRestController}
+ *
+ * @author Wesley
+ * @date 2019-03-25
+ */
+
+public class CurrencyHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyHandler.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 2000;
+    private static final String[] SORT_PROPERTIES = {"ticker", "name", "numberOfCoins", "marketCap"};
+
+    private final ReactiveCurrencyRepository currencyRepository;
+    private final CurrencyJsonCache currencyJsonCache;
+    private final CurrencyVersions currencyVersions;
+    private final Validator validator;
+    private final CurrencyChangeStream currencyChangeStream;
+
+    /**
+     * Constructor for the handler
+     *
+     * @param currencyRepository The repository to read and write {@link Currency} objects with
+     * @param currencyJsonCache The cache of encoded JSON
+     * @param currencyVersions The version counter for ETags and writes
+     * @param validator The validator for request bodies
+     * @param currencyChangeStream The stream of writes to subscribe to
+     */
+    public CurrencyHandler(ReactiveCurrencyRepository currencyRepository, CurrencyJsonCache currencyJsonCache,
+        CurrencyVersions currencyVersions, Validator validator, CurrencyChangeStream currencyChangeStream) {
+        this.currencyRepository = currencyRepository;
+        this.currencyJsonCache = currencyJsonCache;
+        this.currencyVersions = currencyVersions;
+        this.validator = validator;
+        this.currencyChangeStream = currencyChangeStream;
+    }
+
+    /**
+     * Lists {@link Currency} objects by offset page or keyset page
+     *
+     * @see CurrencyRestController#getAll
+     */
+    public Mono<ServerResponse> getAll(ServerRequest request) {
+        long version = currencyVersions.current();
+        String etag = currencyVersions.collectionTag(version);
+        if (request.exchange().checkNotModified(etag)) {
+            return notModified(etag);
+        }
+
+        String seek = request.queryParam("seek").orElse(null);
+        String cursor = request.queryParam("cursor").orElse(null);
+        String after = request.queryParam("after").orElse(null);
+
+        if (seek != null || cursor != null || after != null) {
+            return getSeekPage(seek, cursor, after, pageSize(request), etag);
+        }
+
+        Pageable pageable;
+        try {
+            pageable = pageable(request);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Request received all items with unknown sort [{}]", e.getMessage());
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        String key = pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        byte[] cached = currencyJsonCache.getPage(key, version);
+        if (cached != null) {
+            return json(HttpStatus.OK, etag, cached);
+        }
+
+        return currencyRepository.findPage(pageable).flatMap(page -> {
+            if (page.isEmpty()) {
+                return ServerResponse.status(HttpStatus.NOT_FOUND).build();
+            }
+            byte[] json = currencyJsonCache.encode(page);
+            currencyJsonCache.putPage(key, version, json);
+            return json(HttpStatus.OK, etag, json);
+        });
+    }
+
+    /**
+     * Reads a single {@link Currency}
+     *
+     * @see CurrencyRestController#getCurrency
+     */
+    public Mono<ServerResponse> getCurrency(ServerRequest request) {
+        String ticker = request.pathVariable("ticker");
+
+        Mono<ServerResponse> full = currencyRepository.findByTicker(ticker)
+            .flatMap(currency -> json(HttpStatus.OK, currencyVersions.tag(currency.getVersion()), currencyJsonCache.encode(currency)))
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.status(HttpStatus.NOT_FOUND).build()));
+
+        if (request.headers().header(HttpHeaders.IF_NONE_MATCH).isEmpty()) {
+            return full;
+        }
+        return currencyRepository.findVersionByTicker(ticker)
+            .map(currencyVersions::tag)
+            .filter(etag -> request.exchange().checkNotModified(etag))
+            .flatMap(this::notModified)
+            .switchIfEmpty(full);
+    }
+
+    /**
+     * Creates a {@link Currency}
+     *
+     * @see CurrencyRestController#createCurrency
+     */
+    public Mono<ServerResponse> createCurrency(ServerRequest request) {
+        return body(request).flatMap(currency -> {
+            if (!validator.validate(currency).isEmpty()) {
+                logger.debug("Bad request to create new Currency: [{}]", currency);
+                return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+            }
+
+            currency.setVersion(currencyVersions.next());
+            return currencyRepository.insertIfAbsent(currency).flatMap(created -> created
+                ? json(HttpStatus.CREATED, currencyVersions.tag(currency.getVersion()), currencyJsonCache.encode(currency))
+                : json(HttpStatus.CONFLICT, null, currencyJsonCache.encode(currency)));
+        }).switchIfEmpty(badRequest());
+    }
+
+    /**
+     * Updates or renames a {@link Currency}
+     *
+     * @see CurrencyRestController#updateCurrency
+     */
+    public Mono<ServerResponse> updateCurrency(ServerRequest request) {
+        String ticker = request.pathVariable("ticker");
+
+        return body(request).flatMap(currency -> {
+            if (!validator.validate(currency).isEmpty()) {
+                logger.debug("Bad request to update Currency with Ticker [{}]: [{}]", ticker, currency);
+                return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+            }
+
+            currency.setVersion(currencyVersions.next());
+            return currencyRepository.update(ticker, currency)
+                .flatMap(updated -> updated == 0
+                    ? json(HttpStatus.NOT_FOUND, null, currencyJsonCache.encode(currency))
+                    : json(HttpStatus.OK, currencyVersions.tag(currency.getVersion()), currencyJsonCache.encode(currency)))
+                .onErrorResume(DataIntegrityViolationException.class,
+                    e -> json(HttpStatus.CONFLICT, null, currencyJsonCache.encode(currency)));
+        }).switchIfEmpty(badRequest());
+    }
+
+    /**
+     * Deletes a {@link Currency}
+     *
+     * @see CurrencyRestController#deleteCurrency
+     */
+    public Mono<ServerResponse> deleteCurrency(ServerRequest request) {
+        return currencyRepository.deleteTicker(request.pathVariable("ticker"))
+            .flatMap(deleted -> ServerResponse.status(deleted == 0 ? HttpStatus.NOT_FOUND : HttpStatus.OK).build());
+    }
+
+    /**
+     * Streams writes of {@link Currency} objects as Server-Sent Events. Changes are only sent on demand of the
+     * client, meanwhile they are coalesced per ticker.
+     *
+     * @see nl.wesleyblom.crypto.api.stream.CurrencyStreamController#streamCurrencies
+     */
+    public Mono<ServerResponse> streamCurrencies(ServerRequest request) {
+        Flux<ServerSentEvent<Object>> changes = Flux.create(sink -> {
+            StreamSubscription subscription = currencyChangeStream.subscribe(new FluxStreamSink(sink, currencyJsonCache));
+            sink.onRequest(demand -> subscription.schedule());
+            sink.onDispose(subscription::close);
+        });
+        // headers are only written with the first event, which may take long without a comment up front
+        Flux<ServerSentEvent<Object>> events = Flux.concat(Mono.just(ServerSentEvent.builder().comment("connected").build()), changes);
+        return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    private Mono<ServerResponse> getSeekPage(String seek, String cursor, String after, int size, String etag) {
+        SeekCursor seekCursor;
+        try {
+            if (cursor != null) {
+                seekCursor = SeekCursor.decode(cursor);
+            } else if (after != null) {
+                seekCursor = SeekCursor.afterTicker(after);
+            } else {
+                seekCursor = SeekCursor.first(SeekCursor.Order.fromName(seek));
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Request received keyset page with invalid cursor [{}]", cursor);
+            return ServerResponse.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        // One extra row tells whether there is a next page, without counting the table
+        Pageable limit = PageRequest.of(0, size + 1);
+        Mono<List<Currency>> rows = seekCursor.getOrder() == SeekCursor.Order.TICKER
+            ? currencyRepository.findPageAfterTicker(seekCursor.getTicker(), limit)
+            : currencyRepository.findPageAfterMarketCap(seekCursor.getMarketCap(), seekCursor.getTicker(), limit);
+
+        return rows.flatMap(page -> {
+            if (page.isEmpty()) {
+                return ServerResponse.status(HttpStatus.NOT_FOUND).build();
+            }
+            if (page.size() > size) {
+                List<Currency> content = page.subList(0, size);
+                return ServerResponse.status(HttpStatus.OK)
+                    .header(CurrencyRestController.NEXT_CURSOR_HEADER, seekCursor.after(content.get(size - 1)).encode())
+                    .eTag(etag)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .syncBody(currencyJsonCache.encode(content));
+            }
+            return json(HttpStatus.OK, etag, currencyJsonCache.encode(page));
+        });
+    }
+
+    /**
+     * Reads the {@link Currency} from the body, empty when the body is missing or not valid JSON
+     */
+    private static Mono<Currency> body(ServerRequest request) {
+        return request.bodyToMono(Currency.class)
+            .onErrorResume(e -> e instanceof CodecException || e instanceof ServerWebInputException, e -> Mono.empty());
+    }
+
+    /**
+     * Reads page, size and sort like the {@link org.springframework.data.web.PageableHandlerMethodArgumentResolver} of
+     * Spring MVC: a page that is negative or not a number is the first page, a size that is not positive or not a
+     * number is the default size. Only sort properties of {@link Currency} are allowed, like the query of Spring MVC.
+     *
+     * @throws IllegalArgumentException when a sort property is unknown
+     */
+    private static Pageable pageable(ServerRequest request) {
+        int page = request.queryParam("page").map(CurrencyHandler::parsePaging).orElse(0);
+
+        List<Sort.Order> orders = new ArrayList<>();
+        for (String sortParam : request.queryParams().getOrDefault("sort", Collections.emptyList())) {
+            String[] parts = sortParam.split(",");
+            // The last part is the direction when it is one, like "marketCap,desc"
+            Optional<Sort.Direction> direction = parts.length == 0
+                ? Optional.empty()
+                : Sort.Direction.fromOptionalString(parts[parts.length - 1]);
+            int properties = direction.isPresent() ? parts.length - 1 : parts.length;
+            for (int i = 0; i < properties; i++) {
+                if (parts[i].isEmpty()) {
+                    continue;
+                }
+                if (!isSortProperty(parts[i])) {
+                    throw new IllegalArgumentException("sort " + sortParam);
+                }
+                orders.add(new Sort.Order(direction.orElse(Sort.Direction.ASC), parts[i]));
+            }
+        }
+        return PageRequest.of(page, pageSize(request), orders.isEmpty() ? Sort.by("ticker") : Sort.by(orders));
+    }
+
+    private static int pageSize(ServerRequest request) {
+        int size = request.queryParam("size").map(CurrencyHandler::parsePaging).orElse(DEFAULT_PAGE_SIZE);
+        return size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * @return Returns the non-negative number, 0 when the value is negative or not a number
+     */
+    private static int parsePaging(String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isSortProperty(String property) {
+        for (String sortProperty : SORT_PROPERTIES) {
+            if (sortProperty.equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<ServerResponse> notModified(String etag) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    private static Mono<ServerResponse> badRequest() {
+        return Mono.defer(() -> ServerResponse.status(HttpStatus.BAD_REQUEST).build());
+    }
+
+    private static Mono<ServerResponse> json(HttpStatus status, String etag, byte[] json) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON_UTF8);
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        return builder.syncBody(json);
+    }
+
+    /**
+     * Sends changes to a {@link FluxSink}, only while the subscriber has demand
+     */
+    private static class FluxStreamSink implements StreamSink {
+
+        private final FluxSink<ServerSentEvent<Object>> sink;
+        private final CurrencyJsonCache currencyJsonCache;
+
+        FluxStreamSink(FluxSink<ServerSentEvent<Object>> sink, CurrencyJsonCache currencyJsonCache) {
+            this.sink = sink;
+            this.currencyJsonCache = currencyJsonCache;
+        }
+
+        @Override
+        public boolean ready() {
+            return sink.requestedFromDownstream() > 0;
+        }
+
+        @Override
+        public void send(CurrencyChangedEvent event) {
+            Object data = event.getCurrency() == null
+                ? Collections.singletonMap("ticker", event.getTicker())
+                : new String(currencyJsonCache.encode(event.getCurrency()), StandardCharsets.UTF_8);
+            sink.next(ServerSentEvent.builder(data).event(event.getType().name().toLowerCase(Locale.ROOT)).build());
+        }
+
+        @Override
+        public void heartbeat() {
+            sink.next(ServerSentEvent.builder().comment("heartbeat").build());
+        }
+
+        @Override
+        public void close() {
+            sink.complete();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package nl.wesleyblom.crypto.api.reactive;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.validation.Validator;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.stream.CurrencyChangeStream;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive stack for the {@link nl.wesleyblom.crypto.api.model.Currency} API, active with the profile 'reactive'
+ *
+ * Requests are handled on the Netty event loop, database calls on a fixed pool of currency.reactive.database-threads
+ * threads, matching the connection pool size.
+ *
+ * @author Wesley
+ * @date 2019-03-25
+ */
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    /**
+     * Netty instead of Tomcat, which would otherwise be picked since it is on the classpath for the servlet stack
+     *
+     * @return Returns the factory of the reactive server
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * @param threads The number of threads allowed to block on the database at the same time
+     * @return Returns the scheduler for blocking database calls
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler databaseScheduler(@Value("${currency.reactive.database-threads:10}") int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "currency-db-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+        return Schedulers.fromExecutorService(executor);
+    }
+
+    @Bean
+    public ReactiveCurrencyRepository reactiveCurrencyRepository(CurrencyRepository currencyRepository,
+        CurrencyCache currencyCache, CurrencyVersions currencyVersions, ApplicationEventPublisher eventPublisher,
+        Scheduler databaseScheduler) {
+        return new ReactiveCurrencyRepository(currencyRepository, currencyCache, currencyVersions, eventPublisher,
+            databaseScheduler);
+    }
+
+    @Bean
+    public CurrencyHandler currencyHandler(ReactiveCurrencyRepository reactiveCurrencyRepository,
+        CurrencyJsonCache currencyJsonCache, CurrencyVersions currencyVersions, Validator validator,
+        CurrencyChangeStream currencyChangeStream) {
+        return new CurrencyHandler(reactiveCurrencyRepository, currencyJsonCache, currencyVersions, validator,
+            currencyChangeStream);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> currencyRoutes(CurrencyHandler currencyHandler) {
+        return route(GET("/api/currencies"), currencyHandler::getAll)
+            .andRoute(GET("/api/currencies/stream"), currencyHandler::streamCurrencies)
+            .andRoute(GET("/api/currencies/{ticker}"), currencyHandler::getCurrency)
+            .andRoute(POST("/api/currencies"), currencyHandler::createCurrency)
+            .andRoute(PUT("/api/currencies/{ticker}"), currencyHandler::updateCurrency)
+            .andRoute(DELETE("/api/currencies/{ticker}"), currencyHandler::deleteCurrency);
+    }
+}
@@ -0,0 +1,168 @@
+package nl.wesleyblom.crypto.api.reactive;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking counterpart of {@link CurrencyRepository}
+ *
+ * JPA and JDBC block, so every database call runs on a bounded {@link Scheduler} sized like the connection pool.
+ * Event loop threads never wait for the database, they only subscribe to the result. Cached lookups are answered
+ * without leaving the calling thread. Writes report themselves to {@link CurrencyVersions}, evict the
+ * {@link CurrencyCache} and publish a {@link CurrencyChangedEvent} before their result is emitted.
+ *
+ * @author Wesley
+ * @date 2019-03-25
+ */
+
+public class ReactiveCurrencyRepository {
+
+    private final CurrencyRepository currencyRepository;
+    private final CurrencyCache currencyCache;
+    private final CurrencyVersions currencyVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Scheduler scheduler;
+
+    /**
+     * Constructor for the repository
+     *
+     * @param currencyRepository The blocking repository to delegate to
+     * @param currencyCache The cache in front of lookups by ticker
+     * @param currencyVersions The version counter to report writes to
+     * @param eventPublisher The publisher to report writes to
+     * @param scheduler The scheduler to run blocking calls on
+     */
+    public ReactiveCurrencyRepository(CurrencyRepository currencyRepository, CurrencyCache currencyCache,
+        CurrencyVersions currencyVersions, ApplicationEventPublisher eventPublisher, Scheduler scheduler) {
+        this.currencyRepository = currencyRepository;
+        this.currencyCache = currencyCache;
+        this.currencyVersions = currencyVersions;
+        this.eventPublisher = eventPublisher;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns a {@link Mono} of the {@link Currency}, empty when the ticker is unknown
+     */
+    public Mono<Currency> findByTicker(String ticker) {
+        Optional<Currency> cached = currencyCache.getIfPresent(ticker);
+        if (cached != null) {
+            return Mono.justOrEmpty(cached);
+        }
+        return blocking(() -> currencyCache.findByTicker(ticker).orElse(null));
+    }
+
+    /**
+     * @param ticker The short name of the {@link Currency}
+     * @return Returns a {@link Mono} of the version of the {@link Currency}, empty when the ticker is unknown
+     */
+    public Mono<Long> findVersionByTicker(String ticker) {
+        Optional<Currency> cached = currencyCache.getIfPresent(ticker);
+        if (cached != null) {
+            return Mono.justOrEmpty(cached.map(Currency::getVersion));
+        }
+        return blocking(() -> currencyRepository.findVersionByTicker(ticker).orElse(null));
+    }
+
+    /**
+     * @param pageable The page to read
+     * @return Returns a {@link Mono} of the {@link Currency} objects on the page
+     */
+    public Mono<List<Currency>> findPage(Pageable pageable) {
+        return blocking(() -> currencyRepository.findAll(pageable).getContent());
+    }
+
+    /**
+     * @see CurrencyRepository#findPageAfterTicker(String, Pageable)
+     */
+    public Mono<List<Currency>> findPageAfterTicker(String ticker, Pageable pageable) {
+        return blocking(() -> currencyRepository.findPageAfterTicker(ticker, pageable));
+    }
+
+    /**
+     * @see CurrencyRepository#findPageAfterMarketCap(long, String, Pageable)
+     */
+    public Mono<List<Currency>> findPageAfterMarketCap(long marketCap, String ticker, Pageable pageable) {
+        return blocking(() -> currencyRepository.findPageAfterMarketCap(marketCap, ticker, pageable));
+    }
+
+    /**
+     * Creates the {@link Currency} unless its ticker is taken, also when a concurrent request took it in between
+     *
+     * @param currency The {@link Currency} to create, with its new version set
+     * @return Returns a {@link Mono} of true when the {@link Currency} has been created
+     */
+    public Mono<Boolean> insertIfAbsent(Currency currency) {
+        return blocking(() -> {
+            try {
+                if (currencyRepository.insertIfAbsent(currency) == 0) {
+                    return false;
+                }
+            } catch (DataIntegrityViolationException e) {
+                return false;
+            }
+            written(CurrencyChangedEvent.created(currency));
+            return true;
+        });
+    }
+
+    /**
+     * Updates the {@link Currency} with the given ticker, renaming it when the ticker of the {@link Currency} differs
+     *
+     * @param ticker The current short name of the {@link Currency}
+     * @param currency The new state of the {@link Currency}, with its new version set
+     * @return Returns a {@link Mono} of the number of updated rows,
+     *         signals {@link DataIntegrityViolationException} when the new ticker is taken
+     */
+    public Mono<Integer> update(String ticker, Currency currency) {
+        return blocking(() -> {
+            int updated = currency.getTicker().equals(ticker)
+                ? currencyRepository.updateByTicker(currency)
+                : currencyRepository.renameTicker(ticker, currency);
+            if (updated > 0) {
+                written(CurrencyChangedEvent.updated(ticker, currency));
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * @param ticker The short name of the {@link Currency} to delete
+     * @return Returns a {@link Mono} of the number of deleted rows
+     */
+    public Mono<Integer> deleteTicker(String ticker) {
+        return blocking(() -> {
+            int deleted = currencyRepository.deleteTicker(ticker);
+            if (deleted > 0) {
+                // Taken after the delete, so writes of the deleted row that report late carry a lower version
+                written(CurrencyChangedEvent.deleted(ticker, currencyVersions.next()));
+            }
+            return deleted;
+        });
+    }
+
+    private void written(CurrencyChangedEvent event) {
+        currencyVersions.written();
+        currencyCache.evict(event.getTicker());
+        if (event.isRename()) {
+            currencyCache.evict(event.getCurrency().getTicker());
+        }
+        eventPublisher.publishEvent(event);
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+}
@@ -1,28 +1,55 @@
 package nl.wesleyblom.crypto.api;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import nl.wesleyblom.crypto.api.batch.BatchItemResult;
+import nl.wesleyblom.crypto.api.batch.CurrencyBatchService;
+import nl.wesleyblom.crypto.api.batch.MalformedBatchException;
+import nl.wesleyblom.crypto.api.cache.CompressedPageCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCborCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.export.CurrencyExporter;
 import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.paging.SeekCursor;
+import nl.wesleyblom.crypto.api.stats.CurrencyAggregates;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
 import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -43,6 +70,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @RunWith(SpringRunner.class)
 @WebMvcTest(CurrencyRestController.class)
 @EnableSpringDataWebSupport
+@Import({CurrencyCache.class, CurrencyJsonCache.class, CurrencyCborCache.class, CompressedPageCache.class,
+    CurrencyVersions.class})
 public class CurrencyRestControllerTest {
 
     private static final String TICKER_XRP = "XRP";
@@ -63,11 +92,35 @@ public class CurrencyRestControllerTest {
     @MockBean
     private CurrencyRepository currencyRepository;
 
+    @Autowired
+    private CurrencyCache currencyCache;
+
+    @Autowired
+    private CurrencyVersions currencyVersions;
+
+    @Autowired
+    private CurrencyJsonCache currencyJsonCache;
+
+    @Autowired
+    private CompressedPageCache compressedPageCache;
+
+    @MockBean
+    private CurrencyBatchService currencyBatchService;
+
+    @MockBean
+    private CurrencyExporter currencyExporter;
+
+    @MockBean
+    private CurrencyAggregates currencyAggregates;
+
     private JacksonTester<Currency> jsonCurrency;
 
     @Before
     public void setup() {
         JacksonTester.initFields(this, new ObjectMapper());
+        currencyCache.clear();
+        currencyJsonCache.clear();
+        compressedPageCache.clear();
     }
 
     @Test
@@ -83,6 +136,34 @@ public class CurrencyRestControllerTest {
         assertEquals(response.getContentAsString(), jsonCurrency.write(currency).getJson());
     }
 
+    @Test
+    public void repeatedRetrieveByTickerIsServedFromCache() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON));
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        verify(currencyRepository, times(1)).findByTicker(TICKER_XRP);
+    }
+
+    @Test
+    public void updateInvalidatesCachedTicker() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+        given(currencyRepository.updateByTicker(any(Currency.class))).willReturn(1);
+
+        mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON));
+        mvc.perform(put(API_URL_XRP).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
+            .accept(MediaType.APPLICATION_JSON));
+        mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON));
+
+        verify(currencyRepository, times(2)).findByTicker(TICKER_XRP);
+    }
+
     @Test
     public void willErrorWhenCurrencyNotExists() throws Exception {
         MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON))
@@ -96,7 +177,7 @@ public class CurrencyRestControllerTest {
     public void updateExistingCurrencyWithValidInfoReturns200() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(true);
+        given(currencyRepository.updateByTicker(any(Currency.class))).willReturn(1);
 
         MockHttpServletResponse response =
             mvc.perform(put(API_URL_XRP).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
@@ -148,7 +229,7 @@ public class CurrencyRestControllerTest {
     public void updateNonExistingCurrencyReturns404() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(false);
+        given(currencyRepository.updateByTicker(any(Currency.class))).willReturn(0);
 
         MockHttpServletResponse response =
             mvc.perform(put(API_URL_XRP).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
@@ -163,8 +244,7 @@ public class CurrencyRestControllerTest {
     public void updateExistingCurrencyWithExistingNewTickerReturns409() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
-        given(currencyRepository.existsByTicker("OLD")).willReturn(true);
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(true);
+        given(currencyRepository.renameTicker(eq("OLD"), any(Currency.class))).willThrow(new DataIntegrityViolationException("duplicate"));
 
         MockHttpServletResponse response =
             mvc.perform(put("/api/currencies/OLD").contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
@@ -179,8 +259,7 @@ public class CurrencyRestControllerTest {
     public void renameExistingCurrencyWithNewTickerReturns200() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
-        given(currencyRepository.existsByTicker("OLD")).willReturn(true);
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(false);
+        given(currencyRepository.renameTicker(eq("OLD"), any(Currency.class))).willReturn(1);
 
         MockHttpServletResponse response =
             mvc.perform(put("/api/currencies/OLD").contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
@@ -193,7 +272,7 @@ public class CurrencyRestControllerTest {
 
     @Test
     public void deleteExistingCurrencyReturns200() throws Exception {
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(true);
+        given(currencyRepository.deleteTicker(TICKER_XRP)).willReturn(1);
 
         MockHttpServletResponse response = mvc.perform(delete(API_URL_XRP).accept(MediaType.APPLICATION_JSON))
             .andReturn()
@@ -204,7 +283,7 @@ public class CurrencyRestControllerTest {
 
     @Test
     public void deleteNonExistingCurrencyReturns404() throws Exception {
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(false);
+        given(currencyRepository.deleteTicker(TICKER_XRP)).willReturn(0);
 
         MockHttpServletResponse response = mvc.perform(delete(API_URL_XRP).accept(MediaType.APPLICATION_JSON))
             .andReturn()
@@ -217,6 +296,8 @@ public class CurrencyRestControllerTest {
     public void createValidCurrencyReturns201() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(1);
+
         MockHttpServletResponse response =
             mvc.perform(post(API_URL).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
                 .accept(MediaType.APPLICATION_JSON))
@@ -231,7 +312,7 @@ public class CurrencyRestControllerTest {
     public void createDuplicateCurrencyReturns409() throws Exception {
         Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
 
-        given(currencyRepository.existsByTicker(TICKER_XRP)).willReturn(true);
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(0);
 
         MockHttpServletResponse response =
             mvc.perform(post(API_URL).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
@@ -243,6 +324,36 @@ public class CurrencyRestControllerTest {
         assertEquals(response.getContentAsString(), jsonCurrency.write(currency).getJson());
     }
 
+    @Test
+    public void createConcurrentlyTakenCurrencyReturns409() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willThrow(new DataIntegrityViolationException("duplicate"));
+
+        MockHttpServletResponse response =
+            mvc.perform(post(API_URL).contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        assertEquals(HttpStatus.CONFLICT.value(), response.getStatus());
+    }
+
+    @Test
+    public void renameNonExistingCurrencyReturns404() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+
+        given(currencyRepository.renameTicker(eq("OLD"), any(Currency.class))).willReturn(0);
+
+        MockHttpServletResponse response =
+            mvc.perform(put("/api/currencies/OLD").contentType(MediaType.APPLICATION_JSON).content(jsonCurrency.write(currency).getJson())
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+    }
+
     @Test
     public void createCurrencyWithLongTickerReturns400() throws Exception {
         MockHttpServletResponse response =
@@ -325,4 +436,475 @@ public class CurrencyRestControllerTest {
 
         assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void seekFirstPageReturnsNextCursor() throws Exception {
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withMarketCap(3).build());
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("ETH").withName("Ethereum").withMarketCap(2).build());
+
+        given(currencyRepository.findPageAfterMarketCap(Long.MAX_VALUE, "", PageRequest.of(0, 2))).willReturn(currencyList);
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?seek=marketCap&size=1").accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        SeekCursor next = SeekCursor.decode(response.getHeader(CurrencyRestController.NEXT_CURSOR_HEADER));
+        assertEquals(SeekCursor.Order.MARKET_CAP, next.getOrder());
+        assertEquals("BTC", next.getTicker());
+        assertEquals(3, next.getMarketCap());
+    }
+
+    @Test
+    public void seekLastPageHasNoNextCursor() throws Exception {
+        Currency currencyXRP = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(currencyXRP);
+
+        given(currencyRepository.findPageAfterTicker("ETH", PageRequest.of(0, 11))).willReturn(currencyList);
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?after=ETH").accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNull(response.getHeader(CurrencyRestController.NEXT_CURSOR_HEADER));
+        verify(currencyRepository, times(0)).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    public void seekWithCursorContinuesAfterCursor() throws Exception {
+        String cursor = SeekCursor.afterTicker("BTC").encode();
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?cursor=" + cursor).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(currencyRepository, times(1)).findPageAfterTicker(eq("BTC"), any(PageRequest.class));
+    }
+
+    @Test
+    public void seekWithInvalidCursorReturns400() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?cursor=invalid").accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    public void seekWithUnknownOrderReturns400() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?seek=name").accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    public void marketCapRangeIsServedFromIndex() throws Exception {
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("ETH").withName("Ethereum").withMarketCap(2).build());
+
+        given(currencyAggregates.rangeByMarketCap(1, 5, 10, 5)).willReturn(currencyList);
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?minCap=1&maxCap=5&page=2&size=5")
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[{\"ticker\":\"ETH\",\"name\":\"Ethereum\",\"numberOfCoins\":0,\"marketCap\":2}]",
+            response.getContentAsString());
+        verify(currencyRepository, times(0)).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    public void openMarketCapRangeUsesBounds() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "?minCap=7").accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(currencyAggregates, times(1)).rangeByMarketCap(7, Long.MAX_VALUE, 0, 10);
+    }
+
+    @Test
+    public void invalidMarketCapRangeReturns400() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL + "?minCap=5&maxCap=1"))
+            .andReturn().getResponse().getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL + "?maxCap=5&seek=marketCap"))
+            .andReturn().getResponse().getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL + "?minCap=lots"))
+            .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    public void retrieveByTickerWithCborAcceptReturnsCbor() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).withMarketCap(7).build();
+        currency.setVersion(3);
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP)
+            .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(CurrencyRestController.APPLICATION_CBOR_VALUE, response.getContentType());
+        assertEquals(cborTag(currencyVersions.tag(3)), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        Currency decoded = cborMapper().readValue(response.getContentAsByteArray(), Currency.class);
+        assertEquals(TICKER_XRP, decoded.getTicker());
+        assertEquals(7, decoded.getMarketCap());
+    }
+
+    @Test
+    public void retrieveByTickerPrefersJsonByDefault() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP)
+            .header(HttpHeaders.ACCEPT, "application/json, application/cbor;q=0.5"))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_UTF8_VALUE, response.getContentType());
+    }
+
+    @Test
+    public void getAllWithCborAcceptReturnsCborArray() throws Exception {
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withMarketCap(3).build());
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("ETH").withName("Ethereum").withMarketCap(2).build());
+        given(currencyRepository.findAll(any(PageRequest.class))).willReturn(new PageImpl<>(currencyList));
+
+        MockHttpServletResponse json = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+        MockHttpServletResponse cbor = mvc.perform(get(API_URL).header(HttpHeaders.ACCEPT, CurrencyRestController.APPLICATION_CBOR_VALUE))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(MediaType.APPLICATION_JSON_UTF8_VALUE, json.getContentType());
+        assertEquals(CurrencyRestController.APPLICATION_CBOR_VALUE, cbor.getContentType());
+        assertNotEquals(json.getHeader(HttpHeaders.ETAG), cbor.getHeader(HttpHeaders.ETAG));
+        Currency[] decoded = cborMapper().readValue(cbor.getContentAsByteArray(), Currency[].class);
+        assertEquals(2, decoded.length);
+        assertEquals("ETH", decoded[1].getTicker());
+        assertTrue(cbor.getContentAsByteArray().length < json.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void getAllWithGzipAcceptEncodingIsCompressedOnce() throws Exception {
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withMarketCap(3).build());
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("ETH").withName("Ethereum").withMarketCap(2).build());
+        given(currencyRepository.findAll(any(PageRequest.class))).willReturn(new PageImpl<>(currencyList));
+
+        MockHttpServletResponse plain = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+        MockHttpServletResponse first = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+            .andReturn()
+            .getResponse();
+        MockHttpServletResponse second = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse();
+
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(plain.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals("gzip", first.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(first.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertNotEquals(plain.getHeader(HttpHeaders.ETAG), first.getHeader(HttpHeaders.ETAG));
+        assertEquals(plain.getContentAsString(), gunzip(first.getContentAsByteArray()));
+        assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+        assertEquals(1, compressedPageCache.getMissCount());
+        assertEquals(1, compressedPageCache.getHitCount());
+        verify(currencyRepository, times(1)).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    public void getAllWithGzipEtagIsNotModified() throws Exception {
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").build());
+        given(currencyRepository.findAll(any(PageRequest.class))).willReturn(new PageImpl<>(currencyList));
+
+        String etag = mvc.perform(get(API_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse gzip = mvc.perform(get(API_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andReturn()
+            .getResponse();
+        MockHttpServletResponse identity = mvc.perform(get(API_URL).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), gzip.getStatus());
+        assertEquals(HttpStatus.OK.value(), identity.getStatus());
+        assertNull(identity.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private static String cborTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "+cbor\"";
+    }
+
+    private static String gunzip(byte[] body) throws Exception {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+
+    @Test
+    public void createAcceptsAndReturnsCbor() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).withNumberOfCoins(5).build();
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(1);
+
+        MockHttpServletResponse response = mvc.perform(post(API_URL)
+            .contentType(CurrencyRestController.APPLICATION_CBOR_VALUE)
+            .header(HttpHeaders.ACCEPT, CurrencyRestController.APPLICATION_CBOR_VALUE)
+            .content(cborMapper().writeValueAsBytes(currency)))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+        assertTrue(response.getContentType().startsWith(CurrencyRestController.APPLICATION_CBOR_VALUE));
+        assertEquals(5, cborMapper().readValue(response.getContentAsByteArray(), Currency.class).getNumberOfCoins());
+        ArgumentCaptor<Currency> inserted = ArgumentCaptor.forClass(Currency.class);
+        verify(currencyRepository).insertIfAbsent(inserted.capture());
+        assertEquals(cborTag(currencyVersions.tag(inserted.getValue().getVersion())), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void createWithJsonAcceptReturnsJsonTag() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        given(currencyRepository.insertIfAbsent(any(Currency.class))).willReturn(1);
+
+        MockHttpServletResponse response = mvc.perform(post(API_URL)
+            .contentType(CurrencyRestController.APPLICATION_CBOR_VALUE)
+            .accept(MediaType.APPLICATION_JSON)
+            .content(cborMapper().writeValueAsBytes(currency)))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+        ArgumentCaptor<Currency> inserted = ArgumentCaptor.forClass(Currency.class);
+        verify(currencyRepository).insertIfAbsent(inserted.capture());
+        assertEquals(currencyVersions.tag(inserted.getValue().getVersion()), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void updateWithCborAcceptReturnsCborTag() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        given(currencyRepository.updateByTicker(any(Currency.class))).willReturn(1);
+
+        MockHttpServletResponse response = mvc.perform(put(API_URL_XRP)
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, CurrencyRestController.APPLICATION_CBOR_VALUE)
+            .content(jsonCurrency.write(currency).getJson()))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertTrue(response.getContentType().startsWith(CurrencyRestController.APPLICATION_CBOR_VALUE));
+        ArgumentCaptor<Currency> updated = ArgumentCaptor.forClass(Currency.class);
+        verify(currencyRepository).updateByTicker(updated.capture());
+        assertEquals(cborTag(currencyVersions.tag(updated.getValue().getVersion())), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+    }
+
+    private static ObjectMapper cborMapper() {
+        return new ObjectMapper(new CBORFactory());
+    }
+
+    @Test
+    public void createBatchReturnsResultPerEntry() throws Exception {
+        BatchItemResult result = new BatchItemResult(0, TICKER_XRP, BatchItemResult.Status.CREATED, Collections.emptyList());
+        given(currencyBatchService.createAll(any(InputStream.class))).willReturn(Collections.singletonList(result));
+
+        MockHttpServletResponse response =
+            mvc.perform(post(API_URL + "/batch").contentType(CurrencyRestController.APPLICATION_NDJSON_VALUE)
+                .content("{\"ticker\":\"XRP\",\"name\":\"Ripple\",\"numberOfCoins\":0,\"marketCap\":0}\n")
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[{\"index\":0,\"ticker\":\"XRP\",\"status\":\"CREATED\"}]", response.getContentAsString());
+    }
+
+    @Test
+    public void createBatchWithMalformedBodyReturns400WithResultsSoFar() throws Exception {
+        List<BatchItemResult> results = new ArrayList<>();
+        results.add(new BatchItemResult(0, TICKER_XRP, BatchItemResult.Status.CREATED, Collections.emptyList()));
+        results.add(new BatchItemResult(1, null, BatchItemResult.Status.INVALID, Collections.singletonList("malformed")));
+        given(currencyBatchService.createAll(any(InputStream.class)))
+            .willThrow(new MalformedBatchException(new JsonParseException(null, "malformed"), results));
+
+        MockHttpServletResponse response =
+            mvc.perform(post(API_URL + "/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"ticker\":\"XRP\"},{")
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        assertEquals("[{\"index\":0,\"ticker\":\"XRP\",\"status\":\"CREATED\"},"
+            + "{\"index\":1,\"status\":\"INVALID\",\"errors\":[\"malformed\"]}]", response.getContentAsString());
+    }
+
+    @Test
+    public void exportStreamsNdjson() throws Exception {
+        given(currencyExporter.writeTo(any(OutputStream.class))).willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"ticker\":\"XRP\"}\n".getBytes());
+            return 1L;
+        });
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL + "/export"))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(CurrencyRestController.APPLICATION_NDJSON_VALUE, response.getContentType());
+        assertEquals("{\"ticker\":\"XRP\"}\n", response.getContentAsString());
+    }
+
+    @Test
+    public void retrieveByTickerReturnsVersionAsETag() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        currency.setVersion(5);
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(currencyVersions.tag(5), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void retrieveByTickerWithMatchingETagReturns304WithoutLoading() throws Exception {
+        given(currencyRepository.findVersionByTicker(TICKER_XRP)).willReturn(Optional.of(5L));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).header(HttpHeaders.IF_NONE_MATCH, currencyVersions.tag(5))
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals("", response.getContentAsString());
+        verify(currencyRepository, times(0)).findByTicker(TICKER_XRP);
+    }
+
+    @Test
+    public void retrieveCachedUnknownTickerWithETagReturns404WithoutVersionQuery() throws Exception {
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.empty());
+        currencyCache.findByTicker(TICKER_XRP);
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).header(HttpHeaders.IF_NONE_MATCH, currencyVersions.tag(5))
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(currencyRepository, times(0)).findVersionByTicker(TICKER_XRP);
+        verify(currencyRepository, times(1)).findByTicker(TICKER_XRP);
+    }
+
+    @Test
+    public void retrieveByTickerWithStaleETagReturns200() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        currency.setVersion(6);
+        given(currencyRepository.findVersionByTicker(TICKER_XRP)).willReturn(Optional.of(6L));
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).header(HttpHeaders.IF_NONE_MATCH, currencyVersions.tag(5))
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(currencyVersions.tag(6), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void retrieveByTickerWithETagOfEarlierProcessReturns200() throws Exception {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        currency.setVersion(5);
+        given(currencyRepository.findVersionByTicker(TICKER_XRP)).willReturn(Optional.of(5L));
+        given(currencyRepository.findByTicker(TICKER_XRP)).willReturn(Optional.of(currency));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP).header(HttpHeaders.IF_NONE_MATCH, "\"5\"")
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(currencyVersions.tag(5), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void getAllWithCurrentETagReturns304WithoutQuery() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get(API_URL).header(HttpHeaders.IF_NONE_MATCH, currencyVersions.collectionTag())
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        verify(currencyRepository, times(0)).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    public void getAllETagChangesAfterWrite() throws Exception {
+        String before = currencyVersions.collectionTag();
+        given(currencyRepository.deleteTicker(TICKER_XRP)).willReturn(1);
+        given(currencyRepository.findAll(any(PageRequest.class))).willReturn(new PageImpl<>(new ArrayList<>()));
+
+        mvc.perform(delete(API_URL_XRP).accept(MediaType.APPLICATION_JSON));
+        MockHttpServletResponse response = mvc.perform(get(API_URL).header(HttpHeaders.IF_NONE_MATCH, before)
+            .accept(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        assertEquals(currencyVersions.collectionTag(), response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void getAllIsServedFromCacheUntilWrite() throws Exception {
+        Currency currencyXRP = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_RIPPLE).build();
+        List<Currency> currencyList = new ArrayList<>();
+        currencyList.add(currencyXRP);
+        given(currencyRepository.findAll(PageRequest.of(0, 10, new Sort(Direction.ASC, TICKER)))).willReturn(new PageImpl<>(currencyList));
+
+        MockHttpServletResponse first = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        MockHttpServletResponse second = mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), second.getStatus());
+        assertEquals("[" + jsonCurrency.write(currencyXRP).getJson() + "]", second.getContentAsString());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        verify(currencyRepository, times(1)).findAll(any(PageRequest.class));
+
+        given(currencyRepository.deleteTicker(TICKER_XRP)).willReturn(1);
+        mvc.perform(delete(API_URL_XRP).accept(MediaType.APPLICATION_JSON));
+        mvc.perform(get(API_URL).accept(MediaType.APPLICATION_JSON));
+
+        verify(currencyRepository, times(2)).findAll(any(PageRequest.class));
+    }
+}
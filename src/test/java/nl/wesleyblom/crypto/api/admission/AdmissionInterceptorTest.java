@@ -0,0 +1,110 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import javax.servlet.DispatcherType;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Unit tests for {@link AdmissionInterceptor}
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class AdmissionInterceptorTest {
+
+    private ConcurrencyLimiter reads;
+    private ConcurrencyLimiter writes;
+    private AdmissionInterceptor interceptor;
+
+    @Before
+    public void setup() {
+        reads = new ConcurrencyLimiter(new GradientLimit(1, 1, 10));
+        writes = new ConcurrencyLimiter(new GradientLimit(1, 1, 10));
+        interceptor = new AdmissionInterceptor(reads, writes, 2);
+    }
+
+    @Test
+    public void requestOverLimitIsRejectedWithRetryAfter() {
+        assertTrue(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("GET"), response, null));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, reads.getRejectedCount());
+    }
+
+    @Test
+    public void readsAndWritesHaveSeparateLimits() {
+        assertTrue(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), null));
+
+        assertTrue(interceptor.preHandle(request("PUT"), new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(request("DELETE"), new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(request("HEAD"), new MockHttpServletResponse(), null));
+
+        assertEquals(1, reads.getInFlight());
+        assertEquals(1, writes.getInFlight());
+    }
+
+    @Test
+    public void completionReleasesPlace() {
+        MockHttpServletRequest request = request("POST");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        interceptor.afterCompletion(request, response, null, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertEquals(0, writes.getInFlight());
+        assertTrue(interceptor.preHandle(request("POST"), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    public void asyncRequestReleasesPlaceOnceStarted() {
+        MockHttpServletRequest request = request("GET");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        assertEquals(0, reads.getInFlight());
+
+        MockHttpServletRequest dispatch = request("GET");
+        dispatch.setDispatcherType(DispatcherType.ASYNC);
+        assertTrue(interceptor.preHandle(dispatch, response, null));
+        assertEquals(0, reads.getInFlight());
+    }
+
+    @Test
+    public void onlyConnectionFailuresAreOverload() {
+        SQLTransientConnectionException timeout = new SQLTransientConnectionException("Connection is not available");
+
+        assertTrue(AdmissionInterceptor.isOverload(timeout));
+        assertTrue(AdmissionInterceptor.isOverload(new CannotCreateTransactionException("No connection", timeout)));
+        assertTrue(AdmissionInterceptor.isOverload(new CannotGetJdbcConnectionException("No connection", timeout)));
+        assertTrue(AdmissionInterceptor.isOverload(new IllegalStateException(new RuntimeException(timeout))));
+        assertFalse(AdmissionInterceptor.isOverload(null));
+        assertFalse(AdmissionInterceptor.isOverload(new IllegalStateException("Bug")));
+        assertFalse(AdmissionInterceptor.isOverload(new SQLException("Syntax error")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void retryAfterCanNotBeNegative() {
+        new AdmissionInterceptor(reads, writes, -1);
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/api/currencies");
+    }
+}
@@ -0,0 +1,56 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConcurrencyLimiter}
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void requestsOverLimitAreRejected() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientLimit(2, 1, 10));
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        ConcurrencyLimiter.Permit second = limiter.tryAcquire();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(2, limiter.getAcceptedCount());
+        assertEquals(1, limiter.getRejectedCount());
+
+        first.release(false);
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void permitIsReleasedOnce() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientLimit(2, 1, 10));
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        permit.release(false);
+        permit.release(false);
+        permit.ignore();
+
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void ignoredPermitIsReleased() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientLimit(1, 1, 10));
+
+        limiter.tryAcquire().ignore();
+
+        assertEquals(0, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+}
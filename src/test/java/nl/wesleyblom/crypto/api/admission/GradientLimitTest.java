@@ -0,0 +1,104 @@
+package nl.wesleyblom.crypto.api.admission;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GradientLimit}
+ *
+ * @author Wesley
+ * @date 2019-04-06
+ */
+
+public class GradientLimitTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+
+    @Test
+    public void limitGrowsWhileLatencyStaysLow() {
+        GradientLimit limit = new GradientLimit(20, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+
+        assertTrue(limit.getLimit() > 25);
+    }
+
+    @Test
+    public void limitDoesNotGrowWhenMostlyUnused() {
+        GradientLimit limit = new GradientLimit(20, 1, 100);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, MILLIS, 2, false);
+        }
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyRises() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        window(limit, MILLIS, 50, false);
+        int before = limit.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, 10 * MILLIS, limit.getLimit(), false);
+        }
+
+        assertTrue(limit.getLimit() < before / 2);
+    }
+
+    @Test
+    public void failuresShrinkLimit() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        window(limit, MILLIS, 1, false);
+
+        window(limit, MILLIS, 1, true);
+
+        assertTrue(limit.getLimit() < 50);
+    }
+
+    @Test
+    public void limitStaysWithinBounds() {
+        GradientLimit limit = new GradientLimit(10, 5, 12);
+        for (int i = 0; i < 50; i++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+        assertEquals(12, limit.getLimit());
+
+        for (int i = 0; i < 200; i++) {
+            window(limit, 100 * MILLIS, limit.getLimit(), true);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void limitOnlyChangesAfterFullWindow() {
+        GradientLimit limit = new GradientLimit(20, 1, 100);
+
+        for (int i = 0; i < GradientLimit.WINDOW_SAMPLES - 1; i++) {
+            now += 20 * MILLIS;
+            limit.onSample(now, MILLIS, 20, true);
+        }
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialLimitNeedsToBeWithinBounds() {
+        new GradientLimit(1, 2, 10);
+    }
+
+    private void window(GradientLimit limit, long latencyNanos, int inFlight, boolean dropped) {
+        long step = GradientLimit.WINDOW_MILLIS * MILLIS / (GradientLimit.WINDOW_SAMPLES - 1) + 1;
+        for (int i = 0; i < GradientLimit.WINDOW_SAMPLES; i++) {
+            limit.onSample(now, latencyNanos, inFlight, dropped);
+            now += step;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package nl.wesleyblom.crypto.api.batch;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.Validation;
+import nl.wesleyblom.crypto.api.batch.BatchItemResult.Status;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit tests for {@link CurrencyBatchService}
+ *
+ * @author Wesley
+ * @date 2019-03-06
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CurrencyBatchServiceTest {
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager entityManager;
+
+    private CurrencyCache currencyCache;
+    private CurrencyVersions currencyVersions;
+    private CurrencyBatchService batchService;
+    private List<Object> events;
+
+    @Before
+    public void setup() {
+        currencyCache = new CurrencyCache(currencyRepository, 100, 60);
+        currencyVersions = new CurrencyVersions(currencyRepository);
+        currencyVersions.init();
+        events = new ArrayList<>();
+        batchService = new CurrencyBatchService(currencyRepository, currencyCache, currencyVersions, new ObjectMapper(),
+            Validation.buildDefaultValidatorFactory().getValidator(), entityManager, transactionManager, events::add, 2);
+    }
+
+    @Test
+    public void jsonArrayIsCreatedInChunks() throws Exception {
+        List<BatchItemResult> results = createAll("["
+            + "{\"ticker\":\"AAA\",\"name\":\"Alpha\",\"numberOfCoins\":1,\"marketCap\":2},"
+            + "{\"ticker\":\"BBB\",\"name\":\"Beta\",\"numberOfCoins\":3,\"marketCap\":4},"
+            + "{\"ticker\":\"CCC\",\"name\":\"Gamma\",\"numberOfCoins\":5,\"marketCap\":6}"
+            + "]");
+
+        assertEquals(3, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(Status.CREATED, results.get(i).getStatus());
+        }
+        assertEquals(5, currencyRepository.findByTicker("CCC").get().getNumberOfCoins());
+        long versionAAA = currencyRepository.findByTicker("AAA").get().getVersion();
+        long versionCCC = currencyRepository.findByTicker("CCC").get().getVersion();
+        assertTrue(versionAAA > 0);
+        assertTrue(versionCCC > versionAAA);
+        assertTrue(currencyVersions.current() > versionCCC);
+        cleanup("AAA", "BBB", "CCC");
+    }
+
+    @Test
+    public void ndjsonReportsConflictsAndInvalidEntries() throws Exception {
+        List<BatchItemResult> results = createAll(
+            "{\"ticker\":\"XRP\",\"name\":\"Ripple\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"DDD\",\"name\":\"Delta\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"LONGTICKER\",\"name\":\"Long\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"EEE\",\"name\":\"Epsilon\",\"numberOfCoins\":\"fdsa\",\"marketCap\":2}\n"
+                + "{\"ticker\":\"DDD\",\"name\":\"Delta again\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"FFF\",\"numberOfCoins\":1,\"marketCap\":2}\n");
+
+        assertEquals(6, results.size());
+        assertEquals(Status.CONFLICT, results.get(0).getStatus());
+        assertEquals(Status.CREATED, results.get(1).getStatus());
+        assertEquals(Status.INVALID, results.get(2).getStatus());
+        assertEquals("LONGTICKER", results.get(2).getTicker());
+        assertEquals(Status.INVALID, results.get(3).getStatus());
+        assertEquals(Status.CONFLICT, results.get(4).getStatus());
+        assertEquals(Status.INVALID, results.get(5).getStatus());
+        assertFalse(results.get(5).getErrors().isEmpty());
+
+        assertEquals("Delta", currencyRepository.findByTicker("DDD").get().getName());
+        assertEquals(5, currencyRepository.count());
+        assertEquals(1, events.size());
+        CurrencyChangedEvent event = (CurrencyChangedEvent) events.get(0);
+        assertEquals(CurrencyChangedEvent.Type.CREATED, event.getType());
+        assertEquals("DDD", event.getTicker());
+        cleanup("DDD");
+    }
+
+    @Test
+    public void createdTickerIsEvictedFromCache() throws Exception {
+        assertFalse(currencyCache.findByTicker("GGG").isPresent());
+
+        createAll("[{\"ticker\":\"GGG\",\"name\":\"Gimel\",\"numberOfCoins\":1,\"marketCap\":2}]");
+
+        assertTrue(currencyCache.findByTicker("GGG").isPresent());
+        cleanup("GGG");
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedBodyThrowsException() throws Exception {
+        createAll("[{\"ticker\":\"HHH\",");
+    }
+
+    @Test
+    public void malformedBodyReportsEntriesWrittenBeforeIt() throws Exception {
+        try {
+            createAll("{\"ticker\":\"III\",\"name\":\"Iota\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"JJJ\",\"name\":\"Jot\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":\"KKK\",\"name\":\"Kappa\",\"numberOfCoins\":1,\"marketCap\":2}\n"
+                + "{\"ticker\":");
+            fail("Malformed body needs to be reported");
+        } catch (MalformedBatchException e) {
+            List<BatchItemResult> results = e.getResults();
+            assertEquals(4, results.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Status.CREATED, results.get(i).getStatus());
+            }
+            assertEquals(Status.INVALID, results.get(3).getStatus());
+            assertEquals(3, results.get(3).getIndex());
+            assertFalse(results.get(3).getErrors().isEmpty());
+        }
+
+        assertTrue(currencyRepository.findByTicker("KKK").isPresent());
+        assertEquals(3, events.size());
+        cleanup("III", "JJJ", "KKK");
+    }
+
+    @Test
+    public void databaseFailureIsNotReportedAsConflict() throws Exception {
+        PlatformTransactionManager unavailable = mock(PlatformTransactionManager.class);
+        given(unavailable.getTransaction(any())).willThrow(new CannotCreateTransactionException("No connection"));
+        batchService = new CurrencyBatchService(currencyRepository, currencyCache, currencyVersions, new ObjectMapper(),
+            Validation.buildDefaultValidatorFactory().getValidator(), entityManager, unavailable, events::add, 2);
+
+        try {
+            createAll("[{\"ticker\":\"LLL\",\"name\":\"Lambda\",\"numberOfCoins\":1,\"marketCap\":2}]");
+            fail("Database failure needs to be thrown");
+        } catch (CannotCreateTransactionException e) {
+            assertTrue(events.isEmpty());
+        }
+    }
+
+    @Test
+    public void onlyIntegrityViolationsAreConflicts() {
+        assertTrue(CurrencyBatchService.isConflict(new DataIntegrityViolationException("Duplicate")));
+        assertTrue(CurrencyBatchService.isConflict(new PersistenceException(
+            new ConstraintViolationException("Duplicate", new SQLException(), "PRIMARY_KEY"))));
+        assertFalse(CurrencyBatchService.isConflict(new CannotCreateTransactionException("No connection")));
+        assertFalse(CurrencyBatchService.isConflict(new PersistenceException(new SQLException("Syntax error"))));
+    }
+
+    private List<BatchItemResult> createAll(String body) throws IOException {
+        return batchService.createAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void cleanup(String... tickers) {
+        for (String ticker : tickers) {
+            currencyRepository.deleteById(ticker);
+        }
+    }
+}
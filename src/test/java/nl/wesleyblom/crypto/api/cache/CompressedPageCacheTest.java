@@ -0,0 +1,152 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompressedPageCache}
+ *
+ * @author Wesley
+ * @date 2019-04-03
+ */
+
+public class CompressedPageCacheTest {
+
+    private static final byte[] PAGE = page();
+
+    @Test
+    public void pageIsCompressedOncePerVersion() throws IOException {
+        CompressedPageCache cache = new CompressedPageCache(10);
+
+        byte[] first = cache.gzip("0:20:ticker", 1, PAGE);
+        assertSame(first, cache.gzip("0:20:ticker", 1, PAGE));
+        byte[] second = cache.gzip("0:20:ticker", 2, PAGE);
+        assertNotSame(first, second);
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertArrayEquals(PAGE, gunzip(second));
+    }
+
+    @Test
+    public void compressionRatioIsTracked() {
+        CompressedPageCache cache = new CompressedPageCache(10);
+        assertEquals(1, cache.getCompressionRatio(), 0);
+
+        byte[] gzip = cache.gzip("0:20:ticker", 1, PAGE);
+
+        assertEquals(PAGE.length, cache.getUncompressedBytes());
+        assertEquals(gzip.length, cache.getCompressedBytes());
+        assertEquals((double) gzip.length / PAGE.length, cache.getCompressionRatio(), 0);
+        assertTrue(cache.getCompressionRatio() < 0.5);
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        CompressedPageCache cache = new CompressedPageCache(2);
+
+        cache.gzip("0", 1, PAGE);
+        cache.gzip("1", 1, PAGE);
+        cache.gzip("2", 1, PAGE);
+
+        assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void fullCacheEvictsLeastRecentlyUsedPage() {
+        CompressedPageCache cache = new CompressedPageCache(2);
+        byte[] first = cache.gzip("0", 1, PAGE);
+        cache.gzip("1", 1, PAGE);
+        assertSame(first, cache.gzip("0", 1, PAGE));
+
+        cache.gzip("2", 1, PAGE);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.gzip("0", 1, PAGE));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void concurrentMissesShareOneCompression() throws Exception {
+        CompressedPageCache cache = new CompressedPageCache(10);
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return cache.gzip("0:20:ticker", 1, PAGE);
+                }));
+            }
+            byte[] gzip = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertSame(gzip, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(PAGE.length, cache.getUncompressedBytes());
+        assertEquals(threads - 1, cache.getHitCount() + cache.getCoalescedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheSizeNeedsToBePositive() {
+        new CompressedPageCache(0);
+    }
+
+    @Test
+    public void acceptEncodingIsNegotiated() {
+        assertTrue(CompressedPageCache.acceptsGzip("gzip"));
+        assertTrue(CompressedPageCache.acceptsGzip("br, GZIP;q=0.5"));
+        assertTrue(CompressedPageCache.acceptsGzip("x-gzip"));
+        assertTrue(CompressedPageCache.acceptsGzip("*"));
+        assertFalse(CompressedPageCache.acceptsGzip(null));
+        assertFalse(CompressedPageCache.acceptsGzip("identity"));
+        assertFalse(CompressedPageCache.acceptsGzip("br"));
+        assertFalse(CompressedPageCache.acceptsGzip("gzip;q=0"));
+        assertFalse(CompressedPageCache.acceptsGzip("*, gzip;q=0"));
+        assertFalse(CompressedPageCache.acceptsGzip("*;q=0"));
+    }
+
+    private static byte[] page() {
+        StringBuilder page = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            page.append(i == 0 ? "" : ",")
+                .append("{\"ticker\":\"C").append(i)
+                .append("\",\"name\":\"Currency ").append(i)
+                .append("\",\"numberOfCoins\":").append(i * 1000)
+                .append(",\"marketCap\":").append(i * 100000).append('}');
+        }
+        return page.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencyCache}
+ *
+ * @author Wesley
+ * @date 2019-03-02
+ */
+
+public class CurrencyCacheTest {
+
+    private static final String TICKER_XRP = "XRP";
+    private static final String TICKER_BTC = "BTC";
+    private static final String TICKER_ETH = "ETH";
+
+    private CurrencyRepository currencyRepository;
+    private CurrencyCache currencyCache;
+
+    @Before
+    public void setup() {
+        currencyRepository = mock(CurrencyRepository.class);
+        currencyCache = new CurrencyCache(currencyRepository, 2, 60);
+
+        when(currencyRepository.findByTicker(TICKER_XRP)).thenReturn(Optional.of(currency(TICKER_XRP, "Ripple")));
+        when(currencyRepository.findByTicker(TICKER_BTC)).thenReturn(Optional.of(currency(TICKER_BTC, "Bitcoin")));
+        when(currencyRepository.findByTicker(TICKER_ETH)).thenReturn(Optional.of(currency(TICKER_ETH, "Ethereum")));
+    }
+
+    @Test
+    public void repeatedLookupHitsRepositoryOnce() {
+        assertTrue(currencyCache.findByTicker(TICKER_XRP).isPresent());
+        assertTrue(currencyCache.findByTicker(TICKER_XRP).isPresent());
+        assertTrue(currencyCache.findByTicker(TICKER_XRP).isPresent());
+
+        verify(currencyRepository, times(1)).findByTicker(TICKER_XRP);
+        assertEquals(2, currencyCache.getHitCount());
+        assertEquals(1, currencyCache.getMissCount());
+    }
+
+    @Test
+    public void unknownTickerIsCachedUntilEvicted() {
+        when(currencyRepository.findByTicker("ABC")).thenReturn(Optional.empty());
+
+        assertFalse(currencyCache.findByTicker("ABC").isPresent());
+        assertFalse(currencyCache.findByTicker("ABC").isPresent());
+        verify(currencyRepository, times(1)).findByTicker("ABC");
+
+        when(currencyRepository.findByTicker("ABC")).thenReturn(Optional.of(currency("ABC", "Alphabet")));
+        currencyCache.evict("ABC");
+
+        assertTrue(currencyCache.findByTicker("ABC").isPresent());
+        verify(currencyRepository, times(2)).findByTicker("ABC");
+    }
+
+    @Test
+    public void getIfPresentDoesNotLoadOrCount() {
+        when(currencyRepository.findByTicker("ABC")).thenReturn(Optional.empty());
+
+        assertNull(currencyCache.getIfPresent(TICKER_XRP));
+        currencyCache.findByTicker(TICKER_XRP);
+        currencyCache.findByTicker("ABC");
+
+        assertEquals(TICKER_XRP, currencyCache.getIfPresent(TICKER_XRP).get().getTicker());
+        assertFalse(currencyCache.getIfPresent("ABC").isPresent());
+        assertEquals(0, currencyCache.getHitCount());
+        assertEquals(2, currencyCache.getMissCount());
+    }
+
+    @Test
+    public void evictOnlyRemovesGivenTicker() {
+        currencyCache.findByTicker(TICKER_XRP);
+        currencyCache.findByTicker(TICKER_BTC);
+
+        currencyCache.evict(TICKER_XRP);
+        currencyCache.findByTicker(TICKER_XRP);
+        currencyCache.findByTicker(TICKER_BTC);
+
+        verify(currencyRepository, times(2)).findByTicker(TICKER_XRP);
+        verify(currencyRepository, times(1)).findByTicker(TICKER_BTC);
+        assertEquals(0, currencyCache.getEvictionCount());
+    }
+
+    @Test
+    public void fullCacheEvictsAnEntry() {
+        currencyCache.findByTicker(TICKER_XRP);
+        currencyCache.findByTicker(TICKER_BTC);
+        currencyCache.findByTicker(TICKER_ETH);
+
+        assertEquals(2, currencyCache.size());
+        assertEquals(1, currencyCache.getEvictionCount());
+        assertTrue(currencyCache.findByTicker(TICKER_ETH).isPresent());
+        assertEquals(1, currencyCache.getHitCount());
+    }
+
+    @Test
+    public void expiredEntryIsReloaded() throws Exception {
+        CurrencyCache shortLivedCache = new CurrencyCache(currencyRepository, 2, 1);
+
+        shortLivedCache.findByTicker(TICKER_XRP);
+        Thread.sleep(1100);
+        shortLivedCache.findByTicker(TICKER_XRP);
+
+        verify(currencyRepository, times(2)).findByTicker(TICKER_XRP);
+        assertEquals(1, shortLivedCache.getEvictionCount());
+        assertEquals(2, shortLivedCache.getMissCount());
+    }
+
+    @Test
+    public void concurrentMissesShareOneQuery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRepository.findByTicker(TICKER_XRP)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(currency(TICKER_XRP, "Ripple"));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Optional<Currency>> first = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            verify(currencyRepository, timeout(5000)).findByTicker(TICKER_XRP);
+            Future<Optional<Currency>> second = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            Future<Optional<Currency>> third = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            waitForCoalesced(2);
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS).get(), second.get(5, TimeUnit.SECONDS).get());
+            assertSame(first.get().get(), third.get(5, TimeUnit.SECONDS).get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(currencyRepository, times(1)).findByTicker(TICKER_XRP);
+        assertEquals(3, currencyCache.getMissCount());
+        assertEquals(2, currencyCache.getCoalescedCount());
+    }
+
+    @Test
+    public void lookupAfterEvictDoesNotShareRunningQuery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRepository.findByTicker(TICKER_XRP))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return Optional.of(currency(TICKER_XRP, "Ripple"));
+            })
+            .thenReturn(Optional.of(currency(TICKER_XRP, "Ripple v2")));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Currency>> stale = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            verify(currencyRepository, timeout(5000)).findByTicker(TICKER_XRP);
+
+            currencyCache.evict(TICKER_XRP);
+            assertEquals("Ripple v2", currencyCache.findByTicker(TICKER_XRP).get().getName());
+
+            release.countDown();
+            assertEquals("Ripple", stale.get(5, TimeUnit.SECONDS).get().getName());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, currencyCache.getCoalescedCount());
+    }
+
+    @Test
+    public void evictOfOtherTickerKeepsRunningLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRepository.findByTicker(TICKER_XRP)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(currency(TICKER_XRP, "Ripple"));
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Currency>> load = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            verify(currencyRepository, timeout(5000)).findByTicker(TICKER_XRP);
+
+            currencyCache.evict(TICKER_BTC);
+            release.countDown();
+            assertTrue(load.get(5, TimeUnit.SECONDS).isPresent());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(currencyCache.findByTicker(TICKER_XRP).isPresent());
+        verify(currencyRepository, times(1)).findByTicker(TICKER_XRP);
+    }
+
+    @Test
+    public void evictDuringLoadDropsLoadedValue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRepository.findByTicker(TICKER_XRP))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return Optional.of(currency(TICKER_XRP, "Ripple"));
+            })
+            .thenReturn(Optional.of(currency(TICKER_XRP, "Ripple v2")));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Currency>> stale = executor.submit(() -> currencyCache.findByTicker(TICKER_XRP));
+            verify(currencyRepository, timeout(5000)).findByTicker(TICKER_XRP);
+
+            currencyCache.evict(TICKER_XRP);
+            release.countDown();
+            assertEquals("Ripple", stale.get(5, TimeUnit.SECONDS).get().getName());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Ripple v2", currencyCache.findByTicker(TICKER_XRP).get().getName());
+    }
+
+    @Test
+    public void failedQueryIsNotCached() {
+        when(currencyRepository.findByTicker(TICKER_XRP))
+            .thenThrow(new IllegalStateException("Database unavailable"))
+            .thenReturn(Optional.of(currency(TICKER_XRP, "Ripple")));
+
+        try {
+            currencyCache.findByTicker(TICKER_XRP);
+            fail("Expected the failure of the query");
+        } catch (IllegalStateException e) {
+            assertEquals("Database unavailable", e.getMessage());
+        }
+
+        assertTrue(currencyCache.findByTicker(TICKER_XRP).isPresent());
+        assertEquals(0, currencyCache.getCoalescedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSizeThrowsException() {
+        new CurrencyCache(currencyRepository, 0, 60);
+    }
+
+    private void waitForCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (currencyCache.getCoalescedCount() < count) {
+            assertTrue("Timed out waiting for coalesced lookups", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static Currency currency(String ticker, String name) {
+        return new Currency.CurrencyBuilder().withTicker(ticker).withName(name).build();
+    }
+}
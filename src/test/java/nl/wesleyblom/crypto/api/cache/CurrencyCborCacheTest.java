@@ -0,0 +1,78 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencyCborCache}
+ *
+ * @author Wesley
+ * @date 2019-04-02
+ */
+
+public class CurrencyCborCacheTest {
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    @Test
+    public void currencyIsEncodedOncePerVersion() throws IOException {
+        CurrencyCborCache cache = new CurrencyCborCache(10);
+        Currency currency = currency(0);
+        currency.setVersion(1);
+
+        byte[] first = cache.encode(currency);
+        assertSame(first, cache.encode(currency));
+
+        currency.setVersion(2);
+        assertNotSame(first, cache.encode(currency));
+        assertEquals("C0", cborMapper.readValue(first, Currency.class).getTicker());
+    }
+
+    @Test
+    public void listsOfEveryHeaderLengthDecode() throws IOException {
+        CurrencyCborCache cache = new CurrencyCborCache(100_000);
+        for (int size : new int[]{0, 1, 23, 24, 255, 256, 65_536}) {
+            List<Currency> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(currency(i));
+            }
+
+            Currency[] decoded = cborMapper.readValue(cache.encode(list), Currency[].class);
+
+            assertEquals(size, decoded.length);
+            if (size > 0) {
+                assertEquals(list.get(size - 1).getTicker(), decoded[size - 1].getTicker());
+                assertEquals(list.get(size - 1).getMarketCap(), decoded[size - 1].getMarketCap());
+            }
+        }
+    }
+
+    @Test
+    public void cborIsSmallerThanJson() throws IOException {
+        List<Currency> list = Collections.singletonList(currency(123_456));
+
+        assertTrue(new CurrencyCborCache(10).encode(list).length < new ObjectMapper().writeValueAsBytes(list).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeNeedsToBePositive() {
+        new CurrencyCborCache(0);
+    }
+
+    private static Currency currency(int index) {
+        return new Currency.CurrencyBuilder()
+            .withTicker("C" + Integer.toString(index, Character.MAX_RADIX))
+            .withName("Coin " + index)
+            .withNumberOfCoins(21_000_000L + index)
+            .withMarketCap(190_000_000_000L - index)
+            .build();
+    }
+}
@@ -0,0 +1,164 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencyJsonCache}
+ *
+ * @author Wesley
+ * @date 2019-03-13
+ */
+
+public class CurrencyJsonCacheTest {
+
+    private ObjectMapper objectMapper;
+    private CurrencyJsonCache jsonCache;
+    private Currency xrp;
+    private Currency btc;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        jsonCache = new CurrencyJsonCache(objectMapper, 100, 10);
+        xrp = new Currency.CurrencyBuilder().withTicker("XRP").withName("Ripple").withNumberOfCoins(1).withMarketCap(2).build();
+        btc = new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withNumberOfCoins(3).withMarketCap(4).build();
+    }
+
+    @Test
+    public void encodedCurrencyMatchesJackson() throws Exception {
+        assertArrayEquals(objectMapper.writeValueAsBytes(xrp), jsonCache.encode(xrp));
+    }
+
+    @Test
+    public void sameVersionIsEncodedOnce() {
+        assertSame(jsonCache.encode(xrp), jsonCache.encode(xrp));
+    }
+
+    @Test
+    public void newVersionIsEncodedAgain() {
+        byte[] before = jsonCache.encode(xrp);
+        Currency updated = new Currency.CurrencyBuilder().withTicker("XRP").withName("New Ripple").build();
+        updated.setVersion(1);
+
+        byte[] after = jsonCache.encode(updated);
+
+        assertNotSame(before, after);
+        assertTrue(new String(after, StandardCharsets.UTF_8).contains("New Ripple"));
+    }
+
+    @Test
+    public void encodedListMatchesJackson() throws Exception {
+        List<Currency> list = Arrays.asList(xrp, btc);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(list), jsonCache.encode(list));
+        assertArrayEquals(objectMapper.writeValueAsBytes(new ArrayList<>()), jsonCache.encode(new ArrayList<>()));
+    }
+
+    @Test
+    public void pageIsOnlyServedForSameVersion() {
+        byte[] json = jsonCache.encode(Arrays.asList(xrp, btc));
+        jsonCache.putPage("0:10:ticker: ASC", 3, json);
+
+        assertSame(json, jsonCache.getPage("0:10:ticker: ASC", 3));
+        assertNull(jsonCache.getPage("0:10:ticker: ASC", 4));
+        assertNull(jsonCache.getPage("1:10:ticker: ASC", 3));
+    }
+
+    @Test
+    public void fullCacheKeepsRecentlyUsedEncodings() {
+        CurrencyJsonCache cache = new CurrencyJsonCache(objectMapper, 2, 2);
+        Currency eth = new Currency.CurrencyBuilder().withTicker("ETH").withName("Ethereum").build();
+        byte[] json = cache.encode(xrp);
+        cache.encode(btc);
+        cache.encode(xrp);
+
+        cache.encode(eth);
+
+        assertEquals(2, cache.size());
+        assertSame(json, cache.encode(xrp));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void fullCacheKeepsRecentlyUsedPages() {
+        CurrencyJsonCache cache = new CurrencyJsonCache(objectMapper, 2, 2);
+        byte[] json = cache.encode(Arrays.asList(xrp, btc));
+        cache.putPage("0", 1, json);
+        cache.putPage("1", 1, json);
+        cache.getPage("0", 1);
+
+        cache.putPage("2", 1, json);
+
+        assertEquals(2, cache.pageCount());
+        assertSame(json, cache.getPage("0", 1));
+        assertNull(cache.getPage("1", 1));
+    }
+
+    @Test
+    public void loadedPageIsStoredUnlessEmpty() {
+        byte[] json = jsonCache.encode(Arrays.asList(xrp, btc));
+
+        assertSame(json, jsonCache.getPage("0:10:ticker: ASC", 3, () -> json));
+        assertSame(json, jsonCache.getPage("0:10:ticker: ASC", 3, () -> {
+            throw new AssertionError("Stored page loaded again");
+        }));
+
+        assertNull(jsonCache.getPage("5:10:ticker: ASC", 3, () -> null));
+        assertNull(jsonCache.getPage("5:10:ticker: ASC", 3));
+        assertEquals(1, jsonCache.pageCount());
+    }
+
+    @Test
+    public void concurrentPageMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        byte[] json = jsonCache.encode(Arrays.asList(xrp, btc));
+        Supplier<byte[]> loader = () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return json;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<byte[]> first = executor.submit(() -> jsonCache.getPage("page", 1, loader));
+            Future<byte[]> second = executor.submit(() -> jsonCache.getPage("page", 1, loader));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (jsonCache.getPageCoalescedCount() < 1) {
+                assertTrue("Timed out waiting for coalesced page", System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+            // A newer version never joins the load of an older one
+            assertSame(json, jsonCache.getPage("page", 2, () -> json));
+            release.countDown();
+
+            assertSame(json, first.get(5, TimeUnit.SECONDS));
+            assertSame(json, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, jsonCache.getPageCoalescedCount());
+    }
+}
@@ -0,0 +1,93 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SampledEviction}
+ *
+ * @author Wesley
+ * @date 2019-04-09
+ */
+
+public class SampledEvictionTest {
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        Map<String, Long> entries = new ConcurrentHashMap<>();
+        entries.put("XRP", 3L);
+        entries.put("BTC", 1L);
+        entries.put("ETH", 2L);
+
+        assertTrue(SampledEviction.evictOne(entries, "ETH", Long::longValue));
+
+        assertFalse(entries.containsKey("BTC"));
+        assertEquals(2, entries.size());
+    }
+
+    @Test
+    public void keptKeyIsNeverEvicted() {
+        Map<String, Long> entries = new ConcurrentHashMap<>();
+        entries.put("XRP", 2L);
+        entries.put("BTC", 1L);
+
+        assertTrue(SampledEviction.evictOne(entries, "BTC", Long::longValue));
+
+        assertTrue(entries.containsKey("BTC"));
+        assertFalse(entries.containsKey("XRP"));
+        assertFalse(SampledEviction.evictOne(entries, "BTC", Long::longValue));
+    }
+
+    @Test
+    public void accessTimesAreComparedLikeNanoTime() {
+        Map<String, Long> entries = new ConcurrentHashMap<>();
+        entries.put("XRP", Long.MAX_VALUE);
+        entries.put("BTC", Long.MIN_VALUE);
+
+        SampledEviction.evictOne(entries, "ETH", Long::longValue);
+
+        // Long.MIN_VALUE comes after Long.MAX_VALUE when nanoTime overflows
+        assertTrue(entries.containsKey("BTC"));
+    }
+
+    @Test
+    public void sampleStartsAtGivenPosition() {
+        Map<String, Long> entries = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("T" + i, 0L);
+        }
+        // The first entries in iteration order are the least recently used, a sample further on must not see them
+        List<String> order = new ArrayList<>(entries.keySet());
+        for (int i = 0; i < order.size(); i++) {
+            entries.put(order.get(i), i < SampledEviction.SAMPLE_SIZE ? (long) i : 1000L - i);
+        }
+
+        assertTrue(SampledEviction.evictOne(entries, null, Long::longValue, 50));
+
+        for (int i = 0; i < SampledEviction.SAMPLE_SIZE; i++) {
+            assertTrue(entries.containsKey(order.get(i)));
+        }
+        assertFalse(entries.containsKey(order.get(50 + SampledEviction.SAMPLE_SIZE - 1)));
+    }
+
+    @Test
+    public void sampleWrapsAroundToFirstEntries() {
+        Map<String, Long> entries = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("T" + i, 0L);
+        }
+        List<String> order = new ArrayList<>(entries.keySet());
+        for (int i = 0; i < order.size(); i++) {
+            entries.put(order.get(i), i == 2 ? 0L : 1000L);
+        }
+
+        assertTrue(SampledEviction.evictOne(entries, null, Long::longValue, 95));
+
+        assertFalse(entries.containsKey(order.get(2)));
+    }
+}
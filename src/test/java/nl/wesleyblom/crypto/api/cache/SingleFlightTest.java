@@ -0,0 +1,153 @@
+package nl.wesleyblom.crypto.api.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SingleFlight}
+ *
+ * @author Wesley
+ * @date 2019-04-08
+ */
+
+public class SingleFlightTest {
+
+    private static final int WAITERS = 8;
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(WAITERS + 1);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLoadsShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = loadConcurrently("XRP", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "Ripple";
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("Ripple", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, flights.getLoadCount());
+        assertEquals(WAITERS, flights.getSharedCount());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void failureIsPropagatedToAllCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+
+        List<Future<String>> results = loadConcurrently("XRP", () -> {
+            await(release);
+            throw failure;
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the failure of the load");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(0, flights.size());
+        assertEquals("Ripple", flights.load("XRP", () -> "Ripple"));
+    }
+
+    @Test
+    public void completedLoadIsNotReused() {
+        assertEquals("Ripple", flights.load("XRP", () -> "Ripple"));
+        assertEquals("XRP", flights.load("XRP", () -> "XRP"));
+        assertNull(flights.load("XRP", () -> null));
+
+        assertEquals(3, flights.getLoadCount());
+        assertEquals(0, flights.getSharedCount());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void differentKeysDoNotWait() {
+        String result = flights.load("XRP", () -> flights.load("BTC", () -> "Bitcoin"));
+
+        assertEquals("Bitcoin", result);
+        assertEquals(0, flights.getSharedCount());
+    }
+
+    @Test
+    public void forgottenLoadIsNotJoined() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> flights.load("XRP", () -> {
+            await(release);
+            return "Ripple";
+        }));
+        waitUntil(() -> flights.size() == 1);
+
+        flights.forget("XRP");
+        assertEquals("Ripple v2", flights.load("XRP", () -> "Ripple v2"));
+
+        release.countDown();
+        assertEquals("Ripple", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flights.getSharedCount());
+        assertEquals(0, flights.size());
+    }
+
+    /**
+     * Starts a load and {@link #WAITERS} concurrent loads of the same key, returns once all of them are waiting
+     */
+    private List<Future<String>> loadConcurrently(String key, Supplier<String> loader)
+        throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flights.load(key, loader)));
+        waitUntil(() -> flights.size() == 1);
+
+        for (int i = 0; i < WAITERS; i++) {
+            results.add(executor.submit(() -> flights.load(key, () -> {
+                throw new AssertionError("Concurrent load called its loader");
+            })));
+        }
+        waitUntil(() -> flights.getSharedCount() == WAITERS);
+        return results;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
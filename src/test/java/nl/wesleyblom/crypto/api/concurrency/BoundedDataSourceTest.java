@@ -0,0 +1,80 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BoundedDataSource}
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public class BoundedDataSourceTest {
+
+    private DataSource target;
+    private Connection connection;
+    private BoundedDataSource dataSource;
+
+    @Before
+    public void setup() throws SQLException {
+        target = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = new BoundedDataSource(target, 2, 10);
+    }
+
+    @Test
+    public void closingConnectionReleasesPermit() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(2, dataSource.getActiveConnections());
+
+        first.close();
+        first.close();
+        assertEquals(1, dataSource.getActiveConnections());
+        verify(connection, times(2)).close();
+
+        second.close();
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    @Test(expected = SQLTransientConnectionException.class)
+    public void exhaustedDataSourceTimesOut() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection();
+        dataSource.getConnection();
+    }
+
+    @Test
+    public void failedConnectionReleasesPermit() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("down"));
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                dataSource.getConnection();
+                fail();
+            } catch (SQLException e) {
+                assertEquals("down", e.getMessage());
+            }
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    @Test
+    public void callsArePassedToConnection() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        assertTrue(dataSource.getConnection().getAutoCommit());
+    }
+}
@@ -0,0 +1,61 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * Unit tests for {@link PinnedThreadMonitor}
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public class PinnedThreadMonitorTest {
+
+    @Test
+    public void sleepInsideSynchronizedBlockIsReported() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(beanFactory.getBeanProvider(MeterRegistry.class), Duration.ofMillis(10));
+
+        monitor.start();
+        try {
+            assertTrue(monitor.isRunning());
+
+            Object lock = new Object();
+            Thread thread = VirtualThreads.factory("pinned-").newThread(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (pinned(registry) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, pinned(registry), 0);
+        } finally {
+            monitor.stop();
+        }
+        assertFalse(monitor.isRunning());
+    }
+
+    private static double pinned(MeterRegistry registry) {
+        return registry.get("jvm.threads.virtual.pinned").tag("transaction", "false").counter().count();
+    }
+}
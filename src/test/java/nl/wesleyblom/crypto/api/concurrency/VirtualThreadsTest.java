@@ -0,0 +1,42 @@
+package nl.wesleyblom.crypto.api.concurrency;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link VirtualThreads}
+ *
+ * @author Wesley
+ * @date 2019-03-27
+ */
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void executorRunsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            Future<String> name = executor.submit(() -> Thread.currentThread().getName());
+            Future<Object> virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+
+            assertTrue(name.get().startsWith("test-"));
+            assertEquals(Boolean.TRUE, virtual.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void olderJavaThrowsException() {
+        assumeFalse(VirtualThreads.isAvailable());
+
+        VirtualThreads.newThreadPerTaskExecutor("test-");
+    }
+}
@@ -0,0 +1,99 @@
+package nl.wesleyblom.crypto.api.datasource;
+
+import static org.junit.Assert.*;
+
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unit tests for {@link ReadWriteRoutingDataSource}
+ *
+ * @author Wesley
+ * @date 2019-04-04
+ */
+
+public class ReadWriteRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private ReplicaLagWindow replicaLagWindow;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @Before
+    public void setup() {
+        primary = database("primary");
+        replica = database("replica");
+        replicaLagWindow = new ReplicaLagWindow(60_000);
+
+        DataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, replicaLagWindow);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @After
+    public void cleanup() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    public void readOnlyTransactionsUseTheReplica() {
+        assertEquals("replica", readOnly.execute(status -> name()));
+        assertEquals("primary", readWrite.execute(status -> name()));
+        assertEquals("primary", name());
+    }
+
+    @Test
+    public void readsAfterWriteUseThePrimaryWhileReplicaIsBehind() {
+        replicaLagWindow.written();
+
+        assertTrue(replicaLagWindow.isReplicaBehind());
+        assertEquals("primary", readOnly.execute(status -> name()));
+    }
+
+    @Test
+    public void readsUseTheReplicaWithoutLag() {
+        ReplicaLagWindow noLag = new ReplicaLagWindow(0);
+        DataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, noLag);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(true);
+        noLag.written();
+
+        assertFalse(noLag.isReplicaBehind());
+        assertEquals("replica", transaction.execute(status -> new JdbcTemplate(dataSource)
+            .queryForObject("select name from route", String.class)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lagCanNotBeNegative() {
+        new ReplicaLagWindow(-1);
+    }
+
+    private String name() {
+        return jdbcTemplate.queryForObject("select name from route", String.class);
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .setName(name + "-routing")
+            .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table route (name varchar(10))");
+        jdbcTemplate.update("insert into route values (?)", name);
+        return database;
+    }
+}
@@ -0,0 +1,81 @@
+package nl.wesleyblom.crypto.api.event;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AppliedVersions}
+ *
+ * @author Wesley
+ * @date 2019-04-10
+ */
+
+public class AppliedVersionsTest {
+
+    private AppliedVersions versions;
+    private List<String> applied;
+
+    @Before
+    public void setup() {
+        versions = new AppliedVersions();
+        applied = new ArrayList<>();
+        assertTrue(versions.load(currency("XRP", 1)));
+    }
+
+    @Test
+    public void newerUpdateIsApplied() {
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRP", 2)));
+
+        assertEquals(Arrays.asList("put XRP"), applied);
+    }
+
+    @Test
+    public void olderUpdateIsIgnored() {
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRP", 3)));
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRP", 2)));
+
+        assertEquals(Arrays.asList("put XRP"), applied);
+        assertFalse(versions.load(currency("XRP", 2)));
+    }
+
+    @Test
+    public void deleteKeepsTombstone() {
+        apply(CurrencyChangedEvent.deleted("XRP", 3));
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRP", 2)));
+        apply(CurrencyChangedEvent.created(currency("XRP", 4)));
+
+        assertEquals(Arrays.asList("remove XRP", "put XRP"), applied);
+    }
+
+    @Test
+    public void renameKeepsTombstoneOfOldTicker() {
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRPN", 3)));
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRP", 2)));
+
+        assertEquals(Arrays.asList("remove XRP", "put XRPN"), applied);
+    }
+
+    @Test
+    public void renameDoesNotRemoveNewerStateOfOldTicker() {
+        apply(CurrencyChangedEvent.created(currency("XRP", 4)));
+        apply(CurrencyChangedEvent.updated("XRP", currency("XRPN", 3)));
+
+        assertEquals(Arrays.asList("put XRP", "put XRPN"), applied);
+    }
+
+    private void apply(CurrencyChangedEvent event) {
+        versions.apply(event, currency -> applied.add("put " + currency.getTicker()), ticker -> applied.add("remove " + ticker));
+    }
+
+    private static Currency currency(String ticker, long version) {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(ticker).withName(ticker).build();
+        currency.setVersion(version);
+        return currency;
+    }
+}
@@ -0,0 +1,91 @@
+package nl.wesleyblom.crypto.api.export;
+
+import static org.junit.Assert.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.persistence.EntityManager;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Unit tests for {@link CurrencyExporter}
+ *
+ * @author Wesley
+ * @date 2019-03-08
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class CurrencyExporterTest {
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void allCurrenciesAreWrittenAsLines() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        CurrencyExporter exporter = new CurrencyExporter(currencyRepository, entityManager, objectMapper, transactionManager);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exporter.writeTo(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, count);
+        assertEquals(4, lines.length);
+        assertEquals("BCH", objectMapper.readValue(lines[0], Currency.class).getTicker());
+        assertEquals("XRP", objectMapper.readValue(lines[3], Currency.class).getTicker());
+        assertEquals("{\"ticker\":\"BTC\",\"name\":\"Bitcoin\",\"numberOfCoins\":16770000,\"marketCap\":189580000000}", lines[1]);
+    }
+
+    @Test
+    public void writtenCurrenciesAreDetached() throws Exception {
+        CurrencyExporter exporter = new CurrencyExporter(currencyRepository, entityManager, new ObjectMapper(), transactionManager);
+
+        exporter.writeTo(new ByteArrayOutputStream());
+
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    public void streamIsFlushedOnceAndNotClosed() throws Exception {
+        CurrencyExporter exporter = new CurrencyExporter(currencyRepository, entityManager, new ObjectMapper(), transactionManager);
+        CountingOutputStream out = new CountingOutputStream();
+
+        assertEquals(4, exporter.writeTo(out));
+
+        assertEquals(1, out.flushes);
+        assertFalse(out.closed);
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+
+        private int flushes;
+        private boolean closed;
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package nl.wesleyblom.crypto.api.history;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Unit tests for {@link CurrencyHistoryController}
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CurrencyHistoryController.class)
+public class CurrencyHistoryControllerTest {
+
+    private static final String API_URL_XRP_HISTORY = "/api/currencies/XRP/history";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CurrencyHistoryStore currencyHistoryStore;
+
+    @Test
+    public void historyIsReturnedAsBuckets() throws Exception {
+        given(currencyHistoryStore.query("XRP", 0, 3_600_000, 60_000)).willReturn(
+            Optional.of(Collections.singletonList(new HistoryBucket(60_000, 1, 3, 1, 2, 7, 3))));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP_HISTORY)
+            .param("from", "1970-01-01T00:00:00Z").param("to", "3600000").param("step", "1m"))
+            .andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[{\"time\":60000,\"open\":1,\"high\":3,\"low\":1,\"close\":2,\"numberOfCoins\":7,\"count\":3}]",
+            response.getContentAsString());
+    }
+
+    @Test
+    public void historyDefaultsToTheWidestRangeBeforeNow() throws Exception {
+        given(currencyHistoryStore.query(eq("XRP"), anyLong(), anyLong(), eq(3_600_000L)))
+            .willReturn(Optional.of(Collections.emptyList()));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP_HISTORY).param("step", "PT1H"))
+            .andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    public void unknownTickerReturns404() throws Exception {
+        given(currencyHistoryStore.query(eq("XRP"), anyLong(), anyLong(), anyLong())).willReturn(Optional.empty());
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP_HISTORY)).andReturn().getResponse();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        verify(currencyHistoryStore).query(eq("XRP"), anyLong(), anyLong(), eq(60_000L));
+    }
+
+    @Test
+    public void invalidParametersReturn400() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status("step", "0m"));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status("step", "fast"));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status("from", "yesterday"));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status("to", "-5"));
+    }
+
+    @Test
+    public void rangeWithTooManyBucketsReturns400() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get(API_URL_XRP_HISTORY)
+            .param("from", "0").param("to", "86400000").param("step", "1s"))
+            .andReturn().getResponse();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    public void stepsAreParsed() {
+        assertEquals(250, CurrencyHistoryController.parseStep("250ms"));
+        assertEquals(30_000, CurrencyHistoryController.parseStep("30s"));
+        assertEquals(300_000, CurrencyHistoryController.parseStep("5m"));
+        assertEquals(14_400_000, CurrencyHistoryController.parseStep("4h"));
+        assertEquals(86_400_000, CurrencyHistoryController.parseStep("1d"));
+        assertEquals(90_000, CurrencyHistoryController.parseStep("PT1M30S"));
+    }
+
+    private int status(String parameter, String value) throws Exception {
+        return mvc.perform(get(API_URL_XRP_HISTORY).param(parameter, value)).andReturn().getResponse().getStatus();
+    }
+}
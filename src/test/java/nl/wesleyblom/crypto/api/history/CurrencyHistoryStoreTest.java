@@ -0,0 +1,110 @@
+package nl.wesleyblom.crypto.api.history;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link CurrencyHistoryStore}
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+public class CurrencyHistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CurrencyHistoryStore store;
+
+    @Before
+    public void setup() throws IOException {
+        store = new CurrencyHistoryStore(folder.getRoot().getPath(), 16, 2);
+    }
+
+    @After
+    public void close() {
+        store.close();
+    }
+
+    @Test
+    public void writesAreRecordedUnderTheNewTicker() throws IOException {
+        store.onCurrencyChanged(new CurrencyChangedEvent(CurrencyChangedEvent.Type.CREATED, "XRP", xrp("XRP", 10), 1, 1_000));
+        store.onCurrencyChanged(new CurrencyChangedEvent(CurrencyChangedEvent.Type.UPDATED, "XRP", xrp("XRP", 20), 2, 2_000));
+        store.onCurrencyChanged(new CurrencyChangedEvent(CurrencyChangedEvent.Type.UPDATED, "XRP", xrp("XRPN", 30), 3, 3_000));
+        store.onCurrencyChanged(new CurrencyChangedEvent(CurrencyChangedEvent.Type.DELETED, "XRPN", null, 4, 4_000));
+
+        assertEquals(2, store.size("XRP"));
+        assertEquals(1, store.size("XRPN"));
+        List<HistoryBucket> buckets = store.query("XRP", 0, 10_000, 10_000).get();
+        assertEquals(1, buckets.size());
+        assertEquals(10, buckets.get(0).getOpen());
+        assertEquals(20, buckets.get(0).getClose());
+    }
+
+    @Test
+    public void unknownTickerHasNoHistoryAndNoFile() throws IOException {
+        Optional<List<HistoryBucket>> buckets = store.query("XRP", 0, 10_000, 1_000);
+
+        assertFalse(buckets.isPresent());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void historyIsReadBackAfterRestart() throws IOException {
+        store.append("xrp", 1_000, 5, 1);
+        store.close();
+
+        store = new CurrencyHistoryStore(folder.getRoot().getPath(), 16, 2);
+
+        assertEquals(1, store.size("xrp"));
+        assertFalse(store.query("XRP", 0, 10_000, 1_000).isPresent());
+    }
+
+    @Test
+    public void leastRecentlyUsedFilesAreClosed() throws IOException {
+        store.append("XRP", 1_000, 5, 1);
+        store.append("BTC", 1_000, 6, 1);
+        store.append("XRP", 2_000, 7, 1);
+        store.append("ETH", 1_000, 8, 1);
+
+        assertEquals(2, store.openFileCount());
+        // BTC was closed, reading it opens it again
+        assertEquals(1, store.size("BTC"));
+        assertEquals(2, store.size("XRP"));
+        store.append("BTC", 2_000, 9, 1);
+        assertEquals(9, store.query("BTC", 0, 10_000, 10_000).get().get(0).getClose());
+        assertEquals(2, store.openFileCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxOpenFilesNeedsToBePositive() throws IOException {
+        new CurrencyHistoryStore(folder.getRoot().getPath(), 16, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stepNeedsToBePositive() throws IOException {
+        store.query("XRP", 0, 10_000, 0);
+    }
+
+    @Test
+    public void fileNamesKeepCase() {
+        assertEquals("XRP.hist", CurrencyHistoryStore.fileName("XRP"));
+        assertEquals("_78_72_70.hist", CurrencyHistoryStore.fileName("xrp"));
+        assertEquals("_2e_2e_2f.hist", CurrencyHistoryStore.fileName("../"));
+    }
+
+    private static Currency xrp(String ticker, long marketCap) {
+        return new Currency.CurrencyBuilder().withTicker(ticker).withName("Ripple").withNumberOfCoins(1).withMarketCap(marketCap).build();
+    }
+}
@@ -0,0 +1,115 @@
+package nl.wesleyblom.crypto.api.history;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link HistoryFile}
+ *
+ * @author Wesley
+ * @date 2019-03-28
+ */
+
+public class HistoryFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pointsAreAggregatedPerStep() throws IOException {
+        try (HistoryFile file = new HistoryFile(path(), 16)) {
+            file.append(60_000, 10, 1);
+            file.append(70_000, 30, 2);
+            file.append(80_000, 5, 3);
+            file.append(110_000, 20, 4);
+            file.append(190_000, 7, 5);
+
+            List<HistoryBucket> buckets = file.buckets(0, 1_000_000, 60_000);
+
+            assertEquals(2, buckets.size());
+            HistoryBucket first = buckets.get(0);
+            assertEquals(60_000, first.getTime());
+            assertEquals(10, first.getOpen());
+            assertEquals(30, first.getHigh());
+            assertEquals(5, first.getLow());
+            assertEquals(20, first.getClose());
+            assertEquals(4, first.getNumberOfCoins());
+            assertEquals(4, first.getCount());
+            HistoryBucket second = buckets.get(1);
+            assertEquals(180_000, second.getTime());
+            assertEquals(7, second.getOpen());
+            assertEquals(7, second.getClose());
+            assertEquals(1, second.getCount());
+        }
+    }
+
+    @Test
+    public void rangeIncludesFromAndExcludesTo() throws IOException {
+        try (HistoryFile file = new HistoryFile(path(), 16)) {
+            for (long time = 0; time < 10; time++) {
+                file.append(time, time, 0);
+            }
+
+            List<HistoryBucket> buckets = file.buckets(3, 7, 1);
+
+            assertEquals(4, buckets.size());
+            assertEquals(3, buckets.get(0).getTime());
+            assertEquals(6, buckets.get(3).getTime());
+            assertTrue(file.buckets(10, 20, 1).isEmpty());
+            assertTrue(file.buckets(-10, 0, 1).isEmpty());
+        }
+    }
+
+    @Test
+    public void fileGrowsBeyondInitialCapacity() throws IOException {
+        try (HistoryFile file = new HistoryFile(path(), 1)) {
+            for (int i = 0; i < 10_000; i++) {
+                file.append(i, i, i);
+            }
+
+            assertEquals(10_000, file.size());
+            List<HistoryBucket> buckets = file.buckets(0, 10_000, 1_000);
+            assertEquals(10, buckets.size());
+            assertEquals(9_000, buckets.get(9).getOpen());
+            assertEquals(9_999, buckets.get(9).getHigh());
+        }
+    }
+
+    @Test
+    public void pointsSurviveReopening() throws IOException {
+        Path path = path();
+        try (HistoryFile file = new HistoryFile(path, 4)) {
+            file.append(1_000, 1, 1);
+            file.append(2_000, 2, 2);
+        }
+
+        try (HistoryFile file = new HistoryFile(path, 4)) {
+            assertEquals(2, file.size());
+            file.append(500, 3, 3);
+
+            List<HistoryBucket> buckets = file.buckets(0, 10_000, 1_000);
+            assertEquals(2, buckets.size());
+            assertEquals(2, buckets.get(1).getOpen());
+            assertEquals(3, buckets.get(1).getClose());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFileIsRejected() throws IOException {
+        Path path = path();
+        Files.write(path, new byte[64]);
+
+        new HistoryFile(path, 4);
+    }
+
+    private Path path() throws IOException {
+        return folder.newFile().toPath();
+    }
+}
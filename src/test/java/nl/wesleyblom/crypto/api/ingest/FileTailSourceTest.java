@@ -0,0 +1,126 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link FileTailSource}
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class FileTailSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private final AtomicInteger overlong = new AtomicInteger();
+    private Path file;
+    private FileTailSource source;
+
+    @Before
+    public void setup() throws IOException {
+        file = folder.getRoot().toPath().resolve("updates.csv");
+        source = new FileTailSource(file, lines::add, overlong::incrementAndGet, 5, 16);
+    }
+
+    @After
+    public void cleanup() {
+        source.close();
+    }
+
+    @Test
+    public void linesAreHandedOverOnceComplete() throws Exception {
+        append("");
+        source.start();
+        Thread.sleep(50);
+
+        append("BTC,1,1\r\nETH,2");
+        awaitLines(1);
+        Thread.sleep(50);
+        assertEquals(1, lines.size());
+
+        append(",2\n");
+        awaitLines(2);
+        assertEquals("BTC,1,1", lines.get(0));
+        assertEquals("ETH,2,2", lines.get(1));
+    }
+
+    @Test
+    public void missingFileIsWaitedFor() throws Exception {
+        source.start();
+        Thread.sleep(20);
+
+        append("BTC,1,1\n");
+        awaitLines(1);
+        assertEquals("BTC,1,1", lines.get(0));
+    }
+
+    @Test
+    public void existingLinesAreSkipped() throws Exception {
+        append("OLD,1,1\n");
+        source.start();
+        Thread.sleep(50);
+
+        append("BTC,1,1\n");
+        awaitLines(1);
+        Thread.sleep(50);
+        assertEquals(1, lines.size());
+        assertEquals("BTC,1,1", lines.get(0));
+    }
+
+    @Test
+    public void overlongLinesAreDropped() throws Exception {
+        append("");
+        source.start();
+        Thread.sleep(50);
+
+        append("BTC,1,1\n0123456789ABCDEFG\n0123456789ABCDEF\nETH,2,2\n");
+        awaitLines(3);
+        assertEquals("BTC,1,1", lines.get(0));
+        assertEquals("0123456789ABCDEF", lines.get(1));
+        assertEquals("ETH,2,2", lines.get(2));
+        assertEquals(1, overlong.get());
+    }
+
+    @Test
+    public void truncatedFileIsReadFromStart() throws Exception {
+        append("OLD,1,1\n");
+        source.start();
+        Thread.sleep(50);
+
+        append("BTC,1,1\nETH,2,2\n");
+        awaitLines(2);
+
+        Files.write(file, "XRP,3,3\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        awaitLines(3);
+        assertEquals("XRP,3,3", lines.get(2));
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void awaitLines(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lines.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue("Expected " + count + " lines but got " + lines, lines.size() >= count);
+    }
+}
@@ -0,0 +1,147 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import static org.junit.Assert.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit tests for {@link IngestPipeline}
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IngestPipelineTest {
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private CurrencyCache currencyCache;
+    private CurrencyVersions currencyVersions;
+    private SimpleMeterRegistry meterRegistry;
+    private List<Object> events;
+    private Currency btc;
+
+    @Before
+    public void setup() {
+        currencyCache = new CurrencyCache(currencyRepository, 100, 60);
+        currencyVersions = new CurrencyVersions(currencyRepository);
+        currencyVersions.init();
+        meterRegistry = new SimpleMeterRegistry();
+        events = new ArrayList<>();
+        btc = currencyRepository.findByTicker("BTC").get();
+    }
+
+    @After
+    public void cleanup() {
+        currencyRepository.save(btc);
+    }
+
+    @Test
+    public void latestUpdatePerTickerIsWritten() {
+        IngestPipeline pipeline = pipeline(10, 60_000);
+        currencyCache.findByTicker("BTC");
+
+        pipeline.write(Arrays.asList(new PriceUpdate("BTC", 7, 8, System.nanoTime()),
+            new PriceUpdate("NONE", 1, 1, System.nanoTime())), System.nanoTime());
+
+        Currency written = currencyRepository.findByTicker("BTC").get();
+        assertEquals(7, written.getMarketCap());
+        assertEquals(8, written.getNumberOfCoins());
+        assertEquals("Bitcoin", written.getName());
+        assertTrue(written.getVersion() > btc.getVersion());
+        assertEquals(7, currencyCache.findByTicker("BTC").get().getMarketCap());
+        assertEquals(1, pipeline.getAppliedCount());
+        assertEquals(1, pipeline.getUnknownCount());
+
+        assertEquals(1, events.size());
+        CurrencyChangedEvent event = (CurrencyChangedEvent) events.get(0);
+        assertEquals(CurrencyChangedEvent.Type.UPDATED, event.getType());
+        assertEquals(7, event.getCurrency().getMarketCap());
+        assertEquals(1, meterRegistry.get("ingest.latency").timer().count());
+    }
+
+    @Test
+    public void updatesWithinWindowAreMerged() {
+        IngestPipeline pipeline = pipeline(10, 60_000);
+        pipeline.submit("BTC,1,1");
+        pipeline.submit("{\"ticker\":\"BTC\",\"marketCap\":2,\"numberOfCoins\":2}");
+        pipeline.submit("BTC,3,3");
+        pipeline.submit("not an update");
+
+        pipeline.start();
+        pipeline.stop();
+
+        assertEquals(3, currencyRepository.findByTicker("BTC").get().getMarketCap());
+        assertEquals(3, pipeline.getReceivedCount());
+        assertEquals(2, pipeline.getMergedCount());
+        assertEquals(1, pipeline.getAppliedCount());
+        assertEquals(1, pipeline.getInvalidCount());
+        assertEquals(0, pipeline.getQueueSize());
+        assertEquals(2, meterRegistry.get("ingest.updates").tag("outcome", "merged").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void steadyUpdatesAreWrittenAfterWindow() {
+        IngestPipeline pipeline = pipeline(1000, 100);
+        pipeline.start();
+        try {
+            // the queue never runs empty, the window still has to close
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (int i = 1; pipeline.getAppliedCount() == 0; i++) {
+                assertTrue("Timed out waiting for the window to close", System.nanoTime() < deadline);
+                pipeline.submit("BTC," + i + ",1");
+            }
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    public void fullQueueDropsUpdatesAfterTimeout() {
+        IngestPipeline pipeline = pipeline(2, 0);
+
+        assertTrue(pipeline.submit("BTC,1,1"));
+        assertTrue(pipeline.submit("ETH,1,1"));
+        assertFalse(pipeline.submit("XRP,1,1"));
+
+        assertEquals(1, pipeline.getBackpressureCount());
+        assertEquals(1, pipeline.getDroppedCount());
+        assertEquals(2, pipeline.getQueueSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queueCapacityNeedsToBePositive() {
+        pipeline(0, 0);
+    }
+
+    private IngestPipeline pipeline(int queueCapacity, long windowMillis) {
+        return new IngestPipeline(currencyRepository, currencyCache, currencyVersions, events::add, transactionManager,
+            meterRegistry, queueCapacity, 100, windowMillis, 0);
+    }
+}
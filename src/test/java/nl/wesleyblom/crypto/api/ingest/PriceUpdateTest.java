@@ -0,0 +1,53 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PriceUpdate}
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class PriceUpdateTest {
+
+    @Test
+    public void parsesCommaSeparatedLine() {
+        PriceUpdate update = PriceUpdate.parse(" BTC, 100 ,20 ");
+
+        assertEquals("BTC", update.getTicker());
+        assertEquals(100, update.getMarketCap());
+        assertEquals(20, update.getNumberOfCoins());
+    }
+
+    @Test
+    public void parsesJsonLine() {
+        PriceUpdate update = PriceUpdate.parse("{\"ticker\":\"ETH\",\"marketCap\":300,\"numberOfCoins\":40}");
+
+        assertEquals("ETH", update.getTicker());
+        assertEquals(300, update.getMarketCap());
+        assertEquals(40, update.getNumberOfCoins());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingField() {
+        PriceUpdate.parse("BTC,100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonNumericField() {
+        PriceUpdate.parse("BTC,lots,20");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIncompleteJson() {
+        PriceUpdate.parse("{\"ticker\":\"ETH\",\"marketCap\":300}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongTicker() {
+        PriceUpdate.parse("BITCOIN,100,20");
+    }
+}
@@ -0,0 +1,84 @@
+package nl.wesleyblom.crypto.api.ingest;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SocketSource}
+ *
+ * @author Wesley
+ * @date 2019-03-30
+ */
+
+public class SocketSourceTest {
+
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private SocketSource source;
+
+    @Before
+    public void setup() throws IOException {
+        source = new SocketSource(0, lines::add);
+        source.start();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        source.close();
+    }
+
+    @Test
+    public void linesOfEveryConnectionAreHandedOver() throws Exception {
+        try (Socket first = connect(); Socket second = connect()) {
+            send(first, "BTC,1,1\n");
+            send(second, "ETH,2,2\nXRP,3");
+            awaitLines(2);
+            send(second, ",3\n");
+            awaitLines(3);
+        }
+
+        assertTrue(lines.contains("BTC,1,1"));
+        assertTrue(lines.contains("ETH,2,2"));
+        assertTrue(lines.contains("XRP,3,3"));
+    }
+
+    @Test
+    public void closingClosesConnections() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "BTC,1,1\n");
+            awaitLines(1);
+
+            source.close();
+
+            socket.setSoTimeout(5000);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), source.getLocalPort());
+    }
+
+    private static void send(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void awaitLines(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lines.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue("Expected " + count + " lines but got " + lines, lines.size() >= count);
+    }
+}
@@ -0,0 +1,94 @@
+package nl.wesleyblom.crypto.api.logging;
+
+import static org.junit.Assert.*;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.HashMap;
+import java.util.Map;
+import nl.wesleyblom.crypto.api.CurrencyRestController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Unit tests for {@link AccessLogInterceptor}
+ *
+ * @author Wesley
+ * @date 2019-03-16
+ */
+
+public class AccessLogInterceptorTest {
+
+    private final Logger accessLog = (Logger) LoggerFactory.getLogger(AccessLogInterceptor.LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private AccessLogInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @Before
+    public void setup() throws Exception {
+        appender.start();
+        accessLog.addAppender(appender);
+
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("2xx", 0.0);
+        rates.put("4xx", 1.0);
+        interceptor = new AccessLogInterceptor(new AccessLogSampler(rates));
+        handler = new HandlerMethod(new CurrencyRestController(),
+            CurrencyRestController.class.getMethod("deleteCurrency", String.class));
+    }
+
+    @After
+    public void tearDown() {
+        accessLog.detachAppender(appender);
+    }
+
+    @Test
+    public void sampledRequestIsLoggedWithFields() {
+        handle(404);
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("DELETE", event.getArgumentArray()[0]);
+        assertEquals("/api/currencies/XRP", event.getArgumentArray()[1]);
+        assertEquals("deleteCurrency", event.getArgumentArray()[2]);
+        assertEquals(404, event.getArgumentArray()[3]);
+    }
+
+    @Test
+    public void unsampledRequestIsNotLogged() {
+        handle(200);
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void unresolvedExceptionIsAlwaysLoggedAsServerError() {
+        handle(200, new QueryTimeoutException("Timed out"));
+
+        assertEquals(1, appender.list.size());
+        Object[] fields = appender.list.get(0).getArgumentArray();
+        assertEquals(500, fields[3]);
+        assertEquals(QueryTimeoutException.class.getName(), fields[5]);
+    }
+
+    private void handle(int status) {
+        handle(status, null);
+    }
+
+    private void handle(int status, Exception ex) {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/currencies/XRP");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterCompletion(request, response, handler, ex);
+    }
+}
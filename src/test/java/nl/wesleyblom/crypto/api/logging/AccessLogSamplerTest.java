@@ -0,0 +1,66 @@
+package nl.wesleyblom.crypto.api.logging;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AccessLogSampler}
+ *
+ * @author Wesley
+ * @date 2019-03-16
+ */
+
+public class AccessLogSamplerTest {
+
+    @Test
+    public void endpointRateOverridesOutcomeRate() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("2xx", 0.01);
+        rates.put("getCurrency.2xx", 0.5);
+        AccessLogSampler sampler = new AccessLogSampler(rates);
+
+        assertEquals(0.5, sampler.rate("getCurrency", 200), 0);
+        assertEquals(0.01, sampler.rate("getAll", 204), 0);
+    }
+
+    @Test
+    public void outcomeWithoutRateIsAlwaysLogged() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("2xx", 0.0);
+        AccessLogSampler sampler = new AccessLogSampler(rates);
+
+        assertEquals(1, sampler.rate("getAll", 404), 0);
+        assertEquals(1, sampler.rate("getAll", 999), 0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampler.sample("getAll", 500));
+            assertFalse(sampler.sample("getAll", 200));
+        }
+    }
+
+    @Test
+    public void fractionOfRequestsIsSampled() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("2xx", 0.1);
+        AccessLogSampler sampler = new AccessLogSampler(rates);
+
+        int sampled = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (sampler.sample("getAll", 200)) {
+                sampled++;
+            }
+        }
+
+        assertTrue(sampled > 9000 && sampled < 11000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateAboveOneThrowsException() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("4xx", 2.0);
+
+        new AccessLogSampler(rates);
+    }
+}
@@ -0,0 +1,87 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import nl.wesleyblom.crypto.api.cache.CompressedPageCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyCache;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CacheMetrics}
+ *
+ * @author Wesley
+ * @date 2019-03-18
+ */
+
+public class CacheMetricsTest {
+
+    private CurrencyCache currencyCache;
+    private CurrencyJsonCache currencyJsonCache;
+    private CompressedPageCache compressedPageCache;
+    private MeterRegistry registry;
+
+    @Before
+    public void setup() {
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        Currency currency = new Currency.CurrencyBuilder().withTicker("XRP").withName("Ripple").build();
+        when(currencyRepository.findByTicker("XRP")).thenReturn(Optional.of(currency));
+
+        currencyCache = new CurrencyCache(currencyRepository, 10, 60);
+        currencyJsonCache = new CurrencyJsonCache(new ObjectMapper(), 10, 10);
+        compressedPageCache = new CompressedPageCache(10);
+        registry = new SimpleMeterRegistry();
+        new CacheMetrics(currencyCache, currencyJsonCache, compressedPageCache).bindTo(registry);
+    }
+
+    @Test
+    public void cacheLookupsArePublished() {
+        currencyCache.findByTicker("XRP");
+        currencyCache.findByTicker("XRP");
+        currencyCache.findByTicker("XRP");
+
+        assertEquals(2, gets("currency", "hit"), 0);
+        assertEquals(1, gets("currency", "miss"), 0);
+        assertEquals(1, registry.get("cache.size").tag("cache", "currency").gauge().value(), 0);
+        assertEquals(0, registry.get("cache.coalesced").tag("cache", "currency").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void pageLookupsArePublished() {
+        currencyJsonCache.getPage("0:10:ticker", 1);
+        currencyJsonCache.putPage("0:10:ticker", 1, new byte[] {'[', ']'});
+        currencyJsonCache.getPage("0:10:ticker", 1);
+
+        assertEquals(1, gets("currency-page", "hit"), 0);
+        assertEquals(1, gets("currency-page", "miss"), 0);
+        assertEquals(1, registry.get("cache.size").tag("cache", "currency-page").gauge().value(), 0);
+        assertEquals(0, registry.get("cache.coalesced").tag("cache", "currency-page").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void compressedPageLookupsArePublished() {
+        byte[] body = new byte[1000];
+        compressedPageCache.gzip("0:10:ticker", 1, body);
+        compressedPageCache.gzip("0:10:ticker", 1, body);
+
+        assertEquals(1, gets("currency-page-gzip", "hit"), 0);
+        assertEquals(1, gets("currency-page-gzip", "miss"), 0);
+        assertEquals(1, registry.get("cache.size").tag("cache", "currency-page-gzip").gauge().value(), 0);
+        assertEquals(0, registry.get("cache.coalesced").tag("cache", "currency-page-gzip").functionCounter().count(), 0);
+        double ratio = registry.get("cache.compression.ratio").tag("cache", "currency-page-gzip").gauge().value();
+        assertTrue(ratio > 0 && ratio < 0.1);
+    }
+
+    private double gets(String cache, String result) {
+        return registry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,81 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Unit tests for {@link RepositoryMetrics}
+ *
+ * @author Wesley
+ * @date 2019-03-18
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({RepositoryMetrics.class, SimpleMeterRegistry.class})
+public class RepositoryMetricsTest {
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void repositoryCallsAreTimedPerMethod() {
+        currencyRepository.findByTicker("XRP");
+        currencyRepository.findByTicker("BTC");
+        currencyRepository.count();
+
+        assertEquals(2, timer("findByTicker", "success").count());
+        assertEquals(1, timer("count", "success").count());
+        assertTrue(timer("findByTicker", "success").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void failedCallsAreTimedSeparately() {
+        try {
+            currencyRepository.findById(null);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(1, timer("findById", "error").count());
+            assertEquals(0, timer("findById", "success").count());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void callsProceedWhenRegistryIsGone() throws Throwable {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        given(provider.getIfAvailable()).willThrow(new BeanCreationNotAllowedException("meterRegistry", "closing"));
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        given(invocation.getMethod()).willReturn(CurrencyRepository.class.getMethod("count"));
+        given(invocation.proceed()).willReturn(4L);
+
+        assertEquals(4L, new RepositoryMetrics.TimingInterceptor(provider, "CurrencyRepository").invoke(invocation));
+    }
+
+    private Timer timer(String method, String outcome) {
+        return meterRegistry.get(RepositoryMetrics.METRIC_NAME)
+            .tag("repository", "CurrencyRepository")
+            .tag("method", method)
+            .tag("outcome", outcome)
+            .timer();
+    }
+}
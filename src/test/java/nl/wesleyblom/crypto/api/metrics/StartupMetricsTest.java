@@ -0,0 +1,58 @@
+package nl.wesleyblom.crypto.api.metrics;
+
+import static org.junit.Assert.*;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for {@link StartupMetrics}
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+public class StartupMetricsTest {
+
+    private StartupMetrics startupMetrics;
+    private MeterRegistry registry;
+
+    @Before
+    public void setup() {
+        startupMetrics = new StartupMetrics(System.currentTimeMillis() - 1000);
+        registry = new SimpleMeterRegistry();
+        startupMetrics.bindTo(registry);
+    }
+
+    @Test
+    public void phasesAreUnknownUntilReached() {
+        assertEquals(-1, startupMetrics.getReadyMillis());
+        assertEquals(-1, startupMetrics.getFirstRequestMillis());
+        assertTrue(Double.isNaN(time("ready")));
+        assertTrue(Double.isNaN(time("first-request")));
+    }
+
+    @Test
+    public void onlyFirstRequestIsRecorded() throws Exception {
+        startupMetrics.onReady();
+        startupMetrics.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        long first = startupMetrics.getFirstRequestMillis();
+        Thread.sleep(5);
+        startupMetrics.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertTrue(startupMetrics.getReadyMillis() >= 1000);
+        assertTrue(first >= startupMetrics.getReadyMillis());
+        assertEquals(first, startupMetrics.getFirstRequestMillis());
+        assertEquals(first, time("first-request"), 0.001);
+    }
+
+    private double time(String phase) {
+        return registry.get("startup.time").tag("phase", phase).timeGauge().value(TimeUnit.MILLISECONDS);
+    }
+}
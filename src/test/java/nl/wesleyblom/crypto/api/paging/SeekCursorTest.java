@@ -0,0 +1,68 @@
+package nl.wesleyblom.crypto.api.paging;
+
+import static org.junit.Assert.*;
+
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.paging.SeekCursor.Order;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SeekCursor}
+ *
+ * @author Wesley
+ * @date 2019-03-04
+ */
+
+public class SeekCursorTest {
+
+    private static final Currency XRP =
+        new Currency.CurrencyBuilder().withTicker("XRP").withName("Ripple").withMarketCap(64750000000L).build();
+
+    @Test
+    public void encodedCursorDecodesToSamePosition() {
+        SeekCursor cursor = SeekCursor.first(Order.MARKET_CAP).after(XRP);
+
+        SeekCursor decoded = SeekCursor.decode(cursor.encode());
+
+        assertEquals(Order.MARKET_CAP, decoded.getOrder());
+        assertEquals("XRP", decoded.getTicker());
+        assertEquals(64750000000L, decoded.getMarketCap());
+    }
+
+    @Test
+    public void firstCursorStartsBeforeAllRows() {
+        SeekCursor cursor = SeekCursor.first(Order.TICKER);
+
+        assertEquals("", cursor.getTicker());
+        assertEquals(Long.MAX_VALUE, cursor.getMarketCap());
+    }
+
+    @Test
+    public void afterTickerIsOrderedByTicker() {
+        SeekCursor cursor = SeekCursor.afterTicker("BTC");
+
+        assertEquals(Order.TICKER, cursor.getOrder());
+        assertEquals("BTC", cursor.getTicker());
+    }
+
+    @Test
+    public void orderIsResolvedByName() {
+        assertEquals(Order.TICKER, Order.fromName("ticker"));
+        assertEquals(Order.MARKET_CAP, Order.fromName("marketCap"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOrderThrowsException() {
+        Order.fromName("name");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedCursorThrowsException() {
+        SeekCursor.decode("bm9uc2Vuc2U");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonBase64CursorThrowsException() {
+        SeekCursor.decode("***");
+    }
+}
@@ -2,12 +2,15 @@ package nl.wesleyblom.crypto.api.repository;
 
 import static org.junit.Assert.*;
 
+import java.util.List;
 import java.util.Optional;
 import nl.wesleyblom.crypto.api.model.Currency;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 /**
@@ -90,4 +93,101 @@ public class CurrencyRepositoryTest {
         assertFalse(abcCurrencyAfter.isPresent());
         assertEquals(3, currencyRepository.count());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void pageAfterTickerContinuesAfterGivenTicker() {
+        List<Currency> firstPage = currencyRepository.findPageAfterTicker("", PageRequest.of(0, 2));
+        assertEquals(2, firstPage.size());
+        assertEquals("BCH", firstPage.get(0).getTicker());
+        assertEquals("BTC", firstPage.get(1).getTicker());
+
+        List<Currency> secondPage = currencyRepository.findPageAfterTicker("BTC", PageRequest.of(0, 2));
+        assertEquals(2, secondPage.size());
+        assertEquals("ETH", secondPage.get(0).getTicker());
+        assertEquals(TICKER_XRP, secondPage.get(1).getTicker());
+
+        assertTrue(currencyRepository.findPageAfterTicker(TICKER_XRP, PageRequest.of(0, 2)).isEmpty());
+    }
+
+    @Test
+    public void pageAfterMarketCapIsOrderedByDescendingMarketCap() {
+        List<Currency> firstPage = currencyRepository.findPageAfterMarketCap(Long.MAX_VALUE, "", PageRequest.of(0, 2));
+        assertEquals(2, firstPage.size());
+        assertEquals("BTC", firstPage.get(0).getTicker());
+        assertEquals("ETH", firstPage.get(1).getTicker());
+
+        Currency last = firstPage.get(1);
+        List<Currency> secondPage = currencyRepository.findPageAfterMarketCap(last.getMarketCap(), last.getTicker(), PageRequest.of(0, 2));
+        assertEquals(2, secondPage.size());
+        assertEquals("BCH", secondPage.get(0).getTicker());
+        assertEquals(TICKER_XRP, secondPage.get(1).getTicker());
+    }
+
+    @Test
+    public void versionCanBeLookedUpWithoutEntity() {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_ABC).withName(NAME_ABC).build();
+        currency.setVersion(12);
+        currencyRepository.save(currency);
+
+        assertEquals(Long.valueOf(12), currencyRepository.findVersionByTicker(TICKER_ABC).get());
+        assertEquals(Long.valueOf(0), currencyRepository.findVersionByTicker(TICKER_XRP).get());
+        assertFalse(currencyRepository.findVersionByTicker("doe").isPresent());
+        assertEquals(Long.valueOf(12), currencyRepository.findMaxVersion());
+    }
+
+    @Test
+    public void insertIfAbsentOnlyCreatesNewTicker() {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_ABC).withName(NAME_ABC).withMarketCap(MARKET_CAP).build();
+        Currency duplicate = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_ABC).build();
+
+        assertEquals(1, currencyRepository.insertIfAbsent(currency));
+        assertEquals(0, currencyRepository.insertIfAbsent(duplicate));
+
+        assertEquals(MARKET_CAP, currencyRepository.findByTicker(TICKER_ABC).get().getMarketCap());
+        assertEquals("Ripple", currencyRepository.findByTicker(TICKER_XRP).get().getName());
+    }
+
+    @Test
+    public void updateByTickerOverwritesExistingTicker() {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_XRP).withName(NAME_ABC)
+            .withMarketCap(MARKET_CAP).withNumberOfCoins(NUMBER_OF_COINS).build();
+        currency.setVersion(3);
+
+        assertEquals(1, currencyRepository.updateByTicker(currency));
+
+        Currency updated = currencyRepository.findByTicker(TICKER_XRP).get();
+        assertEquals(NAME_ABC, updated.getName());
+        assertEquals(MARKET_CAP, updated.getMarketCap());
+        assertEquals(NUMBER_OF_COINS, updated.getNumberOfCoins());
+        assertEquals(3, updated.getVersion());
+
+        Currency unknown = new Currency.CurrencyBuilder().withTicker(TICKER_ABC).withName(NAME_ABC).build();
+        assertEquals(0, currencyRepository.updateByTicker(unknown));
+    }
+
+    @Test
+    public void renameTickerMovesCurrency() {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(TICKER_ABC).withName(NAME_ABC).withMarketCap(MARKET_CAP).build();
+
+        assertEquals(1, currencyRepository.renameTicker(TICKER_XRP, currency));
+
+        assertFalse(currencyRepository.findByTicker(TICKER_XRP).isPresent());
+        assertEquals(MARKET_CAP, currencyRepository.findByTicker(TICKER_ABC).get().getMarketCap());
+        assertEquals(4, currencyRepository.count());
+        assertEquals(0, currencyRepository.renameTicker("doe", currency));
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void renameToExistingTickerThrowsException() {
+        Currency currency = new Currency.CurrencyBuilder().withTicker("BTC").withName(NAME_ABC).build();
+
+        currencyRepository.renameTicker(TICKER_XRP, currency);
+    }
+
+    @Test
+    public void deleteTickerReturnsCount() {
+        assertEquals(1, currencyRepository.deleteTicker(TICKER_XRP));
+        assertEquals(0, currencyRepository.deleteTicker(TICKER_XRP));
+        assertEquals(3, currencyRepository.count());
+    }
+}
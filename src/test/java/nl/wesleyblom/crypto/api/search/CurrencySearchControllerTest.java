@@ -0,0 +1,67 @@
+package nl.wesleyblom.crypto.api.search;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.Collections;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Unit tests for {@link CurrencySearchController}
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CurrencySearchController.class)
+public class CurrencySearchControllerTest {
+
+    private static final String API_URL_SEARCH = "/api/currencies/search";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CurrencySearchIndex currencySearchIndex;
+
+    @Test
+    public void matchesAreReturned() throws Exception {
+        given(currencySearchIndex.search("bitc", 5)).willReturn(Collections.singletonList(
+            new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withNumberOfCoins(2).withMarketCap(3).build()));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_SEARCH).param("q", "bitc").param("n", "5"))
+            .andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[{\"ticker\":\"BTC\",\"name\":\"Bitcoin\",\"numberOfCoins\":2,\"marketCap\":3}]",
+            response.getContentAsString());
+    }
+
+    @Test
+    public void invalidParametersReturn400() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status(get(API_URL_SEARCH)));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status(get(API_URL_SEARCH).param("q", " ")));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status(get(API_URL_SEARCH).param("q", "abcdefghijklmnopqrstuvwxyz")));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status(get(API_URL_SEARCH).param("q", "btc").param("n", "51")));
+        verify(currencySearchIndex, never()).search(anyString(), anyInt());
+    }
+
+    private int status(org.springframework.test.web.servlet.RequestBuilder request) throws Exception {
+        return mvc.perform(request).andReturn().getResponse().getStatus();
+    }
+}
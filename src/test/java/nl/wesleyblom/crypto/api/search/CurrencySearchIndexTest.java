@@ -0,0 +1,102 @@
+package nl.wesleyblom.crypto.api.search;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencySearchIndex}
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+public class CurrencySearchIndexTest {
+
+    private CurrencySearchIndex index;
+
+    @Before
+    public void setup() {
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        when(currencyRepository.findAll()).thenReturn(Arrays.asList(
+            currency("BTC", "Bitcoin", 100, 1), currency("BCH", "Bitcoin Cash", 50, 2),
+            currency("ETH", "Ethereum", 70, 3), currency("ETC", "Ethereum Classic", 5, 4)));
+        index = new CurrencySearchIndex(currencyRepository);
+        index.init();
+    }
+
+    @Test
+    public void prefixMatchesAreRankedByMarketCap() {
+        assertEquals(Arrays.asList("BTC", "BCH"), tickers(index.search("bitc", 10)));
+        assertEquals(Arrays.asList("BTC"), tickers(index.search("BITC", 1)));
+    }
+
+    @Test
+    public void wholeTickerRanksBeforePrefixes() {
+        assertEquals(Arrays.asList("ETH", "ETC"), tickers(index.search("eth", 10)));
+        assertEquals(Arrays.asList("ETC"), tickers(index.search("etc", 1)));
+    }
+
+    @Test
+    public void wordsOfNamesAreMatched() {
+        assertEquals(Arrays.asList("BCH"), tickers(index.search("cash", 10)));
+        assertEquals(Arrays.asList("ETC"), tickers(index.search("classic", 10)));
+    }
+
+    @Test
+    public void typosOfLongerQueriesAreTolerated() {
+        assertEquals(Arrays.asList("ETH", "ETC"), tickers(index.search("etherium", 10)));
+        assertEquals(Arrays.asList("BTC", "ETC"), tickers(index.search("ntc", 10)));
+        assertTrue(index.search("bx", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void writesAreApplied() {
+        index.onCurrencyChanged(CurrencyChangedEvent.created(currency("XRP", "Ripple", 60, 5)));
+        index.onCurrencyChanged(CurrencyChangedEvent.updated("BTC", currency("XBT", "Bitcoin", 100, 6)));
+        index.onCurrencyChanged(CurrencyChangedEvent.deleted("BCH", 10));
+
+        assertEquals(Arrays.asList("XRP"), tickers(index.search("rip", 10)));
+        assertEquals(Arrays.asList("XBT"), tickers(index.search("bitc", 10)));
+        assertFalse(tickers(index.search("btc", 10)).contains("BTC"));
+        assertTrue(index.search("cash", 10).isEmpty());
+    }
+
+    @Test
+    public void olderVersionIsIgnored() {
+        index.onCurrencyChanged(CurrencyChangedEvent.updated("ETH", currency("ETH", "Ether", 70, 2)));
+
+        assertEquals(Arrays.asList("ETH", "ETC"), tickers(index.search("ethereum", 10)));
+    }
+
+    @Test
+    public void lateUpdateDoesNotRestoreDeletedOrRenamedTicker() {
+        index.onCurrencyChanged(CurrencyChangedEvent.deleted("BCH", 10));
+        index.onCurrencyChanged(CurrencyChangedEvent.updated("BCH", currency("BCH", "Bitcoin Cash", 50, 9)));
+        index.onCurrencyChanged(CurrencyChangedEvent.updated("ETC", currency("ETCN", "Ethereum Classic", 5, 11)));
+        index.onCurrencyChanged(CurrencyChangedEvent.updated("ETC", currency("ETC", "Ethereum Classic", 5, 8)));
+
+        assertTrue(index.search("cash", 10).isEmpty());
+        assertEquals(Arrays.asList("ETCN"), tickers(index.search("classic", 10)));
+    }
+
+    private static Currency currency(String ticker, String name, long marketCap, long version) {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(ticker).withName(name).withMarketCap(marketCap).build();
+        currency.setVersion(version);
+        return currency;
+    }
+
+    private static List<String> tickers(List<Currency> currencies) {
+        return currencies.stream().map(Currency::getTicker).collect(Collectors.toList());
+    }
+}
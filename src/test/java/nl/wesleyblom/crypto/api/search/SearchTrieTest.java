@@ -0,0 +1,90 @@
+package nl.wesleyblom.crypto.api.search;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SearchTrie}
+ *
+ * @author Wesley
+ * @date 2019-04-01
+ */
+
+public class SearchTrieTest {
+
+    private SearchTrie trie;
+
+    @Before
+    public void setup() {
+        trie = new SearchTrie();
+        trie.add("bitcoin", "BTC");
+        trie.add("bitcoin cash", "BCH");
+        trie.add("ethereum", "ETH");
+        trie.add("ethereum classic", "ETC");
+        trie.add("classic", "ETC");
+    }
+
+    @Test
+    public void prefixMatchesEveryLongerTerm() {
+        Map<String, Integer> matches = search("bitc", 0);
+
+        assertEquals(2, matches.size());
+        assertEquals(0, (int) matches.get("BTC"));
+        assertEquals(0, (int) matches.get("BCH"));
+    }
+
+    @Test
+    public void wholeTermMatchIsExact() {
+        Map<String, Boolean> exact = new HashMap<>();
+        trie.search("bitcoin", 0, (value, distance, whole) -> exact.merge(value, whole, Boolean::logicalOr));
+
+        assertTrue(exact.get("BTC"));
+        assertFalse(exact.get("BCH"));
+    }
+
+    @Test
+    public void typosAreMatchedWithinDistance() {
+        assertEquals(1, (int) search("etherum", 1).get("ETH"));
+        assertEquals(1, (int) search("bitcpin", 1).get("BTC"));
+        assertEquals(2, (int) search("bticoin", 2).get("BTC"));
+        assertTrue(search("etherum", 0).isEmpty());
+        assertTrue(search("xyz", 1).isEmpty());
+    }
+
+    @Test
+    public void closestPrefixGivesDistance() {
+        assertEquals(0, (int) search("clas", 1).get("ETC"));
+    }
+
+    @Test
+    public void removedValuesAreNotMatched() {
+        trie.remove("bitcoin", "BTC");
+        trie.remove("unknown", "BTC");
+
+        Map<String, Integer> matches = search("bitc", 0);
+        assertEquals(1, matches.size());
+        assertTrue(matches.containsKey("BCH"));
+
+        trie.remove("bitcoin cash", "BCH");
+        assertTrue(search("b", 0).isEmpty());
+    }
+
+    @Test
+    public void valueIsStoredOncePerTerm() {
+        trie.add("bitcoin", "BTC");
+        int[] count = new int[1];
+        trie.search("bitcoin", 0, (value, distance, whole) -> count[0] += "BTC".equals(value) ? 1 : 0);
+
+        assertEquals(1, count[0]);
+    }
+
+    private Map<String, Integer> search(String query, int maxDistance) {
+        Map<String, Integer> matches = new HashMap<>();
+        trie.search(query, maxDistance, (value, distance, exact) -> matches.merge(value, distance, Math::min));
+        return matches;
+    }
+}
@@ -0,0 +1,140 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link SnapshotFile}
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+public class SnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void currenciesAreReadAsWritten() throws IOException {
+        Path path = path();
+        List<Currency> currencies = Arrays.asList(currency("BTC", "Bitcoin", 3), currency("€UR", "Eurö", 7));
+
+        assertEquals(2, SnapshotFile.write(path, currencies.iterator()));
+        List<Currency> read = SnapshotFile.read(path);
+
+        assertEquals(2, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(currencies.get(i).getTicker(), read.get(i).getTicker());
+            assertEquals(currencies.get(i).getName(), read.get(i).getName());
+            assertEquals(currencies.get(i).getNumberOfCoins(), read.get(i).getNumberOfCoins());
+            assertEquals(currencies.get(i).getMarketCap(), read.get(i).getMarketCap());
+            assertEquals(currencies.get(i).getVersion(), read.get(i).getVersion());
+        }
+        assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void emptySnapshotIsRead() throws IOException {
+        Path path = path();
+        SnapshotFile.write(path, Collections.<Currency>emptyIterator());
+
+        assertEquals(SnapshotFile.HEADER_BYTES, Files.size(path));
+        assertTrue(SnapshotFile.read(path).isEmpty());
+    }
+
+    @Test
+    public void snapshotIsReplaced() throws IOException {
+        Path path = path();
+        SnapshotFile.write(path, Collections.singletonList(currency("BTC", "Bitcoin", 1)).iterator());
+        SnapshotFile.write(path, Collections.singletonList(currency("ETH", "Ethereum", 2)).iterator());
+
+        List<Currency> read = SnapshotFile.read(path);
+        assertEquals(1, read.size());
+        assertEquals("ETH", read.get(0).getTicker());
+    }
+
+    @Test
+    public void failedWriteKeepsPreviousSnapshot() throws IOException {
+        Path path = path();
+        SnapshotFile.write(path, Collections.singletonList(currency("BTC", "Bitcoin", 1)).iterator());
+
+        Iterator<Currency> failing = new ArrayList<Currency>().iterator();
+        try {
+            SnapshotFile.write(path, new Iterator<Currency>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Currency next() {
+                    return failing.next();
+                }
+            });
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("BTC", SnapshotFile.read(path).get(0).getTicker());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedRecordFailsChecksum() throws IOException {
+        Path path = path();
+        SnapshotFile.write(path, Collections.singletonList(currency("BTC", "Bitcoin", 1)).iterator());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), SnapshotFile.HEADER_BYTES + 1);
+        }
+
+        SnapshotFile.read(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedSnapshotIsRejected() throws IOException {
+        Path path = path();
+        SnapshotFile.write(path, Collections.singletonList(currency("BTC", "Bitcoin", 1)).iterator());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 1);
+        }
+
+        SnapshotFile.read(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFileIsRejected() throws IOException {
+        Path path = path();
+        Files.write(path, new byte[64]);
+
+        SnapshotFile.read(path);
+    }
+
+    private Path path() throws IOException {
+        return folder.newFolder().toPath().resolve("currencies.snap");
+    }
+
+    private static Currency currency(String ticker, String name, long version) {
+        Currency currency = new Currency.CurrencyBuilder()
+            .withTicker(ticker)
+            .withName(name)
+            .withNumberOfCoins(version * 1000)
+            .withMarketCap(Long.MAX_VALUE - version)
+            .build();
+        currency.setVersion(version);
+        return currency;
+    }
+}
@@ -0,0 +1,104 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit tests for {@link SnapshotLoader}
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SnapshotLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @After
+    public void cleanup() {
+        new JdbcTemplate(dataSource).update("delete from currency");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("data.sql")), dataSource);
+    }
+
+    @Test
+    public void snapshotReplacesTable() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("currencies.snap");
+        Currency currency = new Currency.CurrencyBuilder().withTicker("DOGE").withName("Dogecoin").withMarketCap(5).build();
+        currency.setVersion(42);
+        Currency other = new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withMarketCap(6).build();
+        SnapshotFile.write(path, Arrays.asList(currency, other).iterator());
+
+        SnapshotLoader loader = new SnapshotLoader(path, new ClassPathResource("data.sql"), 1);
+        loader.load(dataSource);
+
+        assertEquals(2, currencyRepository.count());
+        assertEquals(Long.valueOf(42), currencyRepository.findMaxVersion());
+        assertEquals(6, currencyRepository.findByTicker("BTC").get().getMarketCap());
+        assertEquals(SnapshotLoader.Source.SNAPSHOT, loader.getSource());
+        assertEquals(2, loader.getLoadedCount());
+        assertTrue(loader.getLoadNanos() > 0);
+    }
+
+    @Test
+    public void scriptIsExecutedWithoutSnapshot() throws IOException {
+        new JdbcTemplate(dataSource).update("delete from currency");
+        SnapshotLoader loader = new SnapshotLoader(folder.getRoot().toPath().resolve("none.snap"),
+            new ClassPathResource("data.sql"), 500);
+
+        loader.load(dataSource);
+
+        assertEquals(4, currencyRepository.count());
+        assertEquals(SnapshotLoader.Source.SCRIPT, loader.getSource());
+    }
+
+    @Test
+    public void unreadableSnapshotFailsAndKeepsTable() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("currencies.snap");
+        Files.write(path, new byte[64]);
+        SnapshotLoader loader = new SnapshotLoader(path, new ClassPathResource("data.sql"), 500);
+
+        try {
+            loader.load(dataSource);
+            fail();
+        } catch (IOException e) {
+            assertEquals(4, currencyRepository.count());
+            assertEquals(SnapshotLoader.Source.NONE, loader.getSource());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeNeedsToBePositive() {
+        new SnapshotLoader(folder.getRoot().toPath(), new ClassPathResource("data.sql"), 0);
+    }
+}
@@ -0,0 +1,110 @@
+package nl.wesleyblom.crypto.api.snapshot;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.persistence.EntityManager;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import nl.wesleyblom.crypto.api.version.CurrencyVersions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit tests for {@link SnapshotWriter}
+ *
+ * @author Wesley
+ * @date 2019-04-05
+ */
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SnapshotWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    CurrencyRepository currencyRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private CurrencyVersions currencyVersions;
+    private Path path;
+    private SnapshotWriter writer;
+
+    @Before
+    public void setup() {
+        currencyVersions = new CurrencyVersions(currencyRepository);
+        currencyVersions.init();
+        path = folder.getRoot().toPath().resolve("snapshots").resolve("currencies.snap");
+        writer = new SnapshotWriter(path, currencyRepository, currencyVersions, entityManager, transactionManager, 60_000);
+    }
+
+    @After
+    public void cleanup() {
+        writer.close();
+    }
+
+    @Test
+    public void snapshotIsOnlyWrittenAfterChanges() throws IOException {
+        writer.start();
+
+        assertTrue(writer.writeIfChanged());
+        assertFalse(writer.writeIfChanged());
+        currencyVersions.written();
+        assertTrue(writer.writeIfChanged());
+
+        assertEquals(2, writer.getWriteCount());
+        assertEquals(0, writer.getFailureCount());
+        List<Currency> currencies = SnapshotFile.read(path);
+        assertEquals(currencyRepository.count(), currencies.size());
+        assertEquals("BCH", currencies.get(0).getTicker());
+        assertEquals(currencyRepository.findByTicker("BTC").get().getMarketCap(), currencies.get(1).getMarketCap());
+    }
+
+    @Test
+    public void existingSnapshotIsNotWrittenAgainWithoutChanges() throws IOException {
+        writer.start();
+        writer.writeIfChanged();
+
+        SnapshotWriter restarted = new SnapshotWriter(path, currencyRepository, currencyVersions, entityManager,
+            transactionManager, 60_000);
+        restarted.start();
+        restarted.close();
+
+        assertEquals(0, restarted.getWriteCount());
+    }
+
+    @Test
+    public void closingWritesLastSnapshot() throws IOException {
+        writer.start();
+        writer.close();
+
+        assertTrue(Files.isRegularFile(path));
+        assertEquals(1, writer.getWriteCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intervalNeedsToBePositive() {
+        new SnapshotWriter(path, currencyRepository, currencyVersions, entityManager, transactionManager, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencyAggregates}
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+public class CurrencyAggregatesTest {
+
+    private CurrencyRepository currencyRepository;
+    private CurrencyAggregates aggregates;
+
+    @Before
+    public void setup() {
+        currencyRepository = mock(CurrencyRepository.class);
+        when(currencyRepository.findAll()).thenReturn(Arrays.asList(
+            currency("BTC", 100, 10, 1), currency("ETH", 50, 20, 2), currency("XRP", 50, 30, 3)));
+        aggregates = new CurrencyAggregates(currencyRepository);
+        aggregates.init();
+    }
+
+    @Test
+    public void aggregatesAreLoadedAtStartup() {
+        assertStatistics(3, 200, 60);
+        assertEquals(Arrays.asList("BTC", "ETH", "XRP"), tickers(aggregates.topByMarketCap(10)));
+        assertEquals(Arrays.asList("BTC", "ETH"), tickers(aggregates.topByMarketCap(2)));
+    }
+
+    @Test
+    public void createIsAdded() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.created(currency("BCH", 75, 5, 4)));
+
+        assertStatistics(4, 275, 65);
+        assertEquals(Arrays.asList("BTC", "BCH", "ETH"), tickers(aggregates.topByMarketCap(3)));
+    }
+
+    @Test
+    public void updateReplacesPreviousState() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("XRP", currency("XRP", 500, 40, 4)));
+
+        assertStatistics(3, 650, 70);
+        assertEquals(Arrays.asList("XRP", "BTC", "ETH"), tickers(aggregates.topByMarketCap(3)));
+    }
+
+    @Test
+    public void renameReplacesOldTicker() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("ETH", currency("ETC", 60, 20, 4)));
+
+        assertStatistics(3, 210, 60);
+        assertEquals(Arrays.asList("BTC", "ETC", "XRP"), tickers(aggregates.topByMarketCap(3)));
+    }
+
+    @Test
+    public void deleteIsRemoved() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.deleted("BTC", 4));
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.deleted("NONE", 5));
+
+        assertStatistics(2, 100, 50);
+        assertEquals(Arrays.asList("ETH", "XRP"), tickers(aggregates.topByMarketCap(3)));
+    }
+
+    @Test
+    public void olderVersionIsIgnored() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("XRP", currency("XRP", 500, 40, 5)));
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("XRP", currency("XRP", 1, 1, 4)));
+
+        assertStatistics(3, 650, 70);
+    }
+
+    @Test
+    public void lateUpdateDoesNotRestoreDeletedTicker() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.deleted("BTC", 5));
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("BTC", currency("BTC", 1000, 10, 4)));
+
+        assertStatistics(2, 100, 50);
+        assertFalse(aggregates.rank("BTC").isPresent());
+
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.created(currency("BTC", 1000, 10, 6)));
+
+        assertStatistics(3, 1100, 60);
+    }
+
+    @Test
+    public void lateUpdateDoesNotRestoreRenamedTicker() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("ETH", currency("ETC", 60, 20, 5)));
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("ETH", currency("ETH", 70, 20, 4)));
+
+        assertStatistics(3, 210, 60);
+        assertEquals(Arrays.asList("BTC", "ETC", "XRP"), tickers(aggregates.topByMarketCap(3)));
+    }
+
+    @Test
+    public void lateDeleteDoesNotRemoveNewerState() {
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("BTC", currency("BTC", 200, 10, 5)));
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.deleted("BTC", 4));
+
+        assertStatistics(3, 300, 60);
+    }
+
+    @Test
+    public void rankFollowsWrites() {
+        assertEquals(3, aggregates.rank("XRP").get().getRank());
+        assertEquals(3, aggregates.rank("XRP").get().getCount());
+
+        aggregates.onCurrencyChanged(CurrencyChangedEvent.updated("XRP", currency("XRP", 500, 40, 4)));
+
+        assertEquals(1, aggregates.rank("XRP").get().getRank());
+        assertEquals(500, aggregates.rank("XRP").get().getMarketCap());
+        assertFalse(aggregates.rank("NONE").isPresent());
+    }
+
+    @Test
+    public void rangeIsServedByMarketCap() {
+        assertEquals(Arrays.asList("ETH", "XRP"), tickers(aggregates.rangeByMarketCap(50, 99, 0, 10)));
+        assertEquals(Arrays.asList("XRP"), tickers(aggregates.rangeByMarketCap(0, 100, 2, 10)));
+    }
+
+    private void assertStatistics(long count, long totalMarketCap, long totalNumberOfCoins) {
+        CurrencyStatistics statistics = aggregates.getStatistics();
+        assertEquals(count, statistics.getCount());
+        assertEquals(totalMarketCap, statistics.getTotalMarketCap());
+        assertEquals(totalNumberOfCoins, statistics.getTotalNumberOfCoins());
+    }
+
+    private static Currency currency(String ticker, long marketCap, long numberOfCoins, long version) {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(ticker).withName(ticker)
+            .withMarketCap(marketCap).withNumberOfCoins(numberOfCoins).build();
+        currency.setVersion(version);
+        return currency;
+    }
+
+    private static List<String> tickers(List<Currency> currencies) {
+        return currencies.stream().map(Currency::getTicker).collect(Collectors.toList());
+    }
+}
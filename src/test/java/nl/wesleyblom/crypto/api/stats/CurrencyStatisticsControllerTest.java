@@ -0,0 +1,94 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.Collections;
+import java.util.Optional;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Unit tests for {@link CurrencyStatisticsController}
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CurrencyStatisticsController.class)
+public class CurrencyStatisticsControllerTest {
+
+    private static final String API_URL_STATS = "/api/currencies/stats";
+    private static final String API_URL_TOP = "/api/currencies/top";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CurrencyAggregates currencyAggregates;
+
+    @Test
+    public void statisticsAreReturned() throws Exception {
+        given(currencyAggregates.getStatistics()).willReturn(new CurrencyStatistics(4, 1000, 70));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_STATS)).andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("{\"count\":4,\"totalMarketCap\":1000,\"totalNumberOfCoins\":70}", response.getContentAsString());
+    }
+
+    @Test
+    public void topIsReturned() throws Exception {
+        given(currencyAggregates.topByMarketCap(50)).willReturn(Collections.singletonList(
+            new Currency.CurrencyBuilder().withTicker("BTC").withName("Bitcoin").withNumberOfCoins(2).withMarketCap(3).build()));
+
+        MockHttpServletResponse response = mvc.perform(get(API_URL_TOP).param("by", "marketCap").param("n", "50"))
+            .andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("[{\"ticker\":\"BTC\",\"name\":\"Bitcoin\",\"numberOfCoins\":2,\"marketCap\":3}]",
+            response.getContentAsString());
+    }
+
+    @Test
+    public void invalidTopParametersReturn400() throws Exception {
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL_TOP).param("by", "name"))
+            .andReturn().getResponse().getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL_TOP).param("n", "0"))
+            .andReturn().getResponse().getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvc.perform(get(API_URL_TOP).param("n", "1001"))
+            .andReturn().getResponse().getStatus());
+        verify(currencyAggregates, never()).topByMarketCap(anyInt());
+    }
+
+    @Test
+    public void rankIsReturned() throws Exception {
+        given(currencyAggregates.rank("XRP")).willReturn(Optional.of(new CurrencyRank("XRP", 50, 3, 4)));
+
+        MockHttpServletResponse response = mvc.perform(get("/api/currencies/XRP/rank")).andReturn().getResponse();
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("{\"ticker\":\"XRP\",\"marketCap\":50,\"rank\":3,\"count\":4}", response.getContentAsString());
+    }
+
+    @Test
+    public void rankOfUnknownTickerReturns404() throws Exception {
+        given(currencyAggregates.rank("XRP")).willReturn(Optional.empty());
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), mvc.perform(get("/api/currencies/XRP/rank"))
+            .andReturn().getResponse().getStatus());
+    }
+}
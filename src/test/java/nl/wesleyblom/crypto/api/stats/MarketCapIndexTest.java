@@ -0,0 +1,114 @@
+package nl.wesleyblom.crypto.api.stats;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MarketCapIndex}
+ *
+ * @author Wesley
+ * @date 2019-03-31
+ */
+
+public class MarketCapIndexTest {
+
+    @Test
+    public void entriesAreOrderedByMarketCapThenTicker() {
+        MarketCapIndex index = new MarketCapIndex();
+        index.add(currency("ETH", 50));
+        index.add(currency("BTC", 100));
+        index.add(currency("XRP", 50));
+        index.add(currency("BCH", 10));
+
+        assertEquals("BTC,ETH,XRP,BCH", tickers(index.slice(0, 10)));
+        assertEquals("ETH,XRP", tickers(index.slice(1, 3)));
+        assertEquals("", tickers(index.slice(4, 10)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void positionIsCountOfEntriesBefore() {
+        MarketCapIndex index = new MarketCapIndex();
+        Currency xrp = currency("XRP", 50);
+        index.add(currency("BTC", 100));
+        index.add(currency("ETH", 50));
+        index.add(xrp);
+
+        assertEquals(0, index.countBefore(currency("BTC", 100)));
+        assertEquals(2, index.countBefore(xrp));
+        assertEquals(3, index.countBefore(currency("NONE", 1)));
+    }
+
+    @Test
+    public void rangeIsInclusiveAndPaged() {
+        MarketCapIndex index = new MarketCapIndex();
+        for (int i = 1; i <= 10; i++) {
+            index.add(currency("C" + i, i * 10));
+        }
+
+        assertEquals("C5,C4,C3", tickers(index.range(30, 50, 0, 10)));
+        assertEquals("C4", tickers(index.range(30, 50, 1, 1)));
+        assertEquals("", tickers(index.range(30, 50, 3, 10)));
+        assertEquals("", tickers(index.range(31, 39, 0, 10)));
+        assertEquals(10, index.range(Long.MIN_VALUE, Long.MAX_VALUE, 0, 100).size());
+    }
+
+    @Test
+    public void removeLeavesEarlierSnapshotsIntact() {
+        MarketCapIndex index = new MarketCapIndex();
+        Currency btc = currency("BTC", 100);
+        index.add(btc);
+        index.add(currency("ETH", 50));
+        List<Currency> before = index.slice(0, 10);
+
+        index.remove(btc);
+        index.remove(currency("NONE", 1));
+
+        assertEquals("ETH", tickers(index.slice(0, 10)));
+        assertEquals("BTC,ETH", tickers(before));
+    }
+
+    @Test
+    public void randomChangesMatchSortedSet() {
+        Random random = new Random(42);
+        MarketCapIndex index = new MarketCapIndex();
+        TreeSet<Currency> expected = new TreeSet<>(MarketCapIndex.ORDER);
+        List<Currency> added = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            if (added.isEmpty() || random.nextInt(3) > 0) {
+                Currency currency = currency("T" + i, random.nextInt(1000));
+                index.add(currency);
+                expected.add(currency);
+                added.add(currency);
+            } else {
+                Currency currency = added.remove(random.nextInt(added.size()));
+                index.remove(currency);
+                expected.remove(currency);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        assertEquals(new ArrayList<>(expected), index.slice(0, expected.size()));
+        Currency probe = added.get(added.size() / 2);
+        assertEquals(expected.headSet(probe).size(), index.countBefore(probe));
+    }
+
+    private static Currency currency(String ticker, long marketCap) {
+        return new Currency.CurrencyBuilder().withTicker(ticker).withName(ticker).withMarketCap(marketCap).build();
+    }
+
+    private static String tickers(List<Currency> currencies) {
+        StringBuilder tickers = new StringBuilder();
+        for (Currency currency : currencies) {
+            tickers.append(tickers.length() == 0 ? "" : ",").append(currency.getTicker());
+        }
+        return tickers.toString();
+    }
+}
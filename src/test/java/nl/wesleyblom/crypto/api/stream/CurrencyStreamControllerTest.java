@@ -0,0 +1,154 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import nl.wesleyblom.crypto.api.cache.CurrencyJsonCache;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Unit tests for {@link CurrencyStreamController} together with {@link CurrencyChangeStream}
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(CurrencyStreamController.class)
+@Import({CurrencyChangeStream.class, CurrencyJsonCache.class})
+public class CurrencyStreamControllerTest {
+
+    private static final String API_URL_STREAM = "/api/currencies/stream";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private CurrencyChangeStream currencyChangeStream;
+
+    @Autowired
+    private CurrencyJsonCache currencyJsonCache;
+
+    @Test
+    public void writesAreStreamedAsEvents() throws Exception {
+        MvcResult result = mvc.perform(get(API_URL_STREAM).accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+        assertTrue(result.getRequest().isAsyncStarted());
+        assertEquals(1, currencyChangeStream.getSubscriberCount());
+
+        currencyChangeStream.onCurrencyChanged(CurrencyChangedEvent.created(xrp("XRP")));
+        awaitContent(result.getResponse(), "event:created");
+        currencyChangeStream.onCurrencyChanged(CurrencyChangedEvent.updated("XRP", xrp("XRPN")));
+
+        MockHttpServletResponse response = result.getResponse();
+        String body = awaitContent(response, "event:updated");
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals("event:created\ndata:{\"ticker\":\"XRP\",\"name\":\"Ripple\",\"numberOfCoins\":1,\"marketCap\":2}\n\n"
+                + "event:deleted\ndata:{\"ticker\":\"XRP\"}\n\n"
+                + "event:updated\ndata:{\"ticker\":\"XRPN\",\"name\":\"Ripple\",\"numberOfCoins\":1,\"marketCap\":2}\n\n",
+            body);
+
+        currencyChangeStream.close();
+        assertEquals(0, currencyChangeStream.getSubscriberCount());
+    }
+
+    @Test
+    public void blockedSubscribersDoNotStallOthers() throws Exception {
+        CurrencyChangeStream stream = new CurrencyChangeStream(1, 100, 0);
+        ExecutorService writers = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<SseEmitter.SseEventBuilder> received = new LinkedBlockingQueue<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                subscribe(stream, blockingEmitter(release), writers, 60000);
+            }
+            subscribe(stream, new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    received.add(builder);
+                }
+            }, writers, 60000);
+
+            stream.onCurrencyChanged(CurrencyChangedEvent.created(xrp("AAA")));
+            stream.onCurrencyChanged(CurrencyChangedEvent.created(xrp("BBB")));
+
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            stream.close();
+            writers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void subscriberNotTakingChangesIsDisconnected() throws Exception {
+        CurrencyChangeStream stream = new CurrencyChangeStream(1, 100, 0);
+        ExecutorService writers = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            subscribe(stream, blockingEmitter(release), writers, 50);
+            stream.onCurrencyChanged(CurrencyChangedEvent.created(xrp("AAA")));
+            Thread.sleep(100);
+
+            for (int i = 0; i < 500 && stream.getSubscriberCount() > 0; i++) {
+                stream.onCurrencyChanged(CurrencyChangedEvent.created(xrp("BBB")));
+                Thread.sleep(10);
+            }
+            assertEquals(0, stream.getSubscriberCount());
+        } finally {
+            release.countDown();
+            stream.close();
+            writers.shutdownNow();
+        }
+    }
+
+    private void subscribe(CurrencyChangeStream stream, SseEmitter emitter, Executor writers, long sendTimeoutMillis) {
+        CurrencyStreamController.EmitterSink sink =
+            new CurrencyStreamController.EmitterSink(emitter, currencyJsonCache, writers, sendTimeoutMillis);
+        sink.attach(stream.subscribe(sink));
+    }
+
+    private static SseEmitter blockingEmitter(CountDownLatch release) {
+        return new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        for (int i = 0; i < 500 && !response.getContentAsString().contains(expected); i++) {
+            Thread.sleep(10);
+        }
+        return response.getContentAsString();
+    }
+
+    private static Currency xrp(String ticker) {
+        return new Currency.CurrencyBuilder().withTicker(ticker).withName("Ripple").withNumberOfCoins(1).withMarketCap(2).build();
+    }
+}
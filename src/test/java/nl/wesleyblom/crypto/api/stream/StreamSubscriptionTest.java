@@ -0,0 +1,167 @@
+package nl.wesleyblom.crypto.api.stream;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import nl.wesleyblom.crypto.api.event.CurrencyChangedEvent;
+import nl.wesleyblom.crypto.api.model.Currency;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StreamSubscription}
+ *
+ * @author Wesley
+ * @date 2019-03-29
+ */
+
+public class StreamSubscriptionTest {
+
+    private RecordingSink sink;
+    private List<Runnable> tasks;
+    private List<StreamSubscription> closed;
+    private StreamSubscription subscription;
+
+    @Before
+    public void setup() {
+        sink = new RecordingSink();
+        tasks = new ArrayList<>();
+        closed = new ArrayList<>();
+        subscription = new StreamSubscription(sink, tasks::add, 3, closed::add);
+    }
+
+    @Test
+    public void pendingChangesAreCoalescedPerTicker() {
+        subscription.offer(updated("AAA", 1));
+        subscription.offer(updated("BBB", 1));
+        subscription.offer(updated("AAA", 2));
+
+        assertEquals(1, tasks.size());
+        assertEquals(2, subscription.getPending());
+        runTasks();
+
+        assertEquals(2, sink.events.size());
+        assertEquals("AAA", sink.events.get(0).getTicker());
+        assertEquals(2, sink.events.get(0).getCurrency().getMarketCap());
+        assertEquals("BBB", sink.events.get(1).getTicker());
+        assertEquals(0, subscription.getPending());
+    }
+
+    @Test
+    public void changesWaitUntilSinkIsReady() {
+        sink.ready = false;
+        subscription.offer(updated("AAA", 1));
+        runTasks();
+        assertTrue(sink.events.isEmpty());
+
+        sink.ready = true;
+        subscription.schedule();
+        runTasks();
+        assertEquals(1, sink.events.size());
+    }
+
+    @Test
+    public void drainSendsABatchAndSchedulesItselfAgain() {
+        subscription = new StreamSubscription(sink, tasks::add, 1000, closed::add);
+        for (int i = 0; i < StreamSubscription.BATCH + 1; i++) {
+            subscription.offer(updated("T" + i, i));
+        }
+
+        tasks.remove(0).run();
+        assertEquals(StreamSubscription.BATCH, sink.events.size());
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        assertEquals(StreamSubscription.BATCH + 1, sink.events.size());
+    }
+
+    @Test
+    public void subscriberTooFarBehindIsClosed() {
+        for (int i = 0; i < 4; i++) {
+            subscription.offer(updated("T" + i, i));
+        }
+
+        assertTrue(subscription.isClosed());
+        assertTrue(sink.closed);
+        assertEquals(1, closed.size());
+        runTasks();
+        assertTrue(sink.events.isEmpty());
+    }
+
+    @Test
+    public void failingSinkClosesSubscription() {
+        sink.fail = true;
+        subscription.offer(updated("AAA", 1));
+        runTasks();
+
+        assertTrue(subscription.isClosed());
+        assertEquals(1, closed.size());
+    }
+
+    @Test
+    public void heartbeatIsSent() {
+        subscription.heartbeat();
+        runTasks();
+
+        assertEquals(1, sink.heartbeats);
+    }
+
+    @Test
+    public void closeIsIdempotent() {
+        Executor direct = Runnable::run;
+        subscription = new StreamSubscription(sink, direct, 3, closed::add);
+
+        subscription.close();
+        subscription.close();
+        subscription.offer(updated("AAA", 1));
+
+        assertEquals(1, closed.size());
+        assertTrue(sink.events.isEmpty());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static CurrencyChangedEvent updated(String ticker, long marketCap) {
+        Currency currency = new Currency.CurrencyBuilder().withTicker(ticker).withName(ticker).withMarketCap(marketCap).build();
+        return CurrencyChangedEvent.updated(ticker, currency);
+    }
+
+    private static class RecordingSink implements StreamSink {
+
+        final List<CurrencyChangedEvent> events = new ArrayList<>();
+        volatile boolean ready = true;
+        boolean fail;
+        boolean closed;
+        int heartbeats;
+
+        @Override
+        public boolean ready() {
+            return ready;
+        }
+
+        @Override
+        public void send(CurrencyChangedEvent event) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void heartbeat() {
+            heartbeats++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
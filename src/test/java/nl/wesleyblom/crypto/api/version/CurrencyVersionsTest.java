@@ -0,0 +1,70 @@
+package nl.wesleyblom.crypto.api.version;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import nl.wesleyblom.crypto.api.repository.CurrencyRepository;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CurrencyVersions}
+ *
+ * @author Wesley
+ * @date 2019-03-11
+ */
+
+public class CurrencyVersionsTest {
+
+    @Test
+    public void counterContinuesAfterHighestStoredVersion() {
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        when(currencyRepository.findMaxVersion()).thenReturn(41L);
+
+        CurrencyVersions versions = new CurrencyVersions(currencyRepository);
+        versions.init();
+
+        assertEquals(41, versions.current());
+        assertEquals(42, versions.next());
+        assertEquals(42, versions.current());
+    }
+
+    @Test
+    public void counterStartsAtZeroWithoutCurrencies() {
+        CurrencyVersions versions = new CurrencyVersions(mock(CurrencyRepository.class));
+        versions.init();
+
+        assertEquals(0, versions.current());
+    }
+
+    @Test
+    public void collectionTagChangesOnEveryWrite() {
+        CurrencyVersions versions = new CurrencyVersions(mock(CurrencyRepository.class));
+        versions.init();
+
+        String before = versions.collectionTag();
+        versions.next();
+
+        assertNotEquals(before, versions.collectionTag());
+        assertTrue(versions.collectionTag().startsWith("\""));
+        assertTrue(versions.collectionTag().endsWith("-1\""));
+    }
+
+    @Test
+    public void tagIsQuotedVersion() {
+        String tag = new CurrencyVersions(mock(CurrencyRepository.class)).tag(7);
+
+        assertTrue(tag.startsWith("\""));
+        assertTrue(tag.endsWith(".7\""));
+    }
+
+    @Test
+    public void tagIsNotReusedAfterRestart() throws Exception {
+        CurrencyVersions before = new CurrencyVersions(mock(CurrencyRepository.class));
+        Thread.sleep(2);
+        CurrencyVersions after = new CurrencyVersions(mock(CurrencyRepository.class));
+
+        assertNotEquals(before.tag(0), after.tag(0));
+        assertEquals(after.tag(0), after.tag(0));
+    }
+}